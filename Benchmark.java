@@ -0,0 +1,243 @@
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * class Benchmark measures the scheduling algorithms on synthetic
+ * workloads (see Workloads) of growing size. For every algorithm,
+ * workload and size it reports throughput, allocation rate, garbage
+ * collections and p50/p99 latency of one call of the algorithm.
+ *
+ * Every combination is warmed up first, then called repeatedly for a
+ * fixed time. The timeline goes into a sink which only hashes it.
+ *
+ * Usage: java -Xmx4g Benchmark [-a FCFS,RR,...] [-w uniform,pareto,...]
+ *        [-n 1000,10000,...] [-t milliseconds per measurement] [-csv]
+ *
+ * The same measurement runs under JMH with "mvn -P jmh package" and
+ * "java -jar target/benchmarks.jar" (src/jmh/java); this harness is kept
+ * for builds without Maven.
+ */
+public class Benchmark {
+
+    // keeps the hash of the last timeline alive
+    static volatile long blackhole;
+
+    /**
+     * Sink which hashes the timeline, so the work can not be optimized away
+     */
+    private static class HashSink implements TimelineSink {
+
+        @Override
+        public void segment(int job, String name, int start, int end) {
+            hash = hash * 31 + job;
+            hash = hash * 31 + end;
+            segments++;
+        }
+
+        long hash;
+        long segments;
+    }
+
+    /**
+     * Result of one measurement
+     */
+    private static class Result {
+        int calls;
+        double seconds;
+        // -1 if the JVM can not count allocated bytes
+        long allocated;
+        long gcCount;
+        long gcMillis;
+        long p50;
+        long p99;
+        long segments;
+    }
+
+    /**
+     * Main function
+     * @param args options, see usage
+     */
+    public static void main(String[] args) {
+        String[] algorithms = {"FCFS", "RR", "SPN", "SRT", "HRRN", "FB"};
+        String[] shapes = Workloads.SHAPES;
+        int[] sizes = {1000, 10000, 100000, 1000000, 10000000};
+        long millis = 1000;
+        boolean csv = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-a") && i + 1 < args.length) {
+                algorithms = args[++i].split(",");
+            } else if (args[i].equals("-w") && i + 1 < args.length) {
+                shapes = args[++i].split(",");
+            } else if (args[i].equals("-n") && i + 1 < args.length) {
+                String[] values = args[++i].split(",");
+                sizes = new int[values.length];
+                for (int j = 0; j < values.length; j++) {
+                    sizes[j] = (int) Double.parseDouble(values[j]);
+                }
+            } else if (args[i].equals("-t") && i + 1 < args.length) {
+                millis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-csv")) {
+                csv = true;
+            } else {
+                System.out.println("Usage: Benchmark [-a FCFS,RR,...] "
+                        + "[-w uniform,pareto,bursty,zero] [-n 1000,...] "
+                        + "[-t milliseconds] [-csv]");
+                return;
+            }
+        }
+
+        if (csv) {
+            System.out.println("algorithm,workload,jobs,calls,calls/s,"
+                    + "jobs/s,alloc MB/s,alloc B/job,gc count,gc ms,"
+                    + "p50 ms,p99 ms,segments");
+        } else {
+            System.out.printf("%-5s %-8s %9s %6s %10s %12s %11s %11s %5s %7s "
+                    + "%10s %10s%n", "alg", "workload", "jobs", "calls",
+                    "calls/s", "jobs/s", "alloc MB/s", "alloc B/job", "gc",
+                    "gc ms", "p50 ms", "p99 ms");
+        }
+        for (String shape : shapes) {
+            for (int n : sizes) {
+                JobTable jobs = Workloads.create(shape, n, 1);
+                if (jobs == null) {
+                    System.out.println("Unknown workload " + shape);
+                    return;
+                }
+                for (String algorithm : algorithms) {
+                    Result r = measure(algorithm, jobs, millis);
+                    if (r == null) {
+                        System.out.println("Unknown scheduling algorithm "
+                                + algorithm);
+                        return;
+                    }
+                    print(algorithm, shape, n, r, csv);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the algorithm once into a hashing sink, the call measured by
+     * the JMH benchmarks
+     *
+     * @param algorithm name of scheduling algorithm
+     * @param jobs table of jobs
+     * @return hash of the timeline
+     * @throws IllegalArgumentException if the algorithm is unknown
+     */
+    public static long hash(String algorithm, JobTable jobs) {
+        HashSink sink = new HashSink();
+        if (!Scheduler.schedule(algorithm, jobs, sink)) {
+            throw new IllegalArgumentException(
+                    "Unknown scheduling algorithm " + algorithm);
+        }
+        return sink.hash;
+    }
+
+    /**
+     * Measures the algorithm on the jobs
+     *
+     * @param algorithm name of scheduling algorithm
+     * @param jobs table of jobs
+     * @param millis time of the measurement
+     * @return result or null if the algorithm is unknown
+     */
+    private static Result measure(String algorithm, JobTable jobs,
+            long millis) {
+        HashSink sink = new HashSink();
+        // warm up for half of the time, at least once
+        long end = System.nanoTime() + millis * 500000;
+        do {
+            if (!Scheduler.schedule(algorithm, jobs, sink)) {
+                return null;
+            }
+        } while (System.nanoTime() < end);
+
+        Result r = new Result();
+        long[] times = new long[16];
+        long allocated = allocatedBytes();
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long start = System.nanoTime();
+        end = start + millis * 1000000;
+        long now = start;
+        // measure for the time, at least 5 calls
+        while (r.calls < 5 || now < end) {
+            long before = now;
+            sink.segments = 0;
+            Scheduler.schedule(algorithm, jobs, sink);
+            now = System.nanoTime();
+            if (r.calls == times.length) {
+                times = Arrays.copyOf(times, times.length * 2);
+            }
+            times[r.calls++] = now - before;
+        }
+        r.seconds = (now - start) / 1e9;
+        r.allocated = allocated < 0 ? -1 : allocatedBytes() - allocated;
+        r.gcCount = gcCount() - gcCount;
+        r.gcMillis = gcMillis() - gcMillis;
+        r.segments = sink.segments;
+        Arrays.sort(times, 0, r.calls);
+        r.p50 = times[(int) Math.ceil(0.50 * r.calls) - 1];
+        r.p99 = times[(int) Math.ceil(0.99 * r.calls) - 1];
+        blackhole = sink.hash;
+        return r;
+    }
+
+    private static void print(String algorithm, String shape, int n, Result r,
+            boolean csv) {
+        double callsPerSecond = r.calls / r.seconds;
+        String allocRate = r.allocated < 0 ? "n/a"
+                : String.format("%.1f", r.allocated / r.seconds / 1e6);
+        String allocPerJob = r.allocated < 0 ? "n/a"
+                : String.format("%.1f", (double) r.allocated / r.calls / n);
+        if (csv) {
+            System.out.printf("%s,%s,%d,%d,%.3f,%.0f,%s,%s,%d,%d,%.3f,%.3f,%d%n",
+                    algorithm, shape, n, r.calls, callsPerSecond,
+                    callsPerSecond * n, allocRate, allocPerJob, r.gcCount,
+                    r.gcMillis, r.p50 / 1e6, r.p99 / 1e6, r.segments);
+        } else {
+            System.out.printf("%-5s %-8s %9d %6d %10.2f %12.0f %11s %11s %5d "
+                    + "%7d %10.3f %10.3f%n", algorithm, shape, n, r.calls,
+                    callsPerSecond, callsPerSecond * n, allocRate, allocPerJob,
+                    r.gcCount, r.gcMillis, r.p50 / 1e6, r.p99 / 1e6);
+        }
+    }
+
+    /**
+     * @return bytes allocated by this thread or -1 if not supported
+     */
+    static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean
+                    = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported()) {
+                return sunBean.getThreadAllocatedBytes(
+                        Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean
+                : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(bean.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean bean
+                : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(bean.getCollectionTime(), 0);
+        }
+        return millis;
+    }
+}
@@ -0,0 +1,805 @@
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+/**
+ * class BinaryTrace writes and loads a JobTable in a compact binary
+ * format, so a big trace is parsed from text only once.
+ *
+ * Format, big-endian, version 1:
+ *   magic "SCHT", int version
+ *   int number of jobs, int number of names
+ *   long length in bytes of each of the four sections below
+ *   names: for every name varint length and UTF-8 bytes
+ *   name ids: varint for every job
+ *   arrival times: zigzag varint of the difference to the previous job
+ *   service times: zigzag varint for every job
+ *
+ * Version 2 has a fifth section, its length follows the other four:
+ *   weights: varint for every job
+ * Version 3 has a sixth section, empty weights if every job has weight 1:
+ *   deadlines: zigzag varint of the difference to the previous job, a job
+ *   without a deadline has JobTable.NO_DEADLINE
+ * Tables without weights and deadlines are written in version 1, tables
+ * without deadlines in version 2.
+ *
+ * Varints store 7 bits per byte, low bits first, the high bit is set on
+ * all bytes but the last. The sections are memory-mapped and the three
+ * columns are decoded in parallel straight into the arrays of the table.
+ * Traces which do not fit into memory are written job by job by a Writer
+ * and read part by part by scan.
+ */
+public class BinaryTrace {
+
+    // "SCHT"
+    private static final int MAGIC = 0x53434854;
+
+    // current version of the format
+    public static final int VERSION = 3;
+
+    // magic, version, counts and lengths of sections of version 1
+    private static final int HEADER = 4 + 4 + 4 + 4 + 4 * 8;
+
+    // number of bytes copied from a mapping at a time
+    private static final int WINDOW = 64 << 10;
+
+    // encodings of columns: varint, zigzag varint, zigzag varint of the
+    // difference to the previous job
+    private static final int RAW = 0;
+    private static final int SIGNED = 1;
+    private static final int DELTA = 2;
+
+    // number of jobs given to a Batch at a time
+    private static final int BATCH = 64 << 10;
+
+    /**
+     * @param file file
+     * @return true if the file starts with the magic of a binary trace
+     * @throws IOException if the file can not be read
+     */
+    public static boolean isBinary(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic) > 0) {
+                // read the whole magic
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Column of a trace which can be read again from the first job, so
+     * the writer can size the sections before it writes them
+     */
+    public interface Column {
+
+        /**
+         * @return values of the jobs in the order of the jobs
+         */
+        PrimitiveIterator.OfInt open();
+    }
+
+    /**
+     * Writes the jobs into the file
+     *
+     * @param jobs table of jobs
+     * @param file file
+     * @throws IOException if the file can not be written
+     */
+    public static void write(JobTable jobs, Path file) throws IOException {
+        String[] names = jobs.nameDictionary();
+        int n = jobs.size();
+        write(file, n, names.length, i -> names[i],
+                () -> Arrays.stream(jobs.nameId, 0, n).iterator(),
+                () -> Arrays.stream(jobs.arrival, 0, n).iterator(),
+                () -> Arrays.stream(jobs.service, 0, n).iterator(),
+                jobs.hasWeights()
+                        ? () -> Arrays.stream(jobs.weight, 0, n).iterator()
+                        : null,
+                jobs.hasDeadlines()
+                        ? () -> Arrays.stream(jobs.deadline, 0, n).iterator()
+                        : null);
+    }
+
+    /**
+     * Writes a trace without holding it in memory: every column is read
+     * twice, once to size its section and once to write it
+     *
+     * @param file file
+     * @param n number of jobs
+     * @param nameCount number of names
+     * @param names name of every name id
+     * @param nameIds name ids, ids appear for the first time in order
+     * @param arrival arrival times, not decreasing
+     * @param service service times
+     * @param weight weights or null if every job has weight 1
+     * @throws IOException if the file can not be written
+     */
+    public static void write(Path file, int n, int nameCount,
+            IntFunction<String> names, Column nameIds, Column arrival,
+            Column service, Column weight) throws IOException {
+        write(file, n, nameCount, names, nameIds, arrival, service, weight,
+                null);
+    }
+
+    /**
+     * Writes a trace with deadlines without holding it in memory
+     *
+     * @param file file
+     * @param n number of jobs
+     * @param nameCount number of names
+     * @param names name of every name id
+     * @param nameIds name ids, ids appear for the first time in order
+     * @param arrival arrival times, not decreasing
+     * @param service service times
+     * @param weight weights or null if every job has weight 1
+     * @param deadline deadlines or null if no job has one
+     * @throws IOException if the file can not be written
+     */
+    public static void write(Path file, int n, int nameCount,
+            IntFunction<String> names, Column nameIds, Column arrival,
+            Column service, Column weight, Column deadline)
+            throws IOException {
+        // lengths of the sections of the columns
+        long[] lengths = new long[deadline != null ? 5
+                : weight != null ? 4 : 3];
+        lengths[0] = sectionLength(nameIds, n, RAW);
+        lengths[1] = sectionLength(arrival, n, DELTA);
+        lengths[2] = sectionLength(service, n, SIGNED);
+        if (weight != null) {
+            lengths[3] = sectionLength(weight, n, RAW);
+        }
+        if (deadline != null) {
+            lengths[4] = sectionLength(deadline, n, DELTA);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file),
+                        WINDOW))) {
+            writeHeader(out, n, nameCount, names, lengths);
+            writeSection(out, nameIds, n, RAW);
+            writeSection(out, arrival, n, DELTA);
+            writeSection(out, service, n, SIGNED);
+            if (weight != null) {
+                writeSection(out, weight, n, RAW);
+            }
+            if (deadline != null) {
+                writeSection(out, deadline, n, DELTA);
+            }
+        }
+    }
+
+    /**
+     * Writes the header and the names, version 2 if there are weights and
+     * version 3 if there are deadlines
+     *
+     * @param out output
+     * @param n number of jobs
+     * @param nameCount number of names
+     * @param names name of every name id
+     * @param lengths lengths of the sections of the columns
+     * @throws IOException if the output can not be written
+     */
+    private static void writeHeader(DataOutputStream out, int n,
+            int nameCount, IntFunction<String> names, long[] lengths)
+            throws IOException {
+        long namesLength = 0;
+        for (int i = 0; i < nameCount; i++) {
+            int length = names.apply(i).getBytes(StandardCharsets.UTF_8)
+                    .length;
+            namesLength += varintSize(length) + length;
+        }
+        out.writeInt(MAGIC);
+        out.writeInt(lengths.length - 2);
+        out.writeInt(n);
+        out.writeInt(nameCount);
+        out.writeLong(namesLength);
+        for (long length : lengths) {
+            out.writeLong(length);
+        }
+        for (int i = 0; i < nameCount; i++) {
+            byte[] bytes = names.apply(i).getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * @param column column
+     * @param n number of jobs
+     * @param encoding RAW, SIGNED or DELTA
+     * @return length in bytes of the section of the column
+     */
+    private static long sectionLength(Column column, int n, int encoding) {
+        PrimitiveIterator.OfInt values = column.open();
+        long length = 0;
+        int previous = 0;
+        for (int i = 0; i < n; i++) {
+            int value = values.nextInt();
+            length += varintSize(encode(value, previous, encoding));
+            previous = value;
+        }
+        return length;
+    }
+
+    private static void writeSection(OutputStream out, Column column, int n,
+            int encoding) throws IOException {
+        PrimitiveIterator.OfInt values = column.open();
+        int previous = 0;
+        for (int i = 0; i < n; i++) {
+            int value = values.nextInt();
+            writeVarint(out, encode(value, previous, encoding));
+            previous = value;
+        }
+    }
+
+    private static int encode(int value, int previous, int encoding) {
+        return encoding == RAW ? value
+                : zigzag(encoding == DELTA ? value - previous : value);
+    }
+
+    /**
+     * Writes a trace job by job in one pass, for jobs which can be
+     * produced only once. Every column goes into a temporary file, the
+     * files are joined behind the header by finish.
+     */
+    public static class Writer implements Closeable {
+
+        /**
+         * @param file binary trace
+         * @param directory directory of the temporary files
+         * @param weighted true to write the weights, version 2
+         * @throws IOException if a temporary file can not be created
+         */
+        public Writer(Path file, Path directory, boolean weighted)
+                throws IOException {
+            this(file, directory, weighted, false);
+        }
+
+        /**
+         * @param file binary trace
+         * @param directory directory of the temporary files
+         * @param weighted true to write the weights
+         * @param deadlines true to write the deadlines, version 3
+         * @throws IOException if a temporary file can not be created
+         */
+        public Writer(Path file, Path directory, boolean weighted,
+                boolean deadlines) throws IOException {
+            this.file = file;
+            this.weighted = weighted;
+            columns = new SectionOutput[deadlines ? 5 : weighted ? 4 : 3];
+            try {
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = new SectionOutput(Files.createTempFile(
+                            directory, "column", ".tmp"));
+                }
+            } catch (IOException ex) {
+                close();
+                throw ex;
+            }
+        }
+
+        /**
+         * Adds the next job
+         *
+         * @param nameId id of the name in the names given to finish
+         * @param arrival arrival time
+         * @param service service time
+         * @param weight weight, ignored if the trace has no weights
+         * @throws IOException if a temporary file can not be written
+         */
+        public void add(int nameId, int arrival, int service, int weight)
+                throws IOException {
+            add(nameId, arrival, service, weight, JobTable.NO_DEADLINE);
+        }
+
+        /**
+         * Adds the next job with its deadline
+         *
+         * @param nameId id of the name in the names given to finish
+         * @param arrival arrival time
+         * @param service service time
+         * @param weight weight, ignored if the trace has no weights
+         * @param deadline deadline or JobTable.NO_DEADLINE, ignored if the
+         * trace has no deadlines
+         * @throws IOException if a temporary file can not be written
+         */
+        public void add(int nameId, int arrival, int service, int weight,
+                int deadline) throws IOException {
+            columns[0].writeVarint(nameId);
+            columns[1].writeVarint(zigzag(arrival - previous));
+            columns[2].writeVarint(zigzag(service));
+            if (weighted) {
+                columns[3].writeVarint(weight);
+            }
+            if (columns.length == 5) {
+                columns[4].writeVarint(zigzag(deadline - previousDeadline));
+                previousDeadline = deadline;
+            }
+            previous = arrival;
+            count++;
+        }
+
+        /**
+         * Writes the trace
+         *
+         * @param names dictionary of the name ids
+         * @throws IOException if the file can not be written
+         */
+        public void finish(String[] names) throws IOException {
+            long[] lengths = new long[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].flush();
+                lengths[i] = columns[i].length;
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file),
+                            WINDOW))) {
+                writeHeader(out, count, names.length, i -> names[i],
+                        lengths);
+            }
+            try (FileChannel out = FileChannel.open(file,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                for (SectionOutput column : columns) {
+                    long position = 0;
+                    while (position < column.length) {
+                        position += column.channel.transferTo(position,
+                                column.length - position, out);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Deletes the temporary files
+         *
+         * @throws IOException if a file can not be deleted
+         */
+        @Override
+        public void close() throws IOException {
+            for (SectionOutput column : columns) {
+                if (column != null) {
+                    column.channel.close();
+                    Files.deleteIfExists(column.path);
+                }
+            }
+        }
+
+        private final Path file;
+        private final boolean weighted;
+        private final SectionOutput[] columns;
+        private int previous;
+        private int previousDeadline;
+        private int count;
+    }
+
+    /**
+     * Temporary file of a section written through a buffer
+     */
+    private static class SectionOutput {
+
+        SectionOutput(Path path) throws IOException {
+            this.path = path;
+            channel = FileChannel.open(path, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        }
+
+        void writeVarint(int value) throws IOException {
+            if (buffer.remaining() < 5) {
+                flush();
+            }
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            length += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        final Path path;
+        final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WINDOW);
+        long length;
+    }
+
+    /**
+     * Loads the file
+     *
+     * @param file binary trace
+     * @return table of jobs
+     * @throws IOException if the file can not be read, is not a binary
+     * trace of a known version or is corrupt
+     */
+    public static JobTable load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            int[] counts = new int[2];
+            Section[] sections = map(channel, file, counts);
+            int n = counts[0];
+            int nameCount = counts[1];
+
+            // names, then the columns in parallel
+            String[] names = readNames(sections[0], nameCount);
+            int[] nameIds = new int[n];
+            int[] arrival = new int[n];
+            int[] service = new int[n];
+            int[] weight = weighted(sections) ? new int[n] : null;
+            int[] deadline = sections.length == 6 ? new int[n] : null;
+            ArrayList<Callable<Void>> tasks = new ArrayList<>();
+            tasks.add(() -> {
+                for (int i = 0; i < n; i++) {
+                    nameIds[i] = sections[1].readVarint();
+                    if (nameIds[i] < 0 || nameIds[i] >= nameCount) {
+                        throw corrupt(file);
+                    }
+                }
+                sections[1].checkEnd();
+                return null;
+            });
+            tasks.add(() -> {
+                int previous = 0;
+                for (int i = 0; i < n; i++) {
+                    previous += unzigzag(sections[2].readVarint());
+                    arrival[i] = previous;
+                    if (previous < 0) {
+                        throw corrupt(file);
+                    }
+                }
+                sections[2].checkEnd();
+                return null;
+            });
+            tasks.add(() -> {
+                for (int i = 0; i < n; i++) {
+                    service[i] = unzigzag(sections[3].readVarint());
+                    if (service[i] <= 0) {
+                        throw corrupt(file);
+                    }
+                }
+                sections[3].checkEnd();
+                return null;
+            });
+            if (weight != null) {
+                tasks.add(() -> {
+                    for (int i = 0; i < n; i++) {
+                        weight[i] = sections[4].readVarint();
+                        if (weight[i] <= 0) {
+                            throw corrupt(file);
+                        }
+                    }
+                    sections[4].checkEnd();
+                    return null;
+                });
+            }
+            if (deadline != null) {
+                tasks.add(() -> {
+                    int previous = 0;
+                    for (int i = 0; i < n; i++) {
+                        previous += unzigzag(sections[5].readVarint());
+                        deadline[i] = previous;
+                    }
+                    sections[5].checkEnd();
+                    return null;
+                });
+            }
+            decode(tasks);
+            try {
+                return new JobTable(names, nameIds, arrival, service, weight,
+                        deadline, n);
+            } catch (IllegalArgumentException ex) {
+                throw corrupt(file);
+            }
+        }
+    }
+
+    /**
+     * Reads the file part by part in the order of the jobs, only one part
+     * of the columns is held in memory
+     *
+     * @param file binary trace
+     * @param batch consumer of the jobs, every part has all the names
+     * @throws IOException if the file can not be read, is not a binary
+     * trace of a known version or is corrupt, or the consumer fails
+     */
+    public static void scan(Path file, TraceLoader.Batch batch)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            int[] counts = new int[2];
+            Section[] sections = map(channel, file, counts);
+            int n = counts[0];
+            int nameCount = counts[1];
+            String[] names = readNames(sections[0], nameCount);
+            int capacity = Math.max(1, Math.min(n, BATCH));
+            int[] nameIds = new int[capacity];
+            int[] arrival = new int[capacity];
+            int[] service = new int[capacity];
+            int[] weight = weighted(sections) ? new int[capacity] : null;
+            int[] deadline = sections.length == 6 ? new int[capacity] : null;
+            int previous = 0;
+            int previousDeadline = 0;
+            for (int done = 0; done < n; done += capacity) {
+                int count = Math.min(capacity, n - done);
+                for (int i = 0; i < count; i++) {
+                    nameIds[i] = sections[1].readVarint();
+                    if (nameIds[i] < 0 || nameIds[i] >= nameCount) {
+                        throw corrupt(file);
+                    }
+                    previous += unzigzag(sections[2].readVarint());
+                    arrival[i] = previous;
+                    service[i] = unzigzag(sections[3].readVarint());
+                    if (previous < 0 || service[i] <= 0) {
+                        throw corrupt(file);
+                    }
+                }
+                if (weight != null) {
+                    for (int i = 0; i < count; i++) {
+                        weight[i] = sections[4].readVarint();
+                        if (weight[i] <= 0) {
+                            throw corrupt(file);
+                        }
+                    }
+                }
+                if (deadline != null) {
+                    for (int i = 0; i < count; i++) {
+                        previousDeadline += unzigzag(
+                                sections[5].readVarint());
+                        deadline[i] = previousDeadline;
+                    }
+                }
+                batch.add(names, nameIds, arrival, service, weight, deadline,
+                        count);
+            }
+            for (int i = 1; i < sections.length; i++) {
+                sections[i].checkEnd();
+            }
+        }
+    }
+
+    /**
+     * Checks the header and maps the sections
+     *
+     * @param channel binary trace
+     * @param file name of the file
+     * @param counts receives the number of jobs and of names
+     * @return sections, four in version 1, five in version 2 and six in
+     * version 3
+     * @throws IOException if the file is not a binary trace of a known
+     * version or is corrupt
+     */
+    private static Section[] map(FileChannel channel, Path file,
+            int[] counts) throws IOException {
+        long size = channel.size();
+        if (size < HEADER) {
+            throw new IOException(file + " is not a binary trace");
+        }
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY,
+                0, Math.min(size, HEADER + 8 * (VERSION - 1)));
+        if (header.getInt() != MAGIC) {
+            throw new IOException(file + " is not a binary trace");
+        }
+        int version = header.getInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported version " + version
+                    + " of binary trace " + file);
+        }
+        if (size < HEADER + 8 * (version - 1)) {
+            throw corrupt(file);
+        }
+        int n = header.getInt();
+        int nameCount = header.getInt();
+        long[] lengths = new long[version + 3];
+        long headerSize = HEADER + 8 * (lengths.length - 4);
+        long total = headerSize;
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = header.getLong();
+            if (lengths[i] < 0 || lengths[i] > Integer.MAX_VALUE) {
+                throw corrupt(file);
+            }
+            total += lengths[i];
+        }
+        if (n < 0 || nameCount < 0 || total != size) {
+            throw corrupt(file);
+        }
+        counts[0] = n;
+        counts[1] = nameCount;
+
+        Section[] sections = new Section[lengths.length];
+        long position = headerSize;
+        for (int i = 0; i < sections.length; i++) {
+            sections[i] = new Section(channel.map(
+                    FileChannel.MapMode.READ_ONLY, position, lengths[i]),
+                    file);
+            position += lengths[i];
+        }
+        return sections;
+    }
+
+    /**
+     * @param sections sections of the trace
+     * @return true if the trace has a section of weights which is not
+     * empty
+     */
+    private static boolean weighted(Section[] sections) {
+        return sections.length > 4 && !sections[4].isEmpty();
+    }
+
+    private static String[] readNames(Section section, int nameCount)
+            throws IOException {
+        String[] names = new String[nameCount];
+        for (int i = 0; i < nameCount; i++) {
+            names[i] = section.readString();
+        }
+        section.checkEnd();
+        return names;
+    }
+
+    /**
+     * Runs the decoding tasks in parallel
+     *
+     * @param tasks tasks
+     * @throws IOException if a task fails
+     */
+    private static void decode(ArrayList<Callable<Void>> tasks)
+            throws IOException {
+        try {
+            for (Future<Void> result
+                    : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            // the pool wraps checked exceptions of callables
+            if (cause instanceof RuntimeException
+                    && cause.getCause() instanceof IOException) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static IOException corrupt(Path file) {
+        return new IOException("Binary trace " + file + " is corrupt");
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void writeVarint(OutputStream out, int value)
+            throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Mapped section of the file read through a window, which stays in
+     * the cache
+     */
+    private static class Section {
+
+        Section(MappedByteBuffer buffer, Path file) {
+            this.buffer = buffer;
+            this.file = file;
+        }
+
+        /**
+         * @return next varint as unsigned 32 bits
+         * @throws IOException if the section ends or the varint is too long
+         */
+        int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                if (position == limit) {
+                    fill();
+                }
+                byte b = window[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw corrupt(file);
+        }
+
+        /**
+         * @return next string of varint length and UTF-8 bytes
+         * @throws IOException if the section ends
+         */
+        String readString() throws IOException {
+            int length = readVarint();
+            if (length < 0 || length > buffer.remaining() + limit
+                    - position) {
+                throw corrupt(file);
+            }
+            byte[] bytes = new byte[length];
+            int copied = Math.min(length, limit - position);
+            System.arraycopy(window, position, bytes, 0, copied);
+            position += copied;
+            buffer.get(bytes, copied, length - copied);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return true if the section has no bytes
+         */
+        boolean isEmpty() {
+            return buffer.capacity() == 0;
+        }
+
+        /**
+         * @throws IOException if the section has unread bytes
+         */
+        void checkEnd() throws IOException {
+            if (position != limit || buffer.hasRemaining()) {
+                throw corrupt(file);
+            }
+        }
+
+        private void fill() throws IOException {
+            if (!buffer.hasRemaining()) {
+                throw corrupt(file);
+            }
+            limit = Math.min(window.length, buffer.remaining());
+            buffer.get(window, 0, limit);
+            position = 0;
+        }
+
+        private final MappedByteBuffer buffer;
+        private final Path file;
+        private final byte[] window = new byte[WINDOW];
+        private int position;
+        private int limit;
+    }
+}
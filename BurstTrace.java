@@ -0,0 +1,393 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * class BurstTrace holds jobs which alternate between the CPU and I/O
+ * devices. Every job is a sequence of bursts which starts and ends with a
+ * CPU burst, an I/O burst between two CPU bursts names its device.
+ *
+ * As in jobs.txt, empty lines are skipped and the first non-empty line is
+ * the header. Every other non-blank line is
+ *
+ *   name arrival cpu [device:io cpu]... [weight]
+ *
+ * separated by spaces or tabs, for example "A 0 3 1:5 2" runs A for 3
+ * time units, does 5 time units of I/O on device 1 and runs A for 2 more.
+ * Devices are numbered from 0, bursts are positive and the weight is 1 if
+ * it is left out, so a line of jobs.txt is a job of a single CPU burst.
+ *
+ * The bursts of all jobs are kept in two flat columns, the bursts of job
+ * i are first[i]..first[i + 1]-1: CPU bursts at even and I/O bursts at odd
+ * offsets from first[i]. The jobs are sorted by arrival time, jobs
+ * arriving at the same time keep the order of the file.
+ */
+public class BurstTrace {
+
+    // most devices
+    static final int MAX_DEVICES = 1 << 10;
+
+    // number of malformed lines listed in the error message
+    private static final int MAX_ERRORS = 20;
+
+    /**
+     * Reads the trace
+     *
+     * @param file text file of jobs and their bursts
+     * @return trace
+     * @throws IOException if the file can not be read
+     * @throws ParseException if some lines are malformed, the message
+     * lists them
+     */
+    public static BurstTrace load(Path file) throws IOException,
+            ParseException {
+        BurstTrace trace = new BurstTrace();
+        StringBuilder errors = new StringBuilder();
+        int firstError = -1;
+        int errorCount = 0;
+        try (BufferedReader in = Files.newBufferedReader(file,
+                StandardCharsets.UTF_8)) {
+            boolean header = true;
+            int line = 0;
+            for (String text; (text = in.readLine()) != null;) {
+                line++;
+                if (header) {
+                    header = text.trim().isEmpty();
+                    continue;
+                }
+                String error = trace.parseLine(text);
+                if (error != null) {
+                    if (firstError == -1) {
+                        firstError = line;
+                    }
+                    if (errorCount++ < MAX_ERRORS) {
+                        errors.append("\nline ").append(line).append(": ")
+                                .append(error);
+                    }
+                }
+            }
+        }
+        // while jobs are left the CPU or a device is busy, so no time
+        // exceeds the last arrival plus all bursts
+        if (errorCount == 0
+                && trace.lastArrival + trace.busyTime > Integer.MAX_VALUE) {
+            errors.append("\narrival times and bursts exceed ")
+                    .append(Integer.MAX_VALUE);
+            errorCount++;
+        }
+        if (errorCount > 0) {
+            if (errorCount > MAX_ERRORS) {
+                errors.append("\n... ").append(errorCount - MAX_ERRORS)
+                        .append(" more");
+            }
+            throw new ParseException("Malformed lines in " + file + errors,
+                    Math.max(firstError, 0));
+        }
+        trace.sort();
+        return trace;
+    }
+
+    private BurstTrace() {
+        nameId = new int[16];
+        arrival = new int[16];
+        first = new int[17];
+        length = new int[16];
+        device = new int[16];
+        names = new String[16];
+    }
+
+    /**
+     * @return number of jobs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of devices, one more than the highest device used
+     */
+    public int getDevices() {
+        return devices;
+    }
+
+    /**
+     * @return sum of the CPU bursts of all jobs
+     */
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * @return sum of the I/O bursts of all jobs
+     */
+    public long getIoTime() {
+        return ioTime;
+    }
+
+    /**
+     * Creates the table the policies work on: arrival times, weights and
+     * names of the jobs, and their first CPU bursts as service times
+     *
+     * @return new table
+     */
+    JobTable table() {
+        int[] service = new int[size];
+        for (int i = 0; i < size; i++) {
+            service[i] = length[first[i]];
+        }
+        return new JobTable(Arrays.copyOf(names, nameCount),
+                Arrays.copyOf(nameId, size), Arrays.copyOf(arrival, size),
+                service, weight == null ? null : Arrays.copyOf(weight, size),
+                null, size);
+    }
+
+    /**
+     * Parses the line, blank lines are skipped
+     *
+     * @param line line of the file
+     * @return error or null if the line is well formed
+     */
+    private String parseLine(String line) {
+        int p = skipSpaces(line, 0);
+        if (p == line.length()) {
+            return null;
+        }
+        int nameStart = p;
+        int nameEnd = tokenEnd(line, p);
+        p = skipSpaces(line, nameEnd);
+        if (p == line.length()) {
+            return "arrival time is missing";
+        }
+        int end = tokenEnd(line, p);
+        int arrivalTime = parse(line, p, end);
+        if (arrivalTime < 0) {
+            return "arrival time is not a non-negative integer";
+        }
+        p = skipSpaces(line, end);
+        if (p == line.length()) {
+            return "CPU burst is missing";
+        }
+        // CPU bursts at even, I/O bursts at odd indexes
+        int bursts = 0;
+        int jobWeight = 1;
+        long total = 0;
+        int start = first[size];
+        for (; p < line.length(); p = skipSpaces(line, end)) {
+            end = tokenEnd(line, p);
+            int colon = line.indexOf(':', p);
+            colon = colon < end ? colon : -1;
+            int burst;
+            if (bursts % 2 == 0) {
+                burst = parse(line, p, end);
+                if (burst <= 0) {
+                    return "CPU burst " + line.substring(p, end)
+                            + " is not a positive integer";
+                }
+                add(start + bursts, burst, 0);
+            } else if (colon < 0 && skipSpaces(line, end) == line.length()) {
+                jobWeight = parse(line, p, end);
+                if (jobWeight <= 0) {
+                    return "weight is not a positive integer";
+                }
+                break;
+            } else {
+                int d = colon < 0 ? -1 : parse(line, p, colon);
+                burst = colon < 0 ? -1 : parse(line, colon + 1, end);
+                if (d < 0 || d >= MAX_DEVICES || burst <= 0) {
+                    return "I/O burst " + line.substring(p, end)
+                            + " is not device:positive integer";
+                }
+                add(start + bursts, burst, d);
+            }
+            total += burst;
+            bursts++;
+        }
+        if (bursts % 2 == 0) {
+            return "the last burst is not a CPU burst";
+        }
+
+        if (size == arrival.length) {
+            int capacity = arrival.length * 2;
+            nameId = Arrays.copyOf(nameId, capacity);
+            arrival = Arrays.copyOf(arrival, capacity);
+            first = Arrays.copyOf(first, capacity + 1);
+            if (weight != null) {
+                weight = Arrays.copyOf(weight, capacity);
+            }
+        }
+        if (jobWeight != 1 && weight == null) {
+            // first weighted job, the jobs before have weight 1
+            weight = new int[arrival.length];
+            Arrays.fill(weight, 1);
+        }
+        nameId[size] = intern(line.substring(nameStart, nameEnd));
+        arrival[size] = arrivalTime;
+        if (weight != null) {
+            weight[size] = jobWeight;
+        }
+        for (int b = start + 1; b < start + bursts; b += 2) {
+            devices = Math.max(devices, device[b] + 1);
+            ioTime += length[b];
+        }
+        cpuTime += cpuBursts(start, start + bursts);
+        size++;
+        first[size] = start + bursts;
+        lastArrival = Math.max(lastArrival, arrivalTime);
+        busyTime += total;
+        return null;
+    }
+
+    /**
+     * @param from first burst of a job
+     * @param to end of the bursts of the job
+     * @return sum of the CPU bursts
+     */
+    private long cpuBursts(int from, int to) {
+        long sum = 0;
+        for (int b = from; b < to; b += 2) {
+            sum += length[b];
+        }
+        return sum;
+    }
+
+    /**
+     * Stores the burst, bursts of a malformed line are overwritten by the
+     * next line
+     *
+     * @param index index of the burst
+     * @param burst length of the burst
+     * @param d device of an I/O burst
+     */
+    private void add(int index, int burst, int d) {
+        if (index == length.length) {
+            length = Arrays.copyOf(length, index * 2);
+            device = Arrays.copyOf(device, index * 2);
+        }
+        length[index] = burst;
+        device[index] = d;
+    }
+
+    /**
+     * Puts the jobs into the order of arrival
+     */
+    private void sort() {
+        int[] order = TraceSorter.order(arrival, size);
+        boolean sorted = true;
+        for (int i = 0; i < size && sorted; i++) {
+            sorted = order[i] == i;
+        }
+        if (sorted) {
+            return;
+        }
+        int[] ids = new int[size];
+        int[] times = new int[size];
+        int[] weights = weight == null ? null : new int[size];
+        int[] starts = new int[size + 1];
+        int[] lengths = new int[first[size]];
+        int[] devs = new int[first[size]];
+        for (int i = 0; i < size; i++) {
+            int job = order[i];
+            ids[i] = nameId[job];
+            times[i] = arrival[job];
+            if (weights != null) {
+                weights[i] = weight[job];
+            }
+            int count = first[job + 1] - first[job];
+            System.arraycopy(length, first[job], lengths, starts[i], count);
+            System.arraycopy(device, first[job], devs, starts[i], count);
+            starts[i + 1] = starts[i] + count;
+        }
+        nameId = ids;
+        arrival = times;
+        weight = weights;
+        first = starts;
+        length = lengths;
+        device = devs;
+    }
+
+    /**
+     * @param text line
+     * @param from first character
+     * @param to end of the digits
+     * @return the non-negative int or -1 if the characters are not one
+     */
+    private static int parse(String text, int from, int to) {
+        if (from == to || to - from > 10) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value > Integer.MAX_VALUE ? -1 : (int) value;
+    }
+
+    private static int skipSpaces(String text, int from) {
+        while (from < text.length() && isSpace(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int tokenEnd(String text, int from) {
+        while (from < text.length() && !isSpace(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    /**
+     * Returns the id of the name adding it to the dictionary if needed
+     *
+     * @param name name of the job
+     * @return id of the name
+     */
+    private int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (nameCount == names.length) {
+            names = Arrays.copyOf(names, nameCount * 2);
+        }
+        names[nameCount] = name;
+        ids.put(name, nameCount);
+        return nameCount++;
+    }
+
+    // columns of the jobs
+    int[] nameId;
+    int[] arrival;
+    // null if every job has weight 1
+    int[] weight;
+    // index of the first burst of every job and the end of the last
+    int[] first;
+    // columns of the bursts
+    int[] length;
+    // device of every I/O burst
+    int[] device;
+    private int size;
+    private int devices;
+    private long cpuTime;
+    private long ioTime;
+    private int lastArrival;
+    // sum of all bursts
+    private long busyTime;
+    // dictionary of names
+    private String[] names;
+    private int nameCount;
+    private final HashMap<String, Integer> ids = new HashMap<>();
+}
@@ -0,0 +1,245 @@
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * class BusyPeriods runs one scheduling algorithm in parallel by splitting
+ * the jobs at idle gaps of the CPU.
+ *
+ * All algorithms are work-conserving: the CPU is busy whenever a job is
+ * ready, so the busy periods do not depend on the algorithm. The work
+ * left when job i arrives is E(i-1) - a(i), where
+ *
+ *   E(i) = max(E(i-1), a(i)) + s(i)
+ *
+ * is the end of all work of jobs 0..i. Job i starts a busy period when it
+ * arrives at or after E(i-1), and not together with job i-1: then every
+ * job before it is finished and nothing of them is left in the policy.
+ * E is a prefix scan over the functions x -> max(x + s, a + s), which
+ * compose into functions of the same form, so it is computed by chunks
+ * in parallel.
+ *
+ * Consecutive busy periods are joined into shards of about equal size,
+ * every shard is simulated on its own slice of the table in a fork-join
+ * pool and the timelines of the shards are passed to the sink in order.
+ * Only a few shards are in flight at a time, so the timeline is never
+ * held whole. The result is the timeline of the sequential run.
+ */
+public class BusyPeriods {
+
+    // jobs per chunk of the scan
+    private static final int CHUNK = 1 << 16;
+
+    // shards per thread, more shards balance the threads better
+    private static final int SHARDS_PER_THREAD = 8;
+
+    // fewest jobs of a shard
+    private static final int MIN_SHARD = 1 << 12;
+
+    /**
+     * Sink which keeps the segments of a shard
+     */
+    private static class Buffer implements TimelineSink {
+
+        @Override
+        public void segment(int job, String name, int start, int end) {
+            if (size == this.job.length) {
+                this.job = Arrays.copyOf(this.job, size * 2);
+                this.start = Arrays.copyOf(this.start, size * 2);
+                this.end = Arrays.copyOf(this.end, size * 2);
+            }
+            this.job[size] = job;
+            this.start[size] = start;
+            this.end[size] = end;
+            size++;
+        }
+
+        /**
+         * Passes the segments to the sink
+         *
+         * @param jobs table of all jobs
+         * @param offset index of the first job of the shard in the table
+         * @param sink receiver of the segments
+         */
+        void replay(JobTable jobs, int offset, TimelineSink sink) {
+            for (int i = 0; i < size; i++) {
+                int j = job[i] + offset;
+                sink.segment(j, jobs.getName(j), start[i], end[i]);
+            }
+        }
+
+        private int[] job = new int[64];
+        private int[] start = new int[64];
+        private int[] end = new int[64];
+        private int size;
+    }
+
+    /**
+     * Runs the scheduling algorithm with the busy periods in parallel
+     *
+     * @param algorithm name of scheduling algorithm with parameters
+     * @param jobs jobs sorted by arrival time, the table is frozen
+     * @param threads number of threads
+     * @param sink receiver of the timeline
+     * @return false if the algorithm or its parameters are unknown
+     */
+    public static boolean schedule(String algorithm, JobTable jobs,
+            int threads, TimelineSink sink) {
+        if (!Scheduler.isKnown(algorithm)) {
+            return false;
+        }
+        jobs.freeze();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            int[] shards = shards(starts(jobs, pool), jobs.size(),
+                    pool.getParallelism());
+            // shards in flight, in order
+            ArrayDeque<Future<Buffer>> results = new ArrayDeque<>();
+            int window = 2 * pool.getParallelism();
+            int submitted = 0;
+            for (int k = 0; k + 1 < shards.length; k++) {
+                while (submitted + 1 < shards.length
+                        && results.size() < window) {
+                    int from = shards[submitted];
+                    int to = shards[submitted + 1];
+                    results.add(pool.submit(() -> {
+                        Buffer buffer = new Buffer();
+                        Scheduler.schedule(algorithm, jobs.slice(from, to),
+                                buffer);
+                        return buffer;
+                    }));
+                    submitted++;
+                }
+                results.poll().get().replay(jobs, shards[k], sink);
+            }
+            sink.finish();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return true;
+    }
+
+    /**
+     * Finds the jobs which start busy periods
+     *
+     * @param jobs jobs sorted by arrival time
+     * @param pool pool running the chunks of the scan
+     * @return indices of the jobs in ascending order, the first is 0 if
+     * there are jobs
+     * @throws InterruptedException if the scan is interrupted
+     * @throws ExecutionException if a chunk fails
+     */
+    static int[] starts(JobTable jobs, ForkJoinPool pool)
+            throws InterruptedException, ExecutionException {
+        int n = jobs.size();
+        int[] arrival = jobs.arrival;
+        int[] service = jobs.service;
+        int chunks = (n + CHUNK - 1) / CHUNK;
+
+        // every chunk as the function x -> max(x + sum, end)
+        long[] sum = new long[chunks];
+        long[] end = new long[chunks];
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int c = 0; c < chunks; c++) {
+            int chunk = c;
+            tasks.add(() -> {
+                long s = 0;
+                long e = Long.MIN_VALUE;
+                for (int i = chunk * CHUNK; i < Math.min(n, (chunk + 1)
+                        * CHUNK); i++) {
+                    e = Math.max(e, arrival[i]) + service[i];
+                    s += service[i];
+                }
+                sum[chunk] = s;
+                end[chunk] = e;
+                return null;
+            });
+        }
+        for (Future<Void> f : pool.invokeAll(tasks)) {
+            f.get();
+        }
+
+        // end of all work before every chunk
+        long[] before = new long[chunks];
+        long e = Long.MIN_VALUE;
+        for (int c = 0; c < chunks; c++) {
+            before[c] = e;
+            e = e == Long.MIN_VALUE ? end[c] : Math.max(e + sum[c], end[c]);
+        }
+
+        // starts of busy periods of every chunk
+        int[][] found = new int[chunks][];
+        tasks.clear();
+        for (int c = 0; c < chunks; c++) {
+            int chunk = c;
+            tasks.add(() -> {
+                int[] starts = new int[16];
+                int count = 0;
+                long work = before[chunk];
+                for (int i = chunk * CHUNK; i < Math.min(n, (chunk + 1)
+                        * CHUNK); i++) {
+                    // jobs arriving together stay together
+                    if (arrival[i] >= work
+                            && (i == 0 || arrival[i] != arrival[i - 1])) {
+                        if (count == starts.length) {
+                            starts = Arrays.copyOf(starts, count * 2);
+                        }
+                        starts[count++] = i;
+                    }
+                    work = Math.max(work, arrival[i]) + service[i];
+                }
+                found[chunk] = Arrays.copyOf(starts, count);
+                return null;
+            });
+        }
+        for (Future<Void> f : pool.invokeAll(tasks)) {
+            f.get();
+        }
+        int total = 0;
+        for (int[] f : found) {
+            total += f.length;
+        }
+        int[] starts = new int[total];
+        int k = 0;
+        for (int[] f : found) {
+            System.arraycopy(f, 0, starts, k, f.length);
+            k += f.length;
+        }
+        return starts;
+    }
+
+    /**
+     * Joins busy periods into shards
+     *
+     * @param starts jobs which start busy periods
+     * @param n number of jobs
+     * @param threads number of threads
+     * @return first job of every shard followed by n
+     */
+    static int[] shards(int[] starts, int n, int threads) {
+        int target = Math.max(MIN_SHARD, n / (threads * SHARDS_PER_THREAD));
+        int[] shards = new int[starts.length + 1];
+        int count = 0;
+        for (int start : starts) {
+            if (count == 0 || start - shards[count - 1] >= target) {
+                shards[count++] = start;
+            }
+        }
+        shards[count++] = n;
+        return Arrays.copyOf(shards, count);
+    }
+}
@@ -0,0 +1,207 @@
+import java.util.Arrays;
+
+/**
+ * class DeadlineTree keeps the remaining time of jobs by their deadlines
+ * and decides in O(log n) whether one more job can be taken on without a
+ * missed deadline: the admission test of EDF on one CPU.
+ *
+ * EDF runs the jobs in order of deadline, so from now on the jobs with
+ * deadline d are done by now + W(d), W(d) being the remaining time of all
+ * jobs with a deadline at or before d. No job misses its deadline if the
+ * slack d - now - W(d) of every deadline is not negative. A new job of
+ * length c and deadline d adds c to W of d and of every later deadline,
+ * so it fits if the slack of d and the least slack of the later deadlines
+ * are at least c. EDF is optimal on one CPU: a job which does not fit can
+ * not be finished in time by any policy without another job missing.
+ *
+ * The tree is a treap of the distinct deadlines. Every node keeps the time
+ * of its deadline, the time of its subtree and the least d - W(d) of its
+ * subtree with W counted from the first deadline of the subtree, so both
+ * the time before a deadline and the slack after it come from one descent.
+ */
+public class DeadlineTree {
+
+    public DeadlineTree() {
+        key = new int[16];
+        priority = new int[16];
+        left = new int[16];
+        right = new int[16];
+        count = new int[16];
+        time = new long[16];
+        sum = new long[16];
+        slack = new long[16];
+        // node 0 is the empty subtree, its sum stays 0
+        size = 1;
+    }
+
+    public boolean isEmpty() {
+        return root == 0;
+    }
+
+    /**
+     * Adds jobs or remaining time to the deadline
+     *
+     * @param deadline deadline, not negative
+     * @param remaining time added, negative to take time away
+     * @param jobs number of jobs added, negative to remove jobs; the
+     * deadline leaves the tree with its last job
+     */
+    public void add(int deadline, long remaining, int jobs) {
+        root = add(root, deadline, remaining, jobs);
+    }
+
+    /**
+     * Checks whether a new job lets all jobs meet their deadlines
+     *
+     * @param now current time
+     * @param deadline deadline of the new job
+     * @param length remaining time of the new job
+     * @return true if EDF finishes the new job and the jobs of the tree by
+     * their deadlines when it runs them from now on
+     */
+    public boolean fits(int now, int deadline, int length) {
+        // time of the deadlines up to the new one and the least d - W(d)
+        // of the later ones
+        long before = 0;
+        long least = Long.MAX_VALUE;
+        int node = root;
+        while (node != 0) {
+            if (deadline < key[node]) {
+                long through = before + sum[left[node]] + time[node];
+                least = Math.min(least, key[node] - through);
+                if (right[node] != 0) {
+                    least = Math.min(least, slack[right[node]] - through);
+                }
+                node = left[node];
+            } else {
+                before += sum[left[node]] + time[node];
+                node = right[node];
+            }
+        }
+        return (long) deadline - now - before >= length
+                && (least == Long.MAX_VALUE || least - now >= length);
+    }
+
+    private int add(int node, int deadline, long remaining, int jobs) {
+        if (node == 0) {
+            return create(deadline, remaining, jobs);
+        }
+        if (deadline < key[node]) {
+            int child = add(left[node], deadline, remaining, jobs);
+            left[node] = child;
+            if (child != 0 && priority[child] > priority[node]) {
+                // rotate right
+                left[node] = right[child];
+                right[child] = node;
+                update(node);
+                node = child;
+            }
+        } else if (deadline > key[node]) {
+            int child = add(right[node], deadline, remaining, jobs);
+            right[node] = child;
+            if (child != 0 && priority[child] > priority[node]) {
+                // rotate left
+                right[node] = left[child];
+                left[child] = node;
+                update(node);
+                node = child;
+            }
+        } else {
+            time[node] += remaining;
+            count[node] += jobs;
+            if (count[node] <= 0) {
+                int joined = join(left[node], right[node]);
+                release(node);
+                return joined;
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    /**
+     * @param a subtree of the earlier deadlines
+     * @param b subtree of the later deadlines
+     * @return root of both subtrees
+     */
+    private int join(int a, int b) {
+        if (a == 0 || b == 0) {
+            return a == 0 ? b : a;
+        }
+        if (priority[a] > priority[b]) {
+            right[a] = join(right[a], b);
+            update(a);
+            return a;
+        }
+        left[b] = join(a, left[b]);
+        update(b);
+        return b;
+    }
+
+    private void update(int node) {
+        long through = sum[left[node]] + time[node];
+        long least = key[node] - through;
+        if (left[node] != 0) {
+            least = Math.min(least, slack[left[node]]);
+        }
+        if (right[node] != 0) {
+            least = Math.min(least, slack[right[node]] - through);
+        }
+        sum[node] = through + sum[right[node]];
+        slack[node] = least;
+    }
+
+    private int create(int deadline, long remaining, int jobs) {
+        int node = free;
+        if (node != 0) {
+            free = left[node];
+        } else {
+            if (size == key.length) {
+                int capacity = size * 2;
+                key = Arrays.copyOf(key, capacity);
+                priority = Arrays.copyOf(priority, capacity);
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                count = Arrays.copyOf(count, capacity);
+                time = Arrays.copyOf(time, capacity);
+                sum = Arrays.copyOf(sum, capacity);
+                slack = Arrays.copyOf(slack, capacity);
+            }
+            node = size++;
+        }
+        // xorshift keeps the priorities random and the runs reproducible
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        key[node] = deadline;
+        priority[node] = seed;
+        left[node] = 0;
+        right[node] = 0;
+        count[node] = jobs;
+        time[node] = remaining;
+        update(node);
+        return node;
+    }
+
+    private void release(int node) {
+        left[node] = free;
+        free = node;
+    }
+
+    // nodes: deadline, heap priority, children, jobs and remaining time of
+    // the deadline, remaining time of the subtree and least d - W(d) of
+    // the subtree
+    private int[] key;
+    private int[] priority;
+    private int[] left;
+    private int[] right;
+    private int[] count;
+    private long[] time;
+    private long[] sum;
+    private long[] slack;
+    private int size;
+    private int root;
+    // released nodes linked by left
+    private int free;
+    private int seed = 0x2545F491;
+}
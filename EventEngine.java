@@ -0,0 +1,481 @@
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * class EventEngine is the discrete-event simulation core shared by all
+ * scheduling algorithms. Time jumps from event to event (arrival, quantum
+ * expiry, completion) instead of advancing one quantum at a time, so the
+ * cost of a run grows with the number of context switches and not with
+ * the total service time.
+ *
+ * The scheduling decisions themselves are delegated to a Policy.
+ */
+public class EventEngine {
+
+    /**
+     * Interface Policy is implemented by every scheduling algorithm that
+     * runs on the EventEngine. Jobs are identified by their index in the
+     * input.
+     */
+    interface Policy {
+
+        /**
+         * Job became ready
+         *
+         * @param job index of the job
+         * @param time current time
+         */
+        void arrive(int job, int time);
+
+        /**
+         * Removes the next job to run from the ready structure
+         *
+         * @param time current time
+         * @return index of the job or -1 if there are no ready jobs
+         */
+        int select(int time);
+
+        /**
+         * Length of the time slice granted to the job on dispatch
+         *
+         * @param job index of the job
+         * @return quantum or Integer.MAX_VALUE to run till completion
+         */
+        int quantum(int job);
+
+        /**
+         * Quantum of the running job expired before it was finished
+         *
+         * @param job index of the job
+         * @param time current time
+         */
+        void expire(int job, int time);
+
+        /**
+         * Called at every arrival instant while a job is running
+         *
+         * @param running index of the running job
+         * @param time current time
+         * @return index of the job which takes the CPU (already removed from
+         * the ready structure) or -1 to keep the running job
+         */
+        int preempt(int running, int time);
+
+        /**
+         * Checks whether expiring the job and selecting it again, while it
+         * is the only ready job, leaves the policy unchanged
+         *
+         * @param job index of the job
+         * @return true if all further slices of the job are alike
+         */
+        boolean steady(int job);
+
+        /**
+         * @return number of ready jobs (running job excluded)
+         */
+        int size();
+
+        /**
+         * Jobs were added to the table of a running engine, the columns of
+         * the engine may have been reallocated
+         */
+        default void grow() {
+        }
+
+        /**
+         * Creates an empty policy with the same parameters on the same
+         * engine, for another CPU
+         *
+         * @return policy
+         */
+        Policy sibling();
+    }
+
+    /**
+     * class EventQueue is a binary heap of events ordered by time. At
+     * equal times quantum expiries and completions come before arrivals.
+     */
+    static class EventQueue {
+
+        public EventQueue(int capacity) {
+            time = new int[capacity];
+            kind = new int[capacity];
+            tag = new int[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int time() {
+            return time[0];
+        }
+
+        int kind() {
+            return kind[0];
+        }
+
+        int tag() {
+            return tag[0];
+        }
+
+        /**
+         * Adds the event
+         *
+         * @param t time of the event
+         * @param k kind of the event
+         * @param g job index or dispatch number
+         */
+        void push(int t, int k, int g) {
+            if (size == time.length) {
+                time = Arrays.copyOf(time, size * 2);
+                kind = Arrays.copyOf(kind, size * 2);
+                tag = Arrays.copyOf(tag, size * 2);
+            }
+            // sift up
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(t, k, time[parent], kind[parent])) {
+                    break;
+                }
+                set(i, time[parent], kind[parent], tag[parent]);
+                i = parent;
+            }
+            set(i, t, k, g);
+        }
+
+        /**
+         * Removes the earliest event
+         */
+        void pop() {
+            size--;
+            int t = time[size];
+            int k = kind[size];
+            int g = tag[size];
+            // sift down
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && less(time[child + 1], kind[child + 1],
+                        time[child], kind[child])) {
+                    child++;
+                }
+                if (!less(time[child], kind[child], t, k)) {
+                    break;
+                }
+                set(i, time[child], kind[child], tag[child]);
+                i = child;
+            }
+            set(i, t, k, g);
+        }
+
+        private static boolean less(int t1, int k1, int t2, int k2) {
+            return t1 < t2 || (t1 == t2 && k1 < k2);
+        }
+
+        private void set(int i, int t, int k, int g) {
+            time[i] = t;
+            kind[i] = k;
+            tag[i] = g;
+        }
+
+        private int[] time;
+        private int[] kind;
+        private int[] tag;
+        private int size;
+    }
+
+    // kinds of events in the order they are handled at equal times
+    static final int EXPIRY = 0;
+    static final int COMPLETION = 1;
+    static final int ARRIVAL = 2;
+
+    /**
+     * @param jobs jobs sorted by arrival time
+     */
+    public EventEngine(JobTable jobs) {
+        this.jobs = jobs;
+        refresh();
+        rank = jobs.nameRank();
+    }
+
+    /**
+     * Creates the engine of a table which grows while the engine runs.
+     * Names are compared directly, their ranks would change with every
+     * new job.
+     *
+     * @param jobs jobs sorted by arrival time
+     * @return engine
+     */
+    static EventEngine online(JobTable jobs) {
+        EventEngine engine = new EventEngine(jobs);
+        engine.rank = null;
+        engine.decisions = new IntQueue();
+        return engine;
+    }
+
+    /**
+     * Runs the simulation
+     *
+     * @param policy scheduling policy
+     * @return ArrayList with finished jobs
+     */
+    public ArrayList<Scheduler.JobDone> run(Policy policy) {
+        TimelineSink.ListSink sink = new TimelineSink.ListSink();
+        run(policy, sink);
+        return sink.getJobDone();
+    }
+
+    /**
+     * Runs the simulation passing executed parts of jobs to the sink as
+     * they are produced. Adjacent parts of the same job are merged.
+     *
+     * @param policy scheduling policy
+     * @param sink receiver of the timeline
+     */
+    public void run(Policy policy, TimelineSink sink) {
+        begin(policy, sink);
+        advanceTo(Integer.MAX_VALUE);
+        out.finish();
+        out = null;
+    }
+
+    /**
+     * Prepares the simulation, jobs of the table arrive as the simulation
+     * is advanced
+     *
+     * @param policy scheduling policy
+     * @param sink receiver of the timeline
+     */
+    void begin(Policy policy, TimelineSink sink) {
+        jobs.reset();
+        this.policy = policy;
+        out = new TimelineSink.MergingSink(sink);
+        events = new EventQueue(4);
+        // only the next arrival is kept in the queue
+        next = 0;
+        arrivalQueued = false;
+        horizon = Integer.MIN_VALUE;
+        running = -1;
+        decided = -1;
+        dispatch = 0;
+        queueArrival();
+    }
+
+    /**
+     * Jobs were added to the table, they arrive after the horizon
+     */
+    void submitted() {
+        refresh();
+        policy.grow();
+        queueArrival();
+    }
+
+    /**
+     * Simulates all events till the time. All jobs arriving till the time
+     * have to be in the table, no job may be added arriving before it.
+     *
+     * @param time new horizon
+     */
+    void advanceTo(int time) {
+        horizon = time;
+        while (!events.isEmpty() && events.time() <= time) {
+            int t = events.time();
+            int kind = events.kind();
+            int tag = events.tag();
+            events.pop();
+            if (kind == ARRIVAL) {
+                arrivalQueued = false;
+                // deliver all jobs arrived till now
+                while (next < n && arrival[next] <= t) {
+                    policy.arrive(next, t);
+                    next++;
+                }
+                queueArrival();
+                if (running != -1) {
+                    // charge the running job and ask for preemption
+                    remaining[running] -= t - charged;
+                    charged = t;
+                    int j = policy.preempt(running, t);
+                    if (j != -1) {
+                        out.segment(running, jobs.getName(running), startTime, t);
+                        dispatch++;
+                        int end = start(policy, j, t);
+                        events.push(end, runKind, dispatch);
+                    }
+                }
+            } else if (tag == dispatch) {
+                // quantum expiry or completion of the running job
+                remaining[running] -= t - charged;
+                out.segment(running, jobs.getName(running), startTime, t);
+                if (kind == EXPIRY) {
+                    policy.expire(running, t);
+                }
+                running = -1;
+            }
+            // dispatch when all events at the current time are handled
+            if (running == -1 && (events.isEmpty() || events.time() > t)) {
+                int j = policy.select(t);
+                if (j != -1) {
+                    dispatch++;
+                    int end = start(policy, j, t);
+                    events.push(end, runKind, dispatch);
+                } else {
+                    decide(-1, t);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest decision not read yet
+     *
+     * @return job which took the CPU, -1 if the CPU became idle, -2 if
+     * there is no decision; its time is left in decisionTime
+     */
+    int nextDecision() {
+        if (decisions.isEmpty()) {
+            return -2;
+        }
+        decisionTime = decisions.poll();
+        return decisions.poll();
+    }
+
+    /**
+     * Records the job which takes the CPU, when the engine is online
+     *
+     * @param job index of the job or -1 if the CPU becomes idle
+     * @param t current time
+     */
+    private void decide(int job, int t) {
+        if (decisions != null && job != decided) {
+            decisions.add(t);
+            decisions.add(job);
+            decided = job;
+        }
+    }
+
+    /**
+     * Puts the arrival of the next job into the queue if it is known
+     */
+    private void queueArrival() {
+        if (!arrivalQueued && next < n) {
+            events.push(arrival[next], ARRIVAL, next);
+            arrivalQueued = true;
+        }
+    }
+
+    /**
+     * Reads the columns of the table again, it may have grown
+     */
+    private void refresh() {
+        n = jobs.size();
+        arrival = jobs.arrival;
+        service = jobs.service;
+        weight = jobs.weight;
+        deadline = jobs.deadline;
+        remaining = jobs.remaining;
+        priority = jobs.priority;
+    }
+
+    /**
+     * Compares names of jobs
+     *
+     * @param a index of the first job
+     * @param b index of the second job
+     * @return result of comparison
+     */
+    int compareNames(int a, int b) {
+        if (rank != null) {
+            return Integer.compare(rank[a], rank[b]);
+        }
+        return jobs.getName(a).compareTo(jobs.getName(b));
+    }
+
+    /**
+     * Starts the job and finds when it leaves the CPU. Consecutive slices
+     * of a job which stays alone in the ready structure are joined into
+     * one run ending at the first slice boundary after the next arrival.
+     *
+     * @param policy scheduling policy
+     * @param job index of the job
+     * @param t current time
+     * @return time of the expiry or completion event, its kind is left in
+     * runKind
+     */
+    private int start(Policy policy, int job, int t) {
+        decide(job, t);
+        running = job;
+        startTime = t;
+        charged = t;
+        // the next arrival or, if it is not known yet, right after the
+        // horizon
+        int limit = next < n ? arrival[next] : horizon == Integer.MAX_VALUE
+                ? Integer.MAX_VALUE : horizon + 1;
+        int end = t;
+        while (true) {
+            int q = policy.quantum(job);
+            int left = remaining[job] - (end - t);
+            if (left <= q) {
+                // job is finished in this slice
+                runKind = COMPLETION;
+                return end + left;
+            }
+            if (policy.size() == 0 && policy.steady(job)) {
+                // all further slices are alike, jump over them
+                long toArrival = ((long) limit - end + q - 1) / q;
+                long toFinish = ((long) left + q - 1) / q;
+                if (toFinish <= toArrival) {
+                    runKind = COMPLETION;
+                    return end + left;
+                }
+                runKind = EXPIRY;
+                return (int) (end + toArrival * q);
+            }
+            end += q;
+            if (end >= limit || policy.size() != 0) {
+                runKind = EXPIRY;
+                return end;
+            }
+            // job is alone, it gets the next slice too
+            policy.expire(job, end);
+            policy.select(end);
+        }
+    }
+
+    final JobTable jobs;
+    // columns of the table, read again when it grows
+    int n;
+    int[] arrival;
+    int[] service;
+    // null if every job has weight 1
+    int[] weight;
+    // null if no job has a deadline
+    int[] deadline;
+    int[] remaining;
+    int[] priority;
+    // ranks of names or null to compare the names
+    private int[] rank;
+
+    private Policy policy;
+    private TimelineSink out;
+    private EventQueue events;
+    private int next;
+    private boolean arrivalQueued;
+    // all jobs arriving till the horizon are known
+    private int horizon;
+    private int dispatch;
+    // online only: pairs of time and job taking the CPU
+    private IntQueue decisions;
+    private int decided;
+    int decisionTime;
+    private int running;
+    private int startTime;
+    private int charged;
+    private int runKind;
+}
@@ -0,0 +1,255 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * class ExecutorBenchmark compares PolicyExecutor with ThreadPoolExecutor
+ * (TPE, a FIFO queue) on a mix of short and long tasks which spin for a
+ * fixed time. Several threads submit all tasks of a round at once, every
+ * task is given its spin time as its cost. For every executor it reports
+ * the submission rate, the time till all tasks are done and the p50/p99
+ * latency (submission till end) of short and of long tasks, over all
+ * rounds but the first, which warms up. The same mix runs under JMH in
+ * src/jmh/java/bench/PolicyExecutorBenchmark.
+ *
+ * Usage: java ExecutorBenchmark [-e TPE,FCFS,SPN,HRRN,FB] [-t threads]
+ *        [-s submitting threads] [-n tasks per round] [-l percent of long
+ *        tasks] [-u short,long microseconds] [-r rounds] [-csv]
+ */
+public class ExecutorBenchmark {
+
+    // keeps the work of the tasks alive
+    static volatile long blackhole;
+
+    /**
+     * Result of the measured rounds of an executor
+     */
+    private static class Result {
+        double submitSeconds;
+        double seconds;
+        long tasks;
+        long[] shortLatency;
+        long[] longLatency;
+    }
+
+    /**
+     * Main function
+     * @param args options, see usage
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String[] executors = {"TPE", "FCFS", "SPN", "HRRN", "FB"};
+        int threads = Runtime.getRuntime().availableProcessors();
+        int submitters = 4;
+        int tasks = 20000;
+        int longPercent = 5;
+        long shortMicros = 10;
+        long longMicros = 1000;
+        int rounds = 4;
+        boolean csv = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-e") && i + 1 < args.length) {
+                    executors = args[++i].split(",");
+                } else if (args[i].equals("-t") && i + 1 < args.length) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-s") && i + 1 < args.length) {
+                    submitters = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-n") && i + 1 < args.length) {
+                    tasks = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-l") && i + 1 < args.length) {
+                    longPercent = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-u") && i + 1 < args.length) {
+                    String[] values = args[++i].split(",");
+                    shortMicros = Long.parseLong(values[0]);
+                    longMicros = Long.parseLong(values[values.length - 1]);
+                } else if (args[i].equals("-r") && i + 1 < args.length) {
+                    rounds = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-csv")) {
+                    csv = true;
+                } else {
+                    throw new IllegalArgumentException();
+                }
+            }
+            if (threads <= 0 || submitters <= 0 || tasks <= 0
+                    || longPercent < 0 || longPercent > 100 || rounds < 2
+                    || shortMicros <= 0 || longMicros <= 0) {
+                throw new IllegalArgumentException();
+            }
+        } catch (IllegalArgumentException ex) {
+            System.out.println("Usage: ExecutorBenchmark "
+                    + "[-e TPE,FCFS,SPN,HRRN,FB] [-t threads] "
+                    + "[-s submitting threads] [-n tasks per round] "
+                    + "[-l percent of long tasks] [-u short,long "
+                    + "microseconds] [-r rounds] [-csv]");
+            return;
+        }
+        for (String executor : executors) {
+            if (!executor.equals("TPE") && !PolicyExecutor.isKnown(executor)) {
+                System.out.println("Unknown executor " + executor);
+                return;
+            }
+        }
+
+        // the same mix for every executor
+        long[] spin = new long[tasks];
+        Random random = new Random(1);
+        for (int i = 0; i < tasks; i++) {
+            spin[i] = (random.nextInt(100) < longPercent ? longMicros
+                    : shortMicros) * 1000;
+        }
+        if (csv) {
+            System.out.println("executor,threads,submitters,tasks,"
+                    + "submit/s,tasks/s,short p50 ms,short p99 ms,"
+                    + "long p50 ms,long p99 ms");
+        } else {
+            System.out.printf("%-8s %9s %12s %10s %12s %12s %12s %12s%n",
+                    "executor", "tasks", "submit/s", "tasks/s",
+                    "short p50 ms", "short p99 ms", "long p50 ms",
+                    "long p99 ms");
+        }
+        for (String executor : executors) {
+            Result r = measure(executor, threads, submitters, spin, rounds,
+                    shortMicros * 1000);
+            print(executor, threads, submitters, r, csv);
+        }
+    }
+
+    /**
+     * Runs the rounds on a new executor
+     *
+     * @param executor TPE or policy of PolicyExecutor
+     * @param threads number of worker threads
+     * @param submitters number of submitting threads
+     * @param spin spin time of every task in nanoseconds
+     * @param rounds number of rounds, the first warms up
+     * @param shortSpin spin time of a short task
+     * @return result of the rounds after the first
+     */
+    private static Result measure(String executor, int threads,
+            int submitters, long[] spin, int rounds, long shortSpin)
+            throws InterruptedException {
+        int n = spin.length;
+        ExecutorService pool = executor.equals("TPE")
+                ? new ThreadPoolExecutor(threads, threads, 0,
+                        TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>())
+                : new PolicyExecutor(executor, threads);
+        Result r = new Result();
+        long[] latency = new long[n * (rounds - 1)];
+        long[] shortLatency = new long[latency.length];
+        long[] longLatency = new long[latency.length];
+        int shortCount = 0;
+        int longCount = 0;
+        for (int round = 0; round < rounds; round++) {
+            long[] end = new long[n];
+            long[] submitted = new long[n];
+            CountDownLatch done = new CountDownLatch(n);
+            CountDownLatch go = new CountDownLatch(1);
+            Thread[] threadsOfRound = new Thread[submitters];
+            for (int s = 0; s < submitters; s++) {
+                int first = s;
+                threadsOfRound[s] = new Thread(() -> {
+                    try {
+                        go.await();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                    for (int i = first; i < n; i += submitters) {
+                        int task = i;
+                        Runnable command = () -> {
+                            work(spin[task]);
+                            end[task] = System.nanoTime();
+                            done.countDown();
+                        };
+                        submitted[i] = System.nanoTime();
+                        if (pool instanceof PolicyExecutor) {
+                            ((PolicyExecutor) pool).execute(command,
+                                    spin[i]);
+                        } else {
+                            pool.execute(command);
+                        }
+                    }
+                });
+                threadsOfRound[s].start();
+            }
+            long start = System.nanoTime();
+            go.countDown();
+            for (Thread thread : threadsOfRound) {
+                thread.join();
+            }
+            long submittedAll = System.nanoTime();
+            done.await();
+            long finished = System.nanoTime();
+            if (round == 0) {
+                continue;
+            }
+            r.submitSeconds += (submittedAll - start) / 1e9;
+            r.seconds += (finished - start) / 1e9;
+            r.tasks += n;
+            for (int i = 0; i < n; i++) {
+                if (spin[i] == shortSpin) {
+                    shortLatency[shortCount++] = end[i] - submitted[i];
+                } else {
+                    longLatency[longCount++] = end[i] - submitted[i];
+                }
+            }
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        r.shortLatency = Arrays.copyOf(shortLatency, shortCount);
+        r.longLatency = Arrays.copyOf(longLatency, longCount);
+        Arrays.sort(r.shortLatency);
+        Arrays.sort(r.longLatency);
+        return r;
+    }
+
+    /**
+     * Spins for the time
+     *
+     * @param nanos time in nanoseconds
+     */
+    private static void work(long nanos) {
+        long end = System.nanoTime() + nanos;
+        long x = 0;
+        while (System.nanoTime() < end) {
+            x++;
+        }
+        blackhole += x;
+    }
+
+    private static void print(String executor, int threads, int submitters,
+            Result r, boolean csv) {
+        double submitRate = r.tasks / r.submitSeconds;
+        double rate = r.tasks / r.seconds;
+        double shortP50 = percentile(r.shortLatency, 50) / 1e6;
+        double shortP99 = percentile(r.shortLatency, 99) / 1e6;
+        double longP50 = percentile(r.longLatency, 50) / 1e6;
+        double longP99 = percentile(r.longLatency, 99) / 1e6;
+        if (csv) {
+            System.out.printf("%s,%d,%d,%d,%.0f,%.0f,%.3f,%.3f,%.3f,%.3f%n",
+                    executor, threads, submitters, r.tasks, submitRate, rate,
+                    shortP50, shortP99, longP50, longP99);
+        } else {
+            System.out.printf("%-8s %9d %12.0f %10.0f %12.3f %12.3f %12.3f "
+                    + "%12.3f%n", executor, r.tasks, submitRate, rate,
+                    shortP50, shortP99, longP50, longP99);
+        }
+    }
+
+    /**
+     * @param sorted sorted values
+     * @param percent percentage from 0 to 100
+     * @return value below or at which the percentage of values is, 0 if
+     * there are none
+     */
+    private static long percentile(long[] sorted, double percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.max(0, Math.ceil(percent / 100
+                * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,481 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.PrimitiveIterator;
+import java.util.SplittableRandom;
+
+/**
+ * class Generator writes synthetic, reproducible traces of any size in the
+ * format of jobs.txt or as a BinaryTrace. The jobs are generated while
+ * they are written, nothing but the output buffer is held in memory.
+ *
+ * Every column comes from its own random generator derived from the
+ * seed, so a column can be generated again on its own: the binary trace
+ * is sized in one pass and written in another, and changing the service
+ * distribution keeps the arrival times.
+ *
+ * Options:
+ *   -n number of jobs, default 1000
+ *   -a arrival process: poisson, mmpp (Markov-modulated Poisson, bursts
+ *      at 20 times the quiet rate, 20% of the time, about 100 jobs each)
+ *      or zero (every job at time 0), default poisson
+ *   -s service distribution: exponential, bimodal (90% short and 10%
+ *      jobs about 20 times longer) or pareto (shape 1.5), default exponential
+ *   -m mean service time, default 10
+ *   -l load, mean service time divided by mean interarrival time,
+ *      default 0.9
+ *   -k number of distinct names, job i gets name i mod k, default 4096
+ *   -w maximum weight, weights are uniform in 1..w, without -w every job
+ *      has weight 1 and no weight column is written
+ *   -d deadline factor, every job gets the deadline arrival + service
+ *      times a factor uniform in 1..d, without -d no job has a deadline
+ *   -r seed, default 1
+ *   -o text or binary, default text
+ * and the output file, the text goes to the standard output without it.
+ */
+public class Generator {
+
+    // arrival processes
+    public static final String[] ARRIVALS = {"poisson", "mmpp", "zero"};
+
+    // service distributions
+    public static final String[] SERVICES = {
+        "exponential", "bimodal", "pareto"
+    };
+
+    // longest service time, heavy tails are cut here
+    private static final int MAX_SERVICE = 1000000;
+
+    // MMPP: rate of bursts divided by the quiet rate, share of time in
+    // bursts and mean number of jobs of a burst
+    private static final double BURST_RATE = 20;
+    private static final double BURST_SHARE = 0.2;
+    private static final double BURST_JOBS = 100;
+
+    // bimodal: share of short jobs and length of long jobs divided by
+    // the length of short jobs
+    private static final double SHORT_SHARE = 0.9;
+    private static final int LONG_FACTOR = 20;
+
+    // shape of the Pareto distribution
+    private static final double ALPHA = 1.5;
+
+    // letters of the names
+    private static final byte[] CONSONANTS = "bdfgklmnprstvz"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] VOWELS = "aeiou"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    // bytes written at a time
+    private static final int BUFFER = 1 << 16;
+
+    /**
+     * Runs the command
+     *
+     * @param args options and the optional output file
+     * @return false if the options are malformed
+     * @throws IOException if the file can not be written
+     * @throws IllegalArgumentException if the arrival times or deadlines
+     * do not fit into int, a partially written file is deleted
+     */
+    public static boolean run(String[] args) throws IOException {
+        Generator generator = new Generator();
+        boolean binary = false;
+        String file = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (!args[i].startsWith("-")) {
+                    if (file != null) {
+                        return false;
+                    }
+                    file = args[i];
+                    continue;
+                }
+                if (i + 1 == args.length) {
+                    return false;
+                }
+                String value = args[++i];
+                if (args[i - 1].equals("-n")) {
+                    generator.jobs = Integer.parseInt(value);
+                } else if (args[i - 1].equals("-a")) {
+                    generator.arrivals = value;
+                } else if (args[i - 1].equals("-s")) {
+                    generator.services = value;
+                } else if (args[i - 1].equals("-m")) {
+                    generator.meanService = Integer.parseInt(value);
+                } else if (args[i - 1].equals("-l")) {
+                    generator.load = Double.parseDouble(value);
+                } else if (args[i - 1].equals("-k")) {
+                    generator.names = Integer.parseInt(value);
+                } else if (args[i - 1].equals("-w")) {
+                    generator.maxWeight = Integer.parseInt(value);
+                } else if (args[i - 1].equals("-d")) {
+                    generator.deadlineFactor = Integer.parseInt(value);
+                } else if (args[i - 1].equals("-r")) {
+                    generator.seed = Long.parseLong(value);
+                } else if (args[i - 1].equals("-o")
+                        && (value.equals("text") || value.equals("binary"))) {
+                    binary = value.equals("binary");
+                } else {
+                    return false;
+                }
+            }
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+        if (!generator.isValid() || binary && file == null) {
+            return false;
+        }
+
+        if (file == null) {
+            generator.writeText(System.out);
+            System.out.flush();
+            return true;
+        }
+        Path path = Paths.get(file);
+        try {
+            if (binary) {
+                generator.writeBinary(path);
+            } else {
+                try (OutputStream out = Files.newOutputStream(path)) {
+                    generator.writeText(out);
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            Files.deleteIfExists(path);
+            throw ex;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the parameters are in range
+     */
+    boolean isValid() {
+        return jobs >= 0 && meanService > 0 && meanService <= MAX_SERVICE
+                && load > 0
+                && !Double.isInfinite(load) && names > 0 && maxWeight >= 0
+                && deadlineFactor >= 0
+                && indexOf(ARRIVALS, arrivals) >= 0
+                && indexOf(SERVICES, services) >= 0;
+    }
+
+    /**
+     * Writes the trace in the format of jobs.txt
+     *
+     * @param stream output, it is not closed
+     * @throws IOException if the output can not be written
+     */
+    void writeText(OutputStream stream) throws IOException {
+        OutputStream out = new BufferedOutputStream(stream, BUFFER);
+        out.write(("Process  Arrival time  Service (Burst) Time"
+                + (maxWeight > 0 ? "  Weight" : "")
+                + (deadlineFactor > 0 ? "  Deadline" : "") + "\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        PrimitiveIterator.OfInt arrival = arrival();
+        PrimitiveIterator.OfInt service = service();
+        PrimitiveIterator.OfInt weight = maxWeight > 0 ? weight() : null;
+        PrimitiveIterator.OfInt deadline = deadlineFactor > 0 ? deadline()
+                : null;
+        byte[] line = new byte[256];
+        for (int i = 0; i < jobs; i++) {
+            int length = name(i % names, line, 0);
+            line[length++] = '\t';
+            length = digits(arrival.nextInt(), line, length);
+            line[length++] = '\t';
+            length = digits(service.nextInt(), line, length);
+            if (weight != null) {
+                line[length++] = '\t';
+                length = digits(weight.nextInt(), line, length);
+            }
+            if (deadline != null) {
+                line[length++] = '\t';
+                line[length++] = '@';
+                length = digits(deadline.nextInt(), line, length);
+            }
+            line[length++] = '\n';
+            out.write(line, 0, length);
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the trace as a BinaryTrace, the columns are generated twice
+     *
+     * @param file file
+     * @throws IOException if the file can not be written
+     */
+    void writeBinary(Path file) throws IOException {
+        byte[] bytes = new byte[64];
+        int count = Math.min(jobs, names);
+        BinaryTrace.write(file, jobs, count,
+                id -> new String(bytes, 0, name(id, bytes, 0),
+                        StandardCharsets.US_ASCII),
+                () -> new Values() {
+                    @Override
+                    int value() {
+                        return index++ % count;
+                    }
+
+                    private int index;
+                },
+                this::arrival, this::service,
+                maxWeight > 0 ? this::weight : null,
+                deadlineFactor > 0 ? this::deadline : null);
+    }
+
+    /**
+     * @return arrival times of the jobs
+     */
+    PrimitiveIterator.OfInt arrival() {
+        SplittableRandom random = random(1);
+        double meanArrival = meanService / load;
+        if (arrivals.equals("zero")) {
+            return new Values() {
+                @Override
+                int value() {
+                    return 0;
+                }
+            };
+        } else if (arrivals.equals("poisson")) {
+            return new Values() {
+                @Override
+                int value() {
+                    int next = time(time);
+                    time += exponential(random, meanArrival);
+                    return next;
+                }
+
+                private double time;
+            };
+        }
+        // rates of the quiet and the bursty state which give the load
+        double quiet = 1 / meanArrival
+                / (BURST_SHARE * BURST_RATE + 1 - BURST_SHARE);
+        double burstTime = BURST_JOBS / (quiet * BURST_RATE);
+        double quietTime = burstTime * (1 - BURST_SHARE) / BURST_SHARE;
+        return new Values() {
+            @Override
+            int value() {
+                int next = time(time);
+                while (true) {
+                    double gap = exponential(random,
+                            1 / (bursty ? quiet * BURST_RATE : quiet));
+                    if (time + gap < change) {
+                        time += gap;
+                        return next;
+                    }
+                    // exponential gaps have no memory, draw again after
+                    // the change of the state
+                    time = change;
+                    bursty = !bursty;
+                    change += exponential(random,
+                            bursty ? burstTime : quietTime);
+                }
+            }
+
+            private double time;
+            private boolean bursty = random.nextDouble() < BURST_SHARE;
+            private double change = exponential(random,
+                    bursty ? burstTime : quietTime);
+        };
+    }
+
+    /**
+     * @return service times of the jobs
+     */
+    PrimitiveIterator.OfInt service() {
+        SplittableRandom random = random(2);
+        if (services.equals("exponential")) {
+            // rounded up the times are geometric, the mean of the
+            // exponential distribution is chosen so they keep the mean
+            double mean = -1 / Math.log(1 - 1.0 / meanService);
+            return new Values() {
+                @Override
+                int value() {
+                    return clamp(Math.ceil(exponential(random, mean)));
+                }
+            };
+        } else if (services.equals("bimodal")) {
+            // uniform around the short and the long mode, the long mode
+            // makes up for rounding the short one
+            int shortMode = Math.max(1, (int) Math.round(meanService
+                    / (SHORT_SHARE + (1 - SHORT_SHARE) * LONG_FACTOR)));
+            int longMode = Math.max(shortMode, (int) Math.round(
+                    (meanService - SHORT_SHARE * shortMode)
+                    / (1 - SHORT_SHARE)));
+            return new Values() {
+                @Override
+                int value() {
+                    int mode = random.nextDouble() < SHORT_SHARE
+                            ? shortMode : longMode;
+                    return 1 + random.nextInt(2 * mode - 1);
+                }
+            };
+        }
+        // scale which gives the mean service time
+        double scale = meanService * (ALPHA - 1) / ALPHA;
+        return new Values() {
+            @Override
+            int value() {
+                return clamp(Math.rint(scale / Math.pow(
+                        1 - random.nextDouble(), 1 / ALPHA)));
+            }
+        };
+    }
+
+    /**
+     * @return weights of the jobs
+     */
+    PrimitiveIterator.OfInt weight() {
+        SplittableRandom random = random(3);
+        return new Values() {
+            @Override
+            int value() {
+                return 1 + random.nextInt(maxWeight);
+            }
+        };
+    }
+
+    /**
+     * @return deadlines of the jobs, generated with their own arrival and
+     * service times
+     */
+    PrimitiveIterator.OfInt deadline() {
+        SplittableRandom random = random(4);
+        PrimitiveIterator.OfInt arrival = arrival();
+        PrimitiveIterator.OfInt service = service();
+        return new Values() {
+            @Override
+            int value() {
+                long deadline = arrival.nextInt() + (long) service.nextInt()
+                        * (1 + random.nextInt(deadlineFactor));
+                if (deadline >= JobTable.NO_DEADLINE) {
+                    throw new IllegalArgumentException("Deadlines exceed "
+                            + (JobTable.NO_DEADLINE - 1)
+                            + ", use fewer jobs, more load or a smaller -d");
+                }
+                return (int) deadline;
+            }
+        };
+    }
+
+    /**
+     * Writes the name of the id: syllables chosen by the seed and the id,
+     * a '-' and the id in base 36, so names are distinct
+     *
+     * @param id name id
+     * @param bytes buffer
+     * @param position position of the name in the buffer
+     * @return end of the name in the buffer
+     */
+    int name(int id, byte[] bytes, int position) {
+        long hash = new SplittableRandom(seed ^ id * 0x9E3779B97F4A7C15L)
+                .nextLong();
+        int syllables = 1 + (int) ((hash >>> 60) & 3);
+        for (int i = 0; i < syllables; i++) {
+            bytes[position++] = CONSONANTS[(int) ((hash & 0xFF)
+                    % CONSONANTS.length)];
+            bytes[position++] = VOWELS[(int) (((hash >>> 8) & 0xFF)
+                    % VOWELS.length)];
+            hash >>>= 16;
+        }
+        bytes[position++] = '-';
+        String suffix = Integer.toString(id, 36);
+        for (int i = 0; i < suffix.length(); i++) {
+            bytes[position++] = (byte) suffix.charAt(i);
+        }
+        return position;
+    }
+
+    /**
+     * @param stream number of the column
+     * @return random generator of the column
+     */
+    private SplittableRandom random(int stream) {
+        return new SplittableRandom(seed + stream * 0x9E3779B97F4A7C15L);
+    }
+
+    private static int time(double time) {
+        if (!(time >= 0)) {
+            throw new IllegalArgumentException("Arrival time " + time
+                    + " is negative");
+        }
+        if (time > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Arrival times exceed "
+                    + Integer.MAX_VALUE + ", use fewer jobs or more load");
+        }
+        return (int) time;
+    }
+
+    /**
+     * @param service drawn service time
+     * @return service time between 1 and MAX_SERVICE, traces have no jobs
+     * without service
+     */
+    private static int clamp(double service) {
+        return (int) Math.max(1, Math.min(service, MAX_SERVICE));
+    }
+
+    private static double exponential(SplittableRandom random,
+            double mean) {
+        return -Math.log(1 - random.nextDouble()) * mean;
+    }
+
+    private static int digits(int value, byte[] bytes, int position) {
+        int end = position + 1;
+        for (int rest = value / 10; rest != 0; rest /= 10) {
+            end++;
+        }
+        int i = end;
+        do {
+            bytes[--i] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        return end;
+    }
+
+    private static int indexOf(String[] values, String value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Endless column of generated values
+     */
+    private abstract static class Values implements PrimitiveIterator.OfInt {
+
+        /**
+         * @return next value
+         */
+        abstract int value();
+
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+
+        @Override
+        public int nextInt() {
+            return value();
+        }
+    }
+
+    int jobs = 1000;
+    String arrivals = "poisson";
+    String services = "exponential";
+    int meanService = 10;
+    double load = 0.9;
+    int names = 4096;
+    int maxWeight;
+    int deadlineFactor;
+    long seed = 1;
+}
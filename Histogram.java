@@ -0,0 +1,107 @@
+
+/**
+ * class Histogram counts non-negative long values in buckets whose width
+ * grows with the value, in the way of HdrHistogram: values below 256 are
+ * kept exactly, larger values keep their 8 highest bits, so a percentile
+ * is at most 1 % above the exact value. Recording is O(1) and allocates
+ * nothing, the histogram has a fixed size whatever the number of values.
+ */
+public class Histogram {
+
+    // significant bits of a value
+    private static final int BITS = 8;
+    // values below SUB have their own bucket
+    private static final int SUB = 1 << BITS;
+    private static final int HALF = SUB / 2;
+
+    /**
+     * Records the value, negative values are recorded as 0
+     *
+     * @param value value
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        counts[index(value)]++;
+        total++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Records the values of the other histogram
+     *
+     * @param other histogram
+     */
+    public void add(Histogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public long count() {
+        return total;
+    }
+
+    /**
+     * @return largest recorded value, 0 if there is none
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * Value below or at which the percentage of values is
+     *
+     * @param percent percentage from 0 to 100
+     * @return highest value of the bucket holding the percentile, 0 if
+     * nothing was recorded
+     */
+    public long percentile(double percent) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percent / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highest(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @param value non-negative value
+     * @return bucket of the value
+     */
+    static int index(long value) {
+        if (value < SUB) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (BITS - 1);
+        int top = (int) (value >>> shift);
+        return SUB + (shift - 1) * HALF + top - HALF;
+    }
+
+    /**
+     * @param index bucket
+     * @return highest value of the bucket
+     */
+    static long highest(int index) {
+        if (index < SUB) {
+            return index;
+        }
+        int shift = (index - SUB) / HALF + 1;
+        long top = (index - SUB) % HALF + HALF;
+        return ((top + 1) << shift) - 1;
+    }
+
+    private final long[] counts = new long[SUB + (63 - BITS) * HALF];
+    private long total;
+    private long max;
+}
@@ -0,0 +1,129 @@
+
+import java.util.Random;
+
+/**
+ * class HrrnBenchmark compares the scanning HRRN policy with the RatioTree
+ * based one on growing random workloads and prints the time of both, so
+ * the crossover point can be seen. Both schedules are checked to be equal.
+ * The scan wins while few jobs are ready at a time, the tree wins when
+ * the ready set grows (load above 1).
+ *
+ * Usage: java HrrnBenchmark [max jobs] [load] [seed]
+ */
+public class HrrnBenchmark {
+
+    // every size is run this many times, the best time is printed
+    private static final int REPEAT = 3;
+
+    /**
+     * Sink which hashes the timeline, so two schedules can be compared
+     * without keeping them
+     */
+    private static class HashSink implements TimelineSink {
+
+        @Override
+        public void segment(int job, String name, int start, int end) {
+            hash = hash * 31 + job;
+            hash = hash * 31 + start;
+            hash = hash * 31 + end;
+        }
+
+        long hash;
+    }
+
+    /**
+     * Main function
+     * @param args maximum number of jobs, load of the CPU, random seed
+     */
+    public static void main(String[] args) {
+        int maxJobs = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        // above 1 jobs arrive faster than they are served and the number
+        // of ready jobs grows with the size of the workload
+        double load = args.length > 1 ? Double.parseDouble(args[1]) : 1.05;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        // the scan is quadratic, do not wait for it on big workloads
+        int maxScan = 200000;
+
+        // warm up both policies on a small workload
+        JobTable warmUp = workload(10000, load, seed);
+        for (int i = 0; i < 5; i++) {
+            run(warmUp, false);
+            run(warmUp, true);
+        }
+        System.out.printf("%10s %12s %12s %10s%n", "jobs", "scan ms",
+                "tree ms", "speedup");
+        for (int n = 100; n <= maxJobs; n *= 10) {
+            for (int step : new int[]{1, 3}) {
+                int size = n * step;
+                if (size > maxJobs) {
+                    break;
+                }
+                JobTable jobs = workload(size, load, seed);
+
+                long treeTime = Long.MAX_VALUE;
+                long treeHash = 0;
+                for (int i = 0; i < REPEAT; i++) {
+                    long time = System.nanoTime();
+                    treeHash = run(jobs, false);
+                    treeTime = Math.min(treeTime, System.nanoTime() - time);
+                }
+                if (size > maxScan) {
+                    System.out.printf("%10d %12s %12.1f %10s%n", size, "-",
+                            treeTime / 1e6, "-");
+                    continue;
+                }
+                long scanTime = Long.MAX_VALUE;
+                long scanHash = 0;
+                for (int i = 0; i < REPEAT; i++) {
+                    long time = System.nanoTime();
+                    scanHash = run(jobs, true);
+                    scanTime = Math.min(scanTime, System.nanoTime() - time);
+                }
+                if (scanHash != treeHash) {
+                    System.out.println("Schedules differ for " + size
+                            + " jobs");
+                    return;
+                }
+                System.out.printf("%10d %12.1f %12.1f %10.1f%n", size,
+                        scanTime / 1e6, treeTime / 1e6,
+                        (double) scanTime / treeTime);
+            }
+        }
+    }
+
+    /**
+     * Runs HRRN on the jobs
+     *
+     * @param jobs table of jobs
+     * @param scan true to use the scanning policy
+     * @return hash of the schedule
+     */
+    private static long run(JobTable jobs, boolean scan) {
+        EventEngine engine = new EventEngine(jobs);
+        HashSink sink = new HashSink();
+        engine.run(scan ? new Policies.HrrnScan(engine)
+                : new Policies.Hrrn(engine), sink);
+        return sink.hash;
+    }
+
+    /**
+     * Creates random workload with exponential interarrival times and
+     * service times from 1 to 20
+     *
+     * @param n number of jobs
+     * @param load mean service time divided by mean interarrival time
+     * @param seed random seed
+     * @return table of jobs
+     */
+    private static JobTable workload(int n, double load, long seed) {
+        Random random = new Random(seed);
+        JobTable jobs = new JobTable(n);
+        double meanService = 10.5;
+        double time = 0;
+        for (int i = 0; i < n; i++) {
+            jobs.add("J" + i, (int) time, 1 + random.nextInt(20));
+            time += -Math.log(1 - random.nextDouble()) * meanService / load;
+        }
+        return jobs;
+    }
+}
@@ -0,0 +1,143 @@
+
+import java.util.Arrays;
+
+/**
+ * class IntHeap is a binary min-heap of ints (job indices) ordered by a
+ * comparator which usually looks up primitive columns of a JobTable
+ */
+public class IntHeap {
+
+    /**
+     * Interface Comparator compares two ints
+     */
+    public interface Comparator {
+
+        /**
+         * @param a first value
+         * @param b second value
+         * @return negative, zero or positive as a is less, equal or greater
+         * than b
+         */
+        int compare(int a, int b);
+    }
+
+    /**
+     * @param comparator order of values
+     */
+    public IntHeap(Comparator comparator) {
+        this(comparator, 16);
+    }
+
+    /**
+     * @param comparator order of values
+     * @param capacity initial capacity
+     */
+    public IntHeap(Comparator comparator, int capacity) {
+        this.comparator = comparator;
+        items = new int[Math.max(capacity, 1)];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds the value
+     *
+     * @param value value
+     */
+    public void add(int value) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+        }
+        // sift up
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (comparator.compare(value, items[parent]) >= 0) {
+                break;
+            }
+            items[i] = items[parent];
+            i = parent;
+        }
+        items[i] = value;
+    }
+
+    /**
+     * @return the least value
+     */
+    public int peek() {
+        return items[0];
+    }
+
+    /**
+     * Removes the least value
+     *
+     * @return value
+     */
+    public int poll() {
+        int top = items[0];
+        int value = items[--size];
+        // sift down
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size
+                    && comparator.compare(items[child + 1], items[child]) < 0) {
+                child++;
+            }
+            if (comparator.compare(items[child], value) >= 0) {
+                break;
+            }
+            items[i] = items[child];
+            i = child;
+        }
+        items[i] = value;
+        return top;
+    }
+
+    /**
+     * Removes the least value and adds the value in one pass, cheaper than
+     * poll followed by add
+     *
+     * @param value value
+     * @return the removed least value
+     */
+    public int replaceTop(int value) {
+        int top = items[0];
+        // sift down
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size
+                    && comparator.compare(items[child + 1], items[child]) < 0) {
+                child++;
+            }
+            if (comparator.compare(items[child], value) >= 0) {
+                break;
+            }
+            items[i] = items[child];
+            i = child;
+        }
+        items[i] = value;
+        return top;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    private final Comparator comparator;
+    private int[] items;
+    private int size;
+}
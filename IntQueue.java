@@ -0,0 +1,78 @@
+
+import java.util.Arrays;
+
+/**
+ * class IntQueue is a FIFO queue of ints stored in a growing ring buffer,
+ * used for queues of job indices without boxing
+ */
+public class IntQueue {
+
+    public IntQueue() {
+        this(16);
+    }
+
+    /**
+     * @param capacity initial capacity, rounded up to a power of two
+     */
+    public IntQueue(int capacity) {
+        int c = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        items = new int[c];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds the value to the tail
+     *
+     * @param value value
+     */
+    public void add(int value) {
+        if (size == items.length) {
+            grow();
+        }
+        items[(head + size) & (items.length - 1)] = value;
+        size++;
+    }
+
+    /**
+     * @return value at the head
+     */
+    public int peek() {
+        return items[head];
+    }
+
+    /**
+     * Removes the value at the head
+     *
+     * @return value
+     */
+    public int poll() {
+        int value = items[head];
+        head = (head + 1) & (items.length - 1);
+        size--;
+        return value;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        // unwrap the ring into a twice larger array
+        int[] grown = Arrays.copyOfRange(items, head, head + items.length * 2);
+        System.arraycopy(items, 0, grown, items.length - head, head);
+        items = grown;
+        head = 0;
+    }
+
+    private int[] items;
+    private int head;
+    private int size;
+}
@@ -0,0 +1,78 @@
+import java.io.PrintWriter;
+
+/**
+ * class Io runs scheduling algorithms on jobs which alternate between CPU
+ * and I/O bursts (see IoEngine) and prints for every algorithm the
+ * turnaround times, the throughput, the utilization of the CPU and of
+ * every device and how much CPU and I/O overlapped: the time all bursts
+ * would take one after another over the makespan.
+ *
+ * Arguments: algorithms joined by '+' or ALL, default ALL
+ */
+public class Io {
+
+    /**
+     * Runs the algorithms
+     *
+     * @param trace jobs and their bursts
+     * @param args arguments
+     * @param out output
+     * @return false if the arguments are malformed
+     */
+    public static boolean run(BurstTrace trace, String[] args,
+            PrintWriter out) {
+        String[] algorithms = null;
+        for (String arg : args) {
+            if (algorithms == null && !arg.startsWith("-")) {
+                algorithms = Scheduler.algorithms(arg);
+                if (algorithms == null) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        }
+        if (algorithms == null) {
+            algorithms = Scheduler.algorithms("ALL");
+        }
+
+        IoEngine engine = new IoEngine(trace);
+        for (String algorithm : algorithms) {
+            engine.run(algorithm, (job, name, start, end) -> {
+            });
+            report(out, algorithm, trace, engine);
+        }
+        out.flush();
+        return true;
+    }
+
+    private static void report(PrintWriter out, String algorithm,
+            BurstTrace trace, IoEngine engine) {
+        long makespan = engine.getMakespan();
+        long serial = trace.getCpuTime() + trace.getIoTime();
+        out.printf("%s on 1 CPU and %d devices%n", algorithm,
+                engine.getDevices());
+        out.printf("  finished %d, makespan %d, throughput %.4f jobs per "
+                + "time unit%n", engine.getFinished(), makespan,
+                engine.getThroughput());
+        out.printf("  mean Tr %.3f, p99 Tr %d, mean ready wait %.3f%n",
+                engine.getMeanTurnaround(),
+                engine.getTurnaround().percentile(99),
+                engine.getMeanReadyWait());
+        out.printf("  context switches %d, CPU utilization %.2f %%, "
+                + "busy %d%n", engine.getContextSwitches(),
+                engine.getCpuUtilization() * 100, trace.getCpuTime());
+        if (engine.getDevices() > 0) {
+            out.printf("  %6s %12s %14s %12s %12s%n", "device",
+                    "utilization", "busy", "requests", "mean wait");
+        }
+        for (int d = 0; d < engine.getDevices(); d++) {
+            out.printf("  %6d %10.2f %% %14d %12d %12.3f%n", d,
+                    engine.getUtilization(d) * 100, engine.getBusy(d),
+                    engine.getRequests(d), engine.getMeanDeviceWait(d));
+        }
+        out.printf("  overlap %.3f (CPU and I/O bursts %d over makespan "
+                + "%d)%n", makespan == 0 ? 0 : (double) serial / makespan,
+                serial, makespan);
+    }
+}
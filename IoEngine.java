@@ -0,0 +1,406 @@
+import java.util.Arrays;
+
+/**
+ * class IoEngine simulates a CPU and I/O devices running the jobs of a
+ * BurstTrace with the scheduling policies of EventEngine. A job which
+ * finishes a CPU burst leaves the ready structure for the queue of its
+ * device, which serves its requests first come first served. When the
+ * I/O burst is done the job arrives at the policy again for its next CPU
+ * burst, so the CPU runs other jobs while jobs wait for I/O.
+ *
+ * The policies see the current CPU burst of every job: its service time
+ * in the table is the length of the burst and its arrival time the time
+ * the job became ready for it. SPN and SRT thus take the shortest next
+ * burst, HRRN counts the wait since the job came back from its device
+ * and FB puts the job on the first level again.
+ *
+ * Events are handled as in EventEngine: at equal times expiries and
+ * completions come first, then ends of I/O bursts in order of device and
+ * then arrivals. The running job may be preempted, and the CPU is
+ * dispatched, when all events of the time are handled. Only the next
+ * arrival, the running job and the request in service on every device
+ * are queued, and slices of a job which is alone are joined up to the
+ * next event, so an I/O burst costs two events whatever its length and
+ * the CPU idling meanwhile costs nothing. A trace without I/O bursts is
+ * scheduled as by EventEngine.
+ */
+public class IoEngine {
+
+    /**
+     * @param trace jobs and their bursts
+     */
+    public IoEngine(BurstTrace trace) {
+        this.trace = trace;
+        devices = trace.getDevices();
+        deviceJob = new int[devices];
+        deviceQueue = new IntQueue[devices];
+        busy = new long[devices];
+        requests = new long[devices];
+        queueWait = new long[devices];
+        burst = new int[trace.size()];
+        since = new int[trace.size()];
+    }
+
+    /**
+     * Runs the scheduling algorithm
+     *
+     * @param algorithm name of scheduling algorithm with parameters, as in
+     * Scheduler.schedule
+     * @param sink receiver of the executed parts of CPU bursts, adjacent
+     * parts of the same job are merged
+     * @return false if the algorithm or its parameters are unknown
+     */
+    public boolean run(String algorithm, TimelineSink sink) {
+        jobs = trace.table();
+        EventEngine columns = new EventEngine(jobs);
+        policy = Scheduler.policy(algorithm, columns);
+        if (policy == null) {
+            return false;
+        }
+        arrival = columns.arrival;
+        service = columns.service;
+        remaining = columns.remaining;
+        out = new TimelineSink.MergingSink(sink);
+        simulate();
+        out.finish();
+        out = null;
+        policy = null;
+        return true;
+    }
+
+    private void simulate() {
+        int n = trace.size();
+        int[] submit = trace.arrival;
+        // kinds of events: EXPIRY, COMPLETION, the end of an I/O burst on
+        // device d is ARRIVAL + d, arrivals come last
+        int arrivalKind = EventEngine.ARRIVAL + devices;
+        System.arraycopy(trace.first, 0, burst, 0, n);
+        Arrays.fill(deviceJob, -1);
+        for (int d = 0; d < devices; d++) {
+            deviceQueue[d] = new IntQueue();
+        }
+        Arrays.fill(busy, 0);
+        Arrays.fill(requests, 0);
+        Arrays.fill(queueWait, 0);
+        turnaround = new Histogram();
+        totalTurnaround = 0;
+        finished = 0;
+        switches = 0;
+        lastJob = -1;
+        running = -1;
+        dispatch = 0;
+        firstTime = n == 0 ? 0 : submit[0];
+        lastTime = firstTime;
+
+        events = new EventEngine.EventQueue(devices + 2);
+        int next = 0;
+        if (n > 0) {
+            events.push(submit[0], arrivalKind, 0);
+        }
+        boolean woken = false;
+        while (!events.isEmpty()) {
+            int t = events.time();
+            int kind = events.kind();
+            int tag = events.tag();
+            events.pop();
+            if (kind == arrivalKind) {
+                // deliver all jobs arrived till now
+                while (next < n && submit[next] <= t) {
+                    policy.arrive(next, t);
+                    next++;
+                }
+                if (next < n) {
+                    events.push(submit[next], arrivalKind, next);
+                }
+                woken = true;
+            } else if (kind >= EventEngine.ARRIVAL) {
+                // I/O burst done, the job is ready for its next CPU burst
+                int d = kind - EventEngine.ARRIVAL;
+                int job = deviceJob[d];
+                deviceJob[d] = -1;
+                int length = trace.length[++burst[job]];
+                arrival[job] = t;
+                service[job] = length;
+                remaining[job] = length;
+                policy.arrive(job, t);
+                woken = true;
+                if (!deviceQueue[d].isEmpty()) {
+                    serve(d, deviceQueue[d].poll(), t);
+                }
+            } else if (tag == dispatch) {
+                // quantum expiry or end of the CPU burst of the running job
+                remaining[running] -= t - charged;
+                out.segment(running, jobs.getName(running), startTime, t);
+                if (kind == EventEngine.EXPIRY) {
+                    policy.expire(running, t);
+                } else {
+                    leave(running, t);
+                }
+                running = -1;
+            }
+            // preempt and dispatch when all events at the current time are
+            // handled
+            if (events.isEmpty() || events.time() > t) {
+                if (woken && running != -1) {
+                    // charge the running job and ask for preemption
+                    remaining[running] -= t - charged;
+                    charged = t;
+                    int j = policy.preempt(running, t);
+                    if (j != -1) {
+                        out.segment(running, jobs.getName(running),
+                                startTime, t);
+                        start(j, t);
+                    }
+                }
+                woken = false;
+                if (running == -1) {
+                    int j = policy.select(t);
+                    if (j != -1) {
+                        start(j, t);
+                    }
+                }
+            }
+        }
+        events = null;
+    }
+
+    /**
+     * The job finished its CPU burst: it goes to the device of its next
+     * burst or leaves the system
+     *
+     * @param job index of the job
+     * @param t current time
+     */
+    private void leave(int job, int t) {
+        int b = burst[job] + 1;
+        if (b == trace.first[job + 1]) {
+            long tr = (long) t - trace.arrival[job];
+            turnaround.record(tr);
+            totalTurnaround += tr;
+            finished++;
+            lastTime = Math.max(lastTime, t);
+            return;
+        }
+        burst[job] = b;
+        int d = trace.device[b];
+        requests[d]++;
+        since[job] = t;
+        if (deviceJob[d] == -1) {
+            serve(d, job, t);
+        } else {
+            deviceQueue[d].add(job);
+        }
+    }
+
+    /**
+     * Starts the I/O burst of the job on the device
+     *
+     * @param d device
+     * @param job index of the job
+     * @param t current time
+     */
+    private void serve(int d, int job, int t) {
+        int length = trace.length[burst[job]];
+        deviceJob[d] = job;
+        queueWait[d] += t - since[job];
+        busy[d] += length;
+        events.push(t + length, EventEngine.ARRIVAL + d, job);
+    }
+
+    /**
+     * Starts the job and queues the event of its leaving the CPU.
+     * Consecutive slices of a job which stays alone in the ready structure
+     * are joined into one run ending at the first slice boundary after
+     * the next event, as in EventEngine.
+     *
+     * @param job index of the job
+     * @param t current time
+     */
+    private void start(int job, int t) {
+        if (job != lastJob) {
+            // the first job is no switch, as in Metrics
+            if (lastJob != -1) {
+                switches++;
+            }
+            lastJob = job;
+        }
+        dispatch++;
+        running = job;
+        startTime = t;
+        charged = t;
+        // no job becomes ready before the next event
+        int limit = events.isEmpty() ? Integer.MAX_VALUE : events.time();
+        int end = t;
+        while (true) {
+            int q = policy.quantum(job);
+            int left = remaining[job] - (end - t);
+            if (left <= q) {
+                // burst is finished in this slice
+                events.push(end + left, EventEngine.COMPLETION, dispatch);
+                return;
+            }
+            if (policy.size() == 0 && policy.steady(job)) {
+                // all further slices are alike, jump over them
+                long toLimit = ((long) limit - end + q - 1) / q;
+                long toFinish = ((long) left + q - 1) / q;
+                if (toFinish <= toLimit) {
+                    events.push(end + left, EventEngine.COMPLETION,
+                            dispatch);
+                } else {
+                    events.push((int) (end + toLimit * q),
+                            EventEngine.EXPIRY, dispatch);
+                }
+                return;
+            }
+            end += q;
+            if (end >= limit || policy.size() != 0) {
+                events.push(end, EventEngine.EXPIRY, dispatch);
+                return;
+            }
+            // job is alone, it gets the next slice too
+            policy.expire(job, end);
+            policy.select(end);
+        }
+    }
+
+    /**
+     * @return number of devices
+     */
+    public int getDevices() {
+        return devices;
+    }
+
+    /**
+     * @return number of finished jobs
+     */
+    public int getFinished() {
+        return finished;
+    }
+
+    /**
+     * @return time from the first arrival till the last job finished
+     */
+    public long getMakespan() {
+        return (long) lastTime - firstTime;
+    }
+
+    /**
+     * @return finished jobs per time unit
+     */
+    public double getThroughput() {
+        return getMakespan() == 0 ? 0 : (double) finished / getMakespan();
+    }
+
+    /**
+     * @return share of the makespan the CPU was busy
+     */
+    public double getCpuUtilization() {
+        return getMakespan() == 0 ? 0
+                : (double) trace.getCpuTime() / getMakespan();
+    }
+
+    /**
+     * @param d device
+     * @return share of the makespan the device was busy
+     */
+    public double getUtilization(int d) {
+        return getMakespan() == 0 ? 0 : (double) busy[d] / getMakespan();
+    }
+
+    /**
+     * @param d device
+     * @return time the device was busy
+     */
+    public long getBusy(int d) {
+        return busy[d];
+    }
+
+    /**
+     * @param d device
+     * @return number of I/O bursts done by the device
+     */
+    public long getRequests(int d) {
+        return requests[d];
+    }
+
+    /**
+     * @param d device
+     * @return mean time a request waited in the queue of the device
+     */
+    public double getMeanDeviceWait(int d) {
+        return requests[d] == 0 ? 0 : (double) queueWait[d] / requests[d];
+    }
+
+    /**
+     * @return histogram of the turnaround times, from arrival till the end
+     * of the last CPU burst
+     */
+    public Histogram getTurnaround() {
+        return turnaround;
+    }
+
+    /**
+     * @return mean turnaround time
+     */
+    public double getMeanTurnaround() {
+        return finished == 0 ? 0 : (double) totalTurnaround / finished;
+    }
+
+    /**
+     * @return mean time a job was ready but did not run: its turnaround
+     * time less its bursts and its waits for devices
+     */
+    public double getMeanReadyWait() {
+        if (finished == 0) {
+            return 0;
+        }
+        long wait = totalTurnaround - trace.getCpuTime() - trace.getIoTime();
+        for (int d = 0; d < devices; d++) {
+            wait -= queueWait[d];
+        }
+        return (double) wait / finished;
+    }
+
+    /**
+     * @return number of dispatches of another job than the one which ran
+     * last
+     */
+    public long getContextSwitches() {
+        return switches;
+    }
+
+    private final BurstTrace trace;
+    private final int devices;
+    // job served by every device or -1
+    private final int[] deviceJob;
+    // jobs waiting for every device
+    private final IntQueue[] deviceQueue;
+    private final long[] busy;
+    private final long[] requests;
+    private final long[] queueWait;
+    // current burst of every job
+    private final int[] burst;
+    // time every job joined the queue of its device
+    private final int[] since;
+
+    // table of the current bursts and its columns
+    private JobTable jobs;
+    private int[] arrival;
+    private int[] service;
+    private int[] remaining;
+    private EventEngine.Policy policy;
+    private TimelineSink out;
+    private EventEngine.EventQueue events;
+    private int running;
+    private int startTime;
+    private int charged;
+    private int dispatch;
+    private int lastJob;
+
+    private Histogram turnaround = new Histogram();
+    private long totalTurnaround;
+    private int finished;
+    private long switches;
+    private int firstTime;
+    private int lastTime;
+}
@@ -0,0 +1,445 @@
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * class JobTable stores jobs column by column in primitive arrays. A job
+ * is identified by its index in the table (the order of the input file),
+ * job names are interned, every job keeps only the id of its name.
+ *
+ * The weight column (tickets of proportional-share policies) is null as
+ * long as every job has weight 1, the deadline column (absolute times of
+ * deadline policies) as long as no job has a deadline. A job without a
+ * deadline has NO_DEADLINE, later than every time.
+ *
+ * Columns remaining and priority are the working state of a simulation,
+ * they are reset before every run. A frozen table can not be changed any
+ * more and can be shared by several threads: every thread runs on its own
+ * fork, which shares the job columns and has its own working columns.
+ */
+public class JobTable {
+
+    // deadline of a job which has none
+    public static final int NO_DEADLINE = Integer.MAX_VALUE;
+
+    public JobTable() {
+        this(16);
+    }
+
+    /**
+     * @param capacity initial number of jobs
+     */
+    public JobTable(int capacity) {
+        capacity = Math.max(capacity, 1);
+        nameId = new int[capacity];
+        arrival = new int[capacity];
+        service = new int[capacity];
+        remaining = new int[capacity];
+        priority = new int[capacity];
+        names = new String[capacity];
+    }
+
+    /**
+     * Creates the table from its columns, used by loaders of traces
+     *
+     * @param names dictionary of names, all different
+     * @param nameIds index into names of every job
+     * @param arrivalTimes arrival time of every job
+     * @param serviceTimes service time of every job
+     * @param weights weight of every job or null if all weights are 1
+     * @param deadlines deadline of every job or null if no job has one
+     * @param count number of jobs
+     */
+    JobTable(String[] names, int[] nameIds, int[] arrivalTimes,
+            int[] serviceTimes, int[] weights, int[] deadlines, int count) {
+        for (int i = 0; i < names.length; i++) {
+            if (ids.put(names[i], i) != null) {
+                throw new IllegalArgumentException("Duplicate name "
+                        + names[i]);
+            }
+        }
+        this.names = Arrays.copyOf(names, Math.max(names.length, 1));
+        nameCount = names.length;
+        nameId = nameIds;
+        arrival = arrivalTimes;
+        service = serviceTimes;
+        weight = weights;
+        deadline = deadlines;
+        remaining = Arrays.copyOf(serviceTimes, nameIds.length);
+        priority = new int[nameIds.length];
+        size = count;
+    }
+
+    /**
+     * Adds the job
+     *
+     * @param name name of the job
+     * @param arrivalTime arrival time
+     * @param serviceTime service time
+     * @return index of the job
+     */
+    public int add(String name, int arrivalTime, int serviceTime) {
+        return add(name, arrivalTime, serviceTime, 1);
+    }
+
+    /**
+     * Adds the job with a weight
+     *
+     * @param name name of the job
+     * @param arrivalTime arrival time
+     * @param serviceTime service time
+     * @param jobWeight weight, positive
+     * @return index of the job
+     */
+    public int add(String name, int arrivalTime, int serviceTime,
+            int jobWeight) {
+        return add(name, arrivalTime, serviceTime, jobWeight, NO_DEADLINE);
+    }
+
+    /**
+     * Adds the job with a weight and a deadline
+     *
+     * @param name name of the job
+     * @param arrivalTime arrival time
+     * @param serviceTime service time
+     * @param jobWeight weight, positive
+     * @param jobDeadline time the job should be finished by or NO_DEADLINE
+     * @return index of the job
+     */
+    public int add(String name, int arrivalTime, int serviceTime,
+            int jobWeight, int jobDeadline) {
+        if (frozen) {
+            throw new IllegalStateException("JobTable is frozen");
+        }
+        if (size == arrival.length) {
+            grow(size + 1);
+        }
+        nameId[size] = intern(name);
+        arrival[size] = arrivalTime;
+        service[size] = serviceTime;
+        remaining[size] = serviceTime;
+        if (jobWeight != 1 && weight == null) {
+            weight = ones(arrival.length);
+        }
+        if (weight != null) {
+            weight[size] = jobWeight;
+        }
+        if (jobDeadline != NO_DEADLINE && deadline == null) {
+            deadline = none(arrival.length);
+        }
+        if (deadline != null) {
+            deadline[size] = jobDeadline;
+        }
+        rank = null;
+        return size++;
+    }
+
+    /**
+     * Adds jobs whose names are given as ids into the array of names, so
+     * every distinct name is interned once
+     *
+     * @param jobNames names used by the jobs
+     * @param jobNameIds index into jobNames of every job
+     * @param arrivalTimes arrival time of every job
+     * @param serviceTimes service time of every job
+     * @param weights weight of every job or null if all weights are 1
+     * @param deadlines deadline of every job or null if no job has one
+     * @param count number of jobs
+     */
+    void addAll(String[] jobNames, int[] jobNameIds, int[] arrivalTimes,
+            int[] serviceTimes, int[] weights, int[] deadlines, int count) {
+        if (frozen) {
+            throw new IllegalStateException("JobTable is frozen");
+        }
+        if (count > arrival.length - size) {
+            grow(size + count);
+        }
+        int[] ids = new int[jobNames.length];
+        for (int i = 0; i < jobNames.length; i++) {
+            ids[i] = intern(jobNames[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            nameId[size + i] = ids[jobNameIds[i]];
+        }
+        System.arraycopy(arrivalTimes, 0, arrival, size, count);
+        System.arraycopy(serviceTimes, 0, service, size, count);
+        System.arraycopy(serviceTimes, 0, remaining, size, count);
+        if (weights != null && weight == null) {
+            weight = ones(arrival.length);
+        }
+        if (weights != null) {
+            System.arraycopy(weights, 0, weight, size, count);
+        }
+        if (deadlines != null && deadline == null) {
+            deadline = none(arrival.length);
+        }
+        if (deadlines != null) {
+            System.arraycopy(deadlines, 0, deadline, size, count);
+        }
+        size += count;
+        rank = null;
+    }
+
+    /**
+     * @return number of jobs
+     */
+    public int size() {
+        return size;
+    }
+
+    public String getName(int job) {
+        return names[nameId[job]];
+    }
+
+    public int getArrivalTime(int job) {
+        return arrival[job];
+    }
+
+    public int getServiceTime(int job) {
+        return service[job];
+    }
+
+    public int getWeight(int job) {
+        return weight == null ? 1 : weight[job];
+    }
+
+    /**
+     * @return true if some job has a weight other than 1
+     */
+    public boolean hasWeights() {
+        return weight != null;
+    }
+
+    /**
+     * @param job index of the job
+     * @return deadline of the job or NO_DEADLINE
+     */
+    public int getDeadline(int job) {
+        return deadline == null ? NO_DEADLINE : deadline[job];
+    }
+
+    /**
+     * @return true if some job has a deadline
+     */
+    public boolean hasDeadlines() {
+        return deadline != null;
+    }
+
+    /**
+     * Makes the table read-only, so it can be shared by threads
+     *
+     * @return this table
+     */
+    public JobTable freeze() {
+        if (!frozen) {
+            nameRank();
+            frozen = true;
+        }
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Creates a table which shares the job columns of this frozen table
+     * and has its own working columns
+     *
+     * @return new frozen table
+     */
+    public JobTable fork() {
+        if (!frozen) {
+            throw new IllegalStateException("JobTable is not frozen");
+        }
+        return new JobTable(this);
+    }
+
+    private JobTable(JobTable source) {
+        nameId = source.nameId;
+        arrival = source.arrival;
+        service = source.service;
+        weight = source.weight;
+        deadline = source.deadline;
+        names = source.names;
+        nameCount = source.nameCount;
+        rank = source.rank;
+        size = source.size;
+        remaining = new int[size];
+        priority = new int[size];
+        reset();
+        frozen = true;
+    }
+
+    /**
+     * Creates a table of the jobs from..to-1 of this frozen table, job i
+     * of the new table is job from + i of this one. Names keep their
+     * ranks, so ties are broken as in this table.
+     *
+     * @param from index of the first job
+     * @param to index after the last job
+     * @return new frozen table
+     */
+    public JobTable slice(int from, int to) {
+        if (!frozen) {
+            throw new IllegalStateException("JobTable is not frozen");
+        }
+        return new JobTable(this, from, to);
+    }
+
+    private JobTable(JobTable source, int from, int to) {
+        nameId = Arrays.copyOfRange(source.nameId, from, to);
+        arrival = Arrays.copyOfRange(source.arrival, from, to);
+        service = Arrays.copyOfRange(source.service, from, to);
+        weight = source.weight == null ? null
+                : Arrays.copyOfRange(source.weight, from, to);
+        deadline = source.deadline == null ? null
+                : Arrays.copyOfRange(source.deadline, from, to);
+        names = source.names;
+        nameCount = source.nameCount;
+        rank = Arrays.copyOfRange(source.rank, from, to);
+        size = to - from;
+        remaining = Arrays.copyOf(service, size);
+        priority = new int[size];
+        frozen = true;
+    }
+
+    /**
+     * @return dictionary of names, index of a name is its id
+     */
+    String[] nameDictionary() {
+        return Arrays.copyOf(names, nameCount);
+    }
+
+    /**
+     * Resets the working state: remaining time becomes the service time
+     * and priority becomes 0
+     */
+    void reset() {
+        System.arraycopy(service, 0, remaining, 0, size);
+        Arrays.fill(priority, 0, size, 0);
+    }
+
+    /**
+     * Puts the jobs into the order: job i becomes the job which was at
+     * index order[i]. The working state is reset.
+     *
+     * @param order permutation of the jobs
+     */
+    void reorder(int[] order) {
+        if (frozen) {
+            throw new IllegalStateException("JobTable is frozen");
+        }
+        nameId = permute(nameId, order);
+        arrival = permute(arrival, order);
+        service = permute(service, order);
+        if (weight != null) {
+            weight = permute(weight, order);
+        }
+        if (deadline != null) {
+            deadline = permute(deadline, order);
+        }
+        rank = null;
+        reset();
+    }
+
+    private int[] permute(int[] column, int[] order) {
+        int[] result = new int[column.length];
+        for (int i = 0; i < size; i++) {
+            result[i] = column[order[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Ranks of the names in alphabetical order, so ties can be broken by
+     * name comparing ints. Equal names have equal ranks.
+     *
+     * @return rank of the name of every job
+     */
+    int[] nameRank() {
+        if (rank == null) {
+            String[] sorted = Arrays.copyOf(names, nameCount);
+            Arrays.sort(sorted);
+            int[] idRank = new int[nameCount];
+            for (int i = 0; i < nameCount; i++) {
+                idRank[i] = Arrays.binarySearch(sorted, names[i]);
+            }
+            int[] r = new int[size];
+            for (int i = 0; i < size; i++) {
+                r[i] = idRank[nameId[i]];
+            }
+            rank = r;
+        }
+        return rank;
+    }
+
+    /**
+     * Returns the id of the name adding it to the dictionary if needed
+     *
+     * @param name name of the job
+     * @return id of the name
+     */
+    private int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (nameCount == names.length) {
+            names = Arrays.copyOf(names, nameCount * 2);
+        }
+        names[nameCount] = name;
+        ids.put(name, nameCount);
+        return nameCount++;
+    }
+
+    private static int[] ones(int capacity) {
+        int[] ones = new int[capacity];
+        Arrays.fill(ones, 1);
+        return ones;
+    }
+
+    private static int[] none(int capacity) {
+        int[] none = new int[capacity];
+        Arrays.fill(none, NO_DEADLINE);
+        return none;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = (int) Math.min(Math.max(arrival.length * 2L,
+                minCapacity), Integer.MAX_VALUE - 8);
+        nameId = Arrays.copyOf(nameId, capacity);
+        arrival = Arrays.copyOf(arrival, capacity);
+        service = Arrays.copyOf(service, capacity);
+        remaining = Arrays.copyOf(remaining, capacity);
+        priority = Arrays.copyOf(priority, capacity);
+        if (weight != null) {
+            int length = weight.length;
+            weight = Arrays.copyOf(weight, capacity);
+            Arrays.fill(weight, length, capacity, 1);
+        }
+        if (deadline != null) {
+            int length = deadline.length;
+            deadline = Arrays.copyOf(deadline, capacity);
+            Arrays.fill(deadline, length, capacity, NO_DEADLINE);
+        }
+    }
+
+    // columns
+    int[] nameId;
+    int[] arrival;
+    int[] service;
+    // null if every job has weight 1
+    int[] weight;
+    // null if no job has a deadline
+    int[] deadline;
+    int[] remaining;
+    int[] priority;
+    // dictionary of names
+    private String[] names;
+    private int nameCount;
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    private int[] rank;
+    private int size;
+    private boolean frozen;
+}
@@ -0,0 +1,295 @@
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * class Metrics computes the numbers scheduling algorithms are compared
+ * on while the schedule is produced, in one pass over the segments:
+ *
+ *   turnaround time Tr = finish - arrival
+ *   waiting time = Tr - service
+ *   response time = first start - arrival
+ *   normalized turnaround time Tr/Ts
+ *   throughput = finished jobs / (last finish - first arrival)
+ *   utilization = busy time / (last finish - first arrival)
+ *   context switches = segments following a segment of another job
+ *
+ * If jobs have deadlines it also counts the jobs finished after their
+ * deadline, the lateness finish - deadline summed over them, and the jobs
+ * never run because admission control rejected them.
+ *
+ * A job is finished by the segment which uses up its service time, so
+ * its times go into the histograms at once and nothing is sorted. The
+ * state is a few ints per job and four fixed-size histograms.
+ */
+public class Metrics implements TimelineSink {
+
+    // Tr/Ts is recorded in the histogram multiplied by this
+    private static final int RATIO_SCALE = 1000;
+
+    // percentiles of the summary
+    private static final double[] PERCENTILES = {50, 95, 99};
+
+    /**
+     * @param jobs table of jobs to be scheduled
+     */
+    public Metrics(JobTable jobs) {
+        this.jobs = jobs;
+        int n = jobs.size();
+        remaining = new int[n];
+        start = new int[n];
+        finish = new int[n];
+        long first = n == 0 ? 0 : Long.MAX_VALUE;
+        int timed = 0;
+        for (int i = 0; i < n; i++) {
+            remaining[i] = jobs.getServiceTime(i);
+            start[i] = -1;
+            finish[i] = -1;
+            first = Math.min(first, jobs.getArrivalTime(i));
+            if (jobs.getDeadline(i) != JobTable.NO_DEADLINE) {
+                timed++;
+            }
+        }
+        deadlines = timed;
+        firstArrival = first;
+        lastFinish = first;
+    }
+
+    @Override
+    public void segment(int job, String name, int from, int to) {
+        if (lastJob != -1 && lastJob != job) {
+            switches++;
+        }
+        lastJob = job;
+        busy += to - from;
+        int arrival = jobs.getArrivalTime(job);
+        if (start[job] == -1) {
+            start[job] = from;
+            response.record(from - arrival);
+            responseSum += from - arrival;
+        }
+        remaining[job] -= to - from;
+        if (remaining[job] <= 0 && finish[job] == -1) {
+            finish[job] = to;
+            long turnaround = (long) to - arrival;
+            int service = jobs.getServiceTime(job);
+            double ratio = (double) turnaround / Math.max(service, 1);
+            this.turnaround.record(turnaround);
+            waiting.record(turnaround - service);
+            normalized.record(Math.round(ratio * RATIO_SCALE));
+            turnaroundSum += turnaround;
+            waitingSum += turnaround - service;
+            normalizedSum += ratio;
+            finished++;
+            lastFinish = Math.max(lastFinish, to);
+            int deadline = jobs.getDeadline(job);
+            if (to > deadline) {
+                missed++;
+                lateness += to - deadline;
+            }
+        }
+    }
+
+    /**
+     * @return number of finished jobs
+     */
+    public long getFinished() {
+        return finished;
+    }
+
+    public long getContextSwitches() {
+        return switches;
+    }
+
+    public double getMeanTurnaround() {
+        return finished == 0 ? 0 : (double) turnaroundSum / finished;
+    }
+
+    public double getMeanWaiting() {
+        return finished == 0 ? 0 : (double) waitingSum / finished;
+    }
+
+    public double getMeanResponse() {
+        return response.count() == 0 ? 0
+                : (double) responseSum / response.count();
+    }
+
+    public double getMeanNormalizedTurnaround() {
+        return finished == 0 ? 0 : normalizedSum / finished;
+    }
+
+    /**
+     * @return number of jobs with a deadline
+     */
+    public long getDeadlines() {
+        return deadlines;
+    }
+
+    /**
+     * @return number of jobs finished after their deadline
+     */
+    public long getMissed() {
+        return missed;
+    }
+
+    /**
+     * @return jobs finished after their deadline divided by the jobs with
+     * a deadline
+     */
+    public double getMissRate() {
+        return deadlines == 0 ? 0 : (double) missed / deadlines;
+    }
+
+    /**
+     * @return sum of finish - deadline over the jobs which missed it
+     */
+    public long getLateness() {
+        return lateness;
+    }
+
+    /**
+     * @return number of jobs which never ran, admission control rejected
+     * them
+     */
+    public long getRejected() {
+        return jobs.size() - finished;
+    }
+
+    /**
+     * @return time from the first arrival to the last finish
+     */
+    public long getMakespan() {
+        return lastFinish - firstArrival;
+    }
+
+    /**
+     * @return finished jobs per time unit
+     */
+    public double getThroughput() {
+        return getMakespan() == 0 ? 0 : (double) finished / getMakespan();
+    }
+
+    /**
+     * @return busy time of the CPU divided by the makespan
+     */
+    public double getUtilization() {
+        return getMakespan() == 0 ? 0 : (double) busy / getMakespan();
+    }
+
+    public Histogram getTurnaround() {
+        return turnaround;
+    }
+
+    public Histogram getWaiting() {
+        return waiting;
+    }
+
+    public Histogram getResponse() {
+        return response;
+    }
+
+    /**
+     * @return histogram of Tr/Ts multiplied by 1000
+     */
+    public Histogram getNormalizedTurnaround() {
+        return normalized;
+    }
+
+    /**
+     * Writes the summary, optionally preceded by one line per job:
+     * "name arrival service start finish Tr wait response Tr/Ts"
+     *
+     * @param out output
+     * @param perJob true to write the lines of jobs
+     * @throws IOException if the output can not be written
+     */
+    public void write(Writer out, boolean perJob) throws IOException {
+        if (perJob) {
+            out.write("# name\tarrival\tservice\tstart\tfinish\tTr\twait"
+                    + "\tresponse\tTr/Ts\n");
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < jobs.size(); i++) {
+                int arrival = jobs.getArrivalTime(i);
+                int service = jobs.getServiceTime(i);
+                line.setLength(0);
+                line.append(jobs.getName(i)).append('\t').append(arrival)
+                        .append('\t').append(service).append('\t')
+                        .append(start[i]).append('\t').append(finish[i]);
+                if (finish[i] != -1) {
+                    long turnaround = (long) finish[i] - arrival;
+                    long thousandths = Math.round((double) turnaround
+                            * RATIO_SCALE / Math.max(service, 1));
+                    line.append('\t').append(turnaround).append('\t')
+                            .append(turnaround - service).append('\t')
+                            .append(start[i] - arrival).append('\t')
+                            .append(thousandths / RATIO_SCALE).append('.');
+                    String fraction = Long.toString(thousandths
+                            % RATIO_SCALE + RATIO_SCALE);
+                    line.append(fraction, 1, fraction.length());
+                }
+                out.write(line.append('\n').toString());
+            }
+        }
+        out.write(String.format("jobs              %d%n", jobs.size()));
+        out.write(String.format("finished          %d%n", finished));
+        out.write(String.format("makespan          %d%n", getMakespan()));
+        out.write(String.format("throughput        %.4f jobs per time unit%n",
+                getThroughput()));
+        out.write(String.format("utilization       %.2f %%%n",
+                getUtilization() * 100));
+        out.write(String.format("context switches  %d%n", switches));
+        if (jobs.hasDeadlines()) {
+            out.write(String.format("deadlines         %d, missed %d "
+                    + "(%.2f %%), total lateness %d%n", deadlines, missed,
+                    getMissRate() * 100, lateness));
+            out.write(String.format("rejected          %d%n",
+                    getRejected()));
+        }
+        out.write(String.format("%-16s %10s", "", "mean"));
+        for (double p : PERCENTILES) {
+            out.write(String.format(" %10s", "p" + (int) p));
+        }
+        out.write(String.format(" %10s%n", "max"));
+        row(out, "turnaround", getMeanTurnaround(), turnaround, 1);
+        row(out, "waiting", getMeanWaiting(), waiting, 1);
+        row(out, "response", getMeanResponse(), response, 1);
+        row(out, "Tr/Ts", getMeanNormalizedTurnaround(), normalized,
+                RATIO_SCALE);
+        out.flush();
+    }
+
+    private static void row(Writer out, String name, double mean,
+            Histogram histogram, int scale) throws IOException {
+        out.write(String.format("%-16s %10.3f", name, mean));
+        for (double p : PERCENTILES) {
+            out.write(String.format(" %10.3f",
+                    (double) histogram.percentile(p) / scale));
+        }
+        out.write(String.format(" %10.3f%n", (double) histogram.max()
+                / scale));
+    }
+
+    private final JobTable jobs;
+    // per job: service time left, first start, finish or -1
+    private final int[] remaining;
+    private final int[] start;
+    private final int[] finish;
+    private final long firstArrival;
+    private long lastFinish;
+    private int lastJob = -1;
+    private long switches;
+    private long busy;
+    private long finished;
+    // jobs with a deadline, those finished after it and by how much
+    private final long deadlines;
+    private long missed;
+    private long lateness;
+    private long turnaroundSum;
+    private long waitingSum;
+    private long responseSum;
+    private double normalizedSum;
+    private final Histogram turnaround = new Histogram();
+    private final Histogram waiting = new Histogram();
+    private final Histogram response = new Histogram();
+    private final Histogram normalized = new Histogram();
+}
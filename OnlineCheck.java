@@ -0,0 +1,159 @@
+
+import java.util.Random;
+
+/**
+ * class OnlineCheck feeds synthetic workloads job by job into the
+ * SchedulerEngine of every algorithm, advancing the clock by random steps
+ * between submissions, and checks that the decisions are those of the
+ * batch schedule. Most jobs get a deadline for EDF and LLF and some a
+ * weight for LOTTERY, STRIDE and CFS. Prints OK or the first difference.
+ *
+ * Usage: java OnlineCheck [jobs] [seeds]
+ */
+public class OnlineCheck {
+
+    // algorithms checked besides the defaults of ALL
+    private static final String[] ALGORITHMS = {
+        "FCFS", "RR", "SPN", "SRT", "HRRN", "FB", "RR:4", "FB:1,2,4",
+        "MLFQ:4,1,2,20", "LOTTERY:2,7", "STRIDE:3", "CFS", "CFS:6,2",
+        "EDF", "EDF:1", "LLF", "LLF:3,1"
+    };
+
+    /**
+     * Sink which turns the merged segments of a batch run into decisions:
+     * pairs of time and job taking the CPU, -1 when it becomes idle
+     */
+    private static class DecisionSink implements TimelineSink {
+
+        @Override
+        public void segment(int job, String name, int start, int end) {
+            if (count > 0 && start > lastEnd) {
+                add(lastEnd, SchedulerEngine.IDLE);
+            }
+            add(start, job);
+            lastEnd = end;
+        }
+
+        @Override
+        public void finish() {
+            if (count > 0) {
+                add(lastEnd, SchedulerEngine.IDLE);
+            }
+        }
+
+        private void add(int time, int job) {
+            decisions.add(time);
+            decisions.add(job);
+            count++;
+        }
+
+        final IntQueue decisions = new IntQueue();
+        private int count;
+        private int lastEnd;
+    }
+
+    /**
+     * Main function
+     * @param args number of jobs of every workload, number of seeds
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int seeds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int runs = 0;
+        for (String shape : Workloads.SHAPES) {
+            for (long seed = 1; seed <= seeds; seed++) {
+                JobTable jobs = withDeadlines(Workloads.create(shape, n,
+                        seed), new Random(seed));
+                for (String algorithm : ALGORITHMS) {
+                    String error = check(algorithm, jobs, new Random(seed));
+                    if (error != null) {
+                        System.out.println(algorithm + " on " + shape
+                                + " seed " + seed + ": " + error);
+                        System.exit(1);
+                    }
+                    runs++;
+                }
+            }
+        }
+        System.out.println("OK " + runs + " runs");
+    }
+
+    /**
+     * Compares the online decisions with the batch schedule
+     *
+     * @param algorithm name of scheduling algorithm with parameters
+     * @param jobs jobs sorted by arrival time
+     * @param random source of the steps of the clock
+     * @return description of the first difference or null
+     */
+    private static String check(String algorithm, JobTable jobs,
+            Random random) {
+        DecisionSink batch = new DecisionSink();
+        Scheduler.schedule(algorithm, jobs, batch);
+
+        SchedulerEngine engine = SchedulerEngine.create(algorithm);
+        IntQueue online = new IntQueue();
+        int time = Integer.MIN_VALUE;
+        for (int i = 0; i < jobs.size(); i++) {
+            int arrival = jobs.getArrivalTime(i);
+            // step somewhere before the arrival, or not at all
+            if (arrival - 1 > time && random.nextBoolean()) {
+                time = time == Integer.MIN_VALUE ? arrival - 1
+                        : time + random.nextInt(arrival - time);
+                engine.advanceTo(time);
+                read(engine, online);
+            }
+            engine.submit(jobs.getName(i), jobs.getServiceTime(i), arrival,
+                    jobs.getWeight(i), jobs.getDeadline(i));
+        }
+        engine.advanceTo(Integer.MAX_VALUE);
+        read(engine, online);
+
+        for (int k = 0; !batch.decisions.isEmpty(); k++) {
+            int t = batch.decisions.poll();
+            int job = batch.decisions.poll();
+            if (online.isEmpty()) {
+                return "decision " + k + " (" + job + " at " + t
+                        + ") is missing";
+            }
+            int onlineTime = online.poll();
+            int onlineJob = online.poll();
+            if (t != onlineTime || job != onlineJob) {
+                return "decision " + k + " is " + onlineJob + " at "
+                        + onlineTime + ", expected " + job + " at " + t;
+            }
+        }
+        return online.isEmpty() ? null : "online has more decisions";
+    }
+
+    /**
+     * Copies the jobs giving three of four jobs a deadline between their
+     * arrival plus service time and five times as late, and one of three
+     * jobs a weight from 2 to 5
+     *
+     * @param jobs jobs sorted by arrival time
+     * @param random source of the deadlines
+     * @return new table
+     */
+    private static JobTable withDeadlines(JobTable jobs, Random random) {
+        JobTable copy = new JobTable(jobs.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            int arrival = jobs.getArrivalTime(i);
+            int service = jobs.getServiceTime(i);
+            long deadline = random.nextInt(4) == 0 ? JobTable.NO_DEADLINE
+                    : arrival + service * (1L + random.nextInt(5));
+            int weight = random.nextInt(3) == 0 ? 2 + random.nextInt(4)
+                    : jobs.getWeight(i);
+            copy.add(jobs.getName(i), arrival, service, weight,
+                    (int) Math.min(deadline, JobTable.NO_DEADLINE));
+        }
+        return copy;
+    }
+
+    private static void read(SchedulerEngine engine, IntQueue decisions) {
+        for (int job; (job = engine.nextDecision()) != SchedulerEngine.NONE; ) {
+            decisions.add(engine.decisionTime());
+            decisions.add(job);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+
+/**
+ * class OnlineEngine runs a Policy on the EventEngine while jobs are
+ * submitted. Jobs go into a growing JobTable; the engine never looks
+ * beyond the time it was advanced to, so a job submitted later can not
+ * change what was already decided. The work of a call is that of the
+ * events it simulates, the tables grow by doubling.
+ */
+public class OnlineEngine implements SchedulerEngine {
+
+    /**
+     * Creates the engine of the scheduling algorithm
+     *
+     * @param algorithm name of scheduling algorithm with parameters
+     * @return engine or null if the algorithm or its parameters are unknown
+     */
+    public static OnlineEngine create(String algorithm) {
+        JobTable jobs = new JobTable();
+        EventEngine engine = EventEngine.online(jobs);
+        EventEngine.Policy policy = Scheduler.policy(algorithm, engine);
+        return policy == null ? null : new OnlineEngine(jobs, engine, policy);
+    }
+
+    private OnlineEngine(JobTable jobs, EventEngine engine,
+            EventEngine.Policy policy) {
+        this.jobs = jobs;
+        this.engine = engine;
+        engine.begin(policy, (job, name, start, end) -> {
+        });
+    }
+
+    @Override
+    public int submit(String name, int serviceTime, int time) {
+        return submit(name, serviceTime, time, JobTable.NO_DEADLINE);
+    }
+
+    @Override
+    public int submit(String name, int serviceTime, int time, int deadline) {
+        return submit(name, serviceTime, time, 1, deadline);
+    }
+
+    @Override
+    public int submit(String name, int serviceTime, int time, int weight,
+            int deadline) {
+        if (serviceTime <= 0) {
+            throw new IllegalArgumentException("Service time " + serviceTime
+                    + " of job " + name + " is not positive");
+        }
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight " + weight
+                    + " of job " + name + " is not positive");
+        }
+        if (time <= horizon) {
+            throw new IllegalStateException("Job " + name + " arrives at "
+                    + time + ", the engine is already at " + horizon);
+        }
+        if (jobs.size() > 0 && time < lastArrival) {
+            throw new IllegalStateException("Job " + name + " arrives at "
+                    + time + " before the previous job at " + lastArrival);
+        }
+        if (deadline < 0) {
+            throw new IllegalArgumentException("Deadline " + deadline
+                    + " of job " + name + " is negative");
+        }
+        int job = jobs.add(name, time, serviceTime, weight, deadline);
+        lastArrival = time;
+        engine.submitted();
+        return job;
+    }
+
+    @Override
+    public void advanceTo(int time) {
+        if (time < horizon) {
+            throw new IllegalStateException("Time " + time
+                    + " is before the time of the engine " + horizon);
+        }
+        horizon = time;
+        engine.advanceTo(time);
+    }
+
+    @Override
+    public int nextDecision() {
+        return engine.nextDecision();
+    }
+
+    @Override
+    public int decisionTime() {
+        return engine.decisionTime;
+    }
+
+    /**
+     * @return table of submitted jobs
+     */
+    public JobTable getJobs() {
+        return jobs;
+    }
+
+    private final JobTable jobs;
+    private final EventEngine engine;
+    // time the engine was advanced to
+    private int horizon = Integer.MIN_VALUE;
+    private int lastArrival;
+}
@@ -0,0 +1,222 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * class ParallelRunner runs several scheduling algorithms at the same
+ * time over one frozen JobTable. Every algorithm runs on its own fork of
+ * the table. The first algorithm not yet finished writes straight into
+ * the output; the ones after it keep up to SPILL_CHARS of their output in
+ * memory and the rest in a temporary file, which is copied into the
+ * output when all algorithms before it are finished, and from then on
+ * they write straight into the output too. The output is that of the
+ * algorithms run one after another, and no algorithm holds its whole
+ * output in memory.
+ */
+public class ParallelRunner {
+
+    // output of an algorithm kept in memory before it goes to a file
+    static final int SPILL_CHARS = 1 << 20;
+
+    /**
+     * Interface Renderer runs one algorithm and writes its output
+     */
+    public interface Renderer {
+
+        /**
+         * @param algorithm name of scheduling algorithm
+         * @param jobs table of jobs owned by the caller
+         * @param out output of the algorithm
+         * @throws IOException if the output can not be written
+         */
+        void render(String algorithm, JobTable jobs, Writer out)
+                throws IOException;
+    }
+
+    /**
+     * Runs the algorithms in parallel
+     *
+     * @param algorithms names of scheduling algorithms
+     * @param jobs table of jobs, it is frozen
+     * @param threads number of threads
+     * @param renderer runs one algorithm
+     * @param out output of all algorithms in order
+     * @throws IOException if the output can not be written
+     */
+    public static void run(String[] algorithms, JobTable jobs, int threads,
+            Renderer renderer, Writer out) throws IOException {
+        jobs.freeze();
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(threads, algorithms.length)));
+        Spill[] spills = new Spill[algorithms.length];
+        try {
+            ArrayList<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < algorithms.length; i++) {
+                String algorithm = algorithms[i];
+                Spill spill = new Spill(out);
+                spills[i] = spill;
+                results.add(pool.submit(() -> {
+                    renderer.render(algorithm, jobs.fork(), spill);
+                    return null;
+                }));
+            }
+            for (int i = 0; i < algorithms.length; i++) {
+                // all before it are written, the rest of it goes straight
+                // into the output
+                spills[i].drain();
+                results.get(i).get();
+                out.flush();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        } finally {
+            pool.shutdownNow();
+            for (Spill spill : spills) {
+                if (spill != null) {
+                    spill.discard();
+                }
+            }
+        }
+    }
+
+    /**
+     * class Spill is the output of one algorithm: memory, then a temporary
+     * file, until it is drained into the output, then the output itself
+     */
+    private static class Spill extends Writer {
+
+        /**
+         * @param target output of all algorithms
+         */
+        Spill(Writer target) {
+            this.target = target;
+        }
+
+        @Override
+        public synchronized void write(char[] chars, int offset, int length)
+                throws IOException {
+            if (direct) {
+                target.write(chars, offset, length);
+                return;
+            }
+            if (discarded) {
+                throw new IOException("Output is discarded");
+            }
+            if (file == null && size + length <= SPILL_CHARS) {
+                if (size + length > memory.length) {
+                    memory = Arrays.copyOf(memory, Math.min(SPILL_CHARS,
+                            Math.max(size + length, memory.length * 2)));
+                }
+                System.arraycopy(chars, offset, memory, size, length);
+                size += length;
+                return;
+            }
+            if (file == null) {
+                file = Files.createTempFile("scheduler", ".out");
+                fileOut = new BufferedWriter(new OutputStreamWriter(
+                        Files.newOutputStream(file), StandardCharsets.UTF_8),
+                        1 << 16);
+                fileOut.write(memory, 0, size);
+                memory = null;
+                size = 0;
+            }
+            fileOut.write(chars, offset, length);
+        }
+
+        @Override
+        public synchronized void write(String text, int offset, int length)
+                throws IOException {
+            if (direct) {
+                target.write(text, offset, length);
+            } else {
+                super.write(text, offset, length);
+            }
+        }
+
+        /**
+         * Writes what was kept into the output, later writes go straight
+         * into it
+         *
+         * @throws IOException if the output can not be written
+         */
+        synchronized void drain() throws IOException {
+            if (file == null) {
+                target.write(memory, 0, size);
+            } else {
+                fileOut.close();
+                fileOut = null;
+                char[] buffer = new char[1 << 16];
+                try (Reader in = Files.newBufferedReader(file,
+                        StandardCharsets.UTF_8)) {
+                    for (int n; (n = in.read(buffer)) > 0; ) {
+                        target.write(buffer, 0, n);
+                    }
+                }
+                Files.delete(file);
+                file = null;
+            }
+            memory = null;
+            size = 0;
+            direct = true;
+        }
+
+        /**
+         * Deletes the temporary file, later writes fail
+         */
+        synchronized void discard() {
+            direct = false;
+            discarded = true;
+            memory = null;
+            try {
+                if (fileOut != null) {
+                    fileOut.close();
+                }
+                if (file != null) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException ex) {
+                // the file is temporary
+            }
+            fileOut = null;
+            file = null;
+        }
+
+        @Override
+        public void flush() {
+            // the output is flushed when the algorithm is finished
+        }
+
+        @Override
+        public void close() {
+            // the output stays open for the next algorithm
+        }
+
+        private final Writer target;
+        private char[] memory = new char[8192];
+        private int size;
+        private Path file;
+        private Writer fileOut;
+        private boolean direct;
+        private boolean discarded;
+    }
+}
@@ -0,0 +1,1420 @@
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * class Policies contains the scheduling policies which run on the
+ * EventEngine: FCFS, SPN, SRT, HRRN, feedback queues (RR and FB), the
+ * proportional-share policies LOTTERY and STRIDE, the fair scheduler CFS
+ * and the deadline policies EDF and LLF
+ */
+public class Policies {
+
+    /**
+     * FCFS policy: jobs run till completion in the order of arrival
+     */
+    static class Fcfs implements EventEngine.Policy {
+
+        @Override
+        public void arrive(int job, int time) {
+            q.add(job);
+        }
+
+        @Override
+        public int select(int time) {
+            return q.isEmpty() ? -1 : q.poll();
+        }
+
+        @Override
+        public int quantum(int job) {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void expire(int job, int time) {
+        }
+
+        @Override
+        public int preempt(int running, int time) {
+            return -1;
+        }
+
+        @Override
+        public boolean steady(int job) {
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return q.size();
+        }
+
+        @Override
+        public Fcfs sibling() {
+            return new Fcfs();
+        }
+
+        private final IntQueue q = new IntQueue();
+    }
+
+    /**
+     * SPN policy: the shortest job runs till completion. A job which
+     * arrives exactly when the CPU becomes free runs first.
+     */
+    static class Spn implements EventEngine.Policy {
+
+        public Spn(EventEngine engine) {
+            this.engine = engine;
+            // order by service time then by name
+            q = new IntHeap((a, b) -> compare(engine.service, engine, a, b));
+        }
+
+        @Override
+        public void arrive(int job, int time) {
+            arrived.add(job);
+        }
+
+        @Override
+        public int select(int time) {
+            // jobs which have been waiting compete by service time
+            while (!arrived.isEmpty()
+                    && engine.arrival[arrived.peek()] < time) {
+                q.add(arrived.poll());
+            }
+            if (!arrived.isEmpty()) {
+                // job arrived just now
+                return arrived.poll();
+            }
+            return q.isEmpty() ? -1 : q.poll();
+        }
+
+        @Override
+        public int quantum(int job) {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void expire(int job, int time) {
+        }
+
+        @Override
+        public int preempt(int running, int time) {
+            return -1;
+        }
+
+        @Override
+        public boolean steady(int job) {
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return arrived.size() + q.size();
+        }
+
+        @Override
+        public Spn sibling() {
+            return new Spn(engine);
+        }
+
+        private final EventEngine engine;
+        private final IntQueue arrived = new IntQueue();
+        private final IntHeap q;
+    }
+
+    /**
+     * SRT policy: the job with the shortest remaining time runs. At every
+     * arrival the best waiting job preempts the running one if it is
+     * shorter than the running job was at its dispatch. The remaining time
+     * at dispatch is kept in the priority column.
+     */
+    static class Srt implements EventEngine.Policy {
+
+        public Srt(EventEngine engine) {
+            this.engine = engine;
+            // order by remaining time then by name
+            q = new IntHeap((a, b) -> compare(engine.remaining, engine, a, b));
+        }
+
+        @Override
+        public void arrive(int job, int time) {
+            q.add(job);
+        }
+
+        @Override
+        public int select(int time) {
+            if (q.isEmpty()) {
+                return -1;
+            }
+            int job = q.poll();
+            engine.priority[job] = engine.remaining[job];
+            return job;
+        }
+
+        @Override
+        public int quantum(int job) {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void expire(int job, int time) {
+        }
+
+        @Override
+        public int preempt(int running, int time) {
+            if (q.isEmpty()
+                    || engine.remaining[q.peek()] >= engine.priority[running]) {
+                return -1;
+            }
+            // the shorter job takes the place of the running one
+            int job = q.replaceTop(running);
+            engine.priority[job] = engine.remaining[job];
+            return job;
+        }
+
+        @Override
+        public boolean steady(int job) {
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return q.size();
+        }
+
+        @Override
+        public Srt sibling() {
+            return new Srt(engine);
+        }
+
+        private final EventEngine engine;
+        private final IntHeap q;
+    }
+
+    /**
+     * SRT policy which scans all ready jobs on every dispatch, O(n) per
+     * dispatch. Kept as the reference for Srt.
+     */
+    static class SrtScan implements EventEngine.Policy {
+
+        public SrtScan(EventEngine engine) {
+            this.engine = engine;
+        }
+
+        @Override
+        public void arrive(int job, int time) {
+            if (size == ready.length) {
+                ready = Arrays.copyOf(ready, size * 2);
+            }
+            ready[size++] = job;
+        }
+
+        @Override
+        public int select(int time) {
+            if (size == 0) {
+                return -1;
+            }
+            int best = best();
+            int job = ready[best];
+            ready[best] = ready[--size];
+            engine.priority[job] = engine.remaining[job];
+            return job;
+        }
+
+        /**
+         * @return position of the ready job with the shortest remaining
+         * time
+         */
+        private int best() {
+            int best = 0;
+            for (int i = 1; i < size; i++) {
+                if (compare(engine.remaining, engine, ready[i],
+                        ready[best]) < 0) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        @Override
+        public int quantum(int job) {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void expire(int job, int time) {
+        }
+
+        @Override
+        public int preempt(int running, int time) {
+            if (size == 0 || engine.remaining[ready[best()]]
+                    >= engine.priority[running]) {
+                return -1;
+            }
+            int job = select(time);
+            arrive(running, time);
+            return job;
+        }
+
+        @Override
+        public boolean steady(int job) {
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public SrtScan sibling() {
+            return new SrtScan(engine);
+        }
+
+        private final EventEngine engine;
+        // arrived jobs in no particular order
+        private int[] ready = new int[16];
+        private int size;
+    }
+
+    /**
+     * HRRN policy: the job with the highest response ratio
+     * (wait + service) / service runs till completion. On equal ratios the
+     * job listed later in the input is taken. Ready jobs are kept in a
+     * RatioTree, so a dispatch costs O(log n).
+     */
+    static class Hrrn implements EventEngine.Policy {
+
+        public Hrrn(EventEngine engine) {
+            this(engine, new RatioTree(engine.arrival, engine.service,
+                    engine.n));
+        }
+
+        private Hrrn(EventEngine engine, RatioTree ready) {
+            this.engine = engine;
+            this.ready = ready;
+        }
+
+        @Override
+        public void grow() {
+            ready.grow(engine.arrival, engine.service, engine.n);
+        }
+
+        @Override
+        public void arrive(int job, int time) {
+            ready.add(job, time);
+        }
+
+        @Override
+        public int select(int time) {
+            return ready.isEmpty() ? -1 : ready.poll(time);
+        }
+
+        @Override
+        public int quantum(int job) {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void expire(int job, int time) {
+        }
+
+        @Override
+        public int preempt(int running, int time) {
+            return -1;
+        }
+
+        @Override
+        public boolean steady(int job) {
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return ready.size();
+        }
+
+        @Override
+        public Hrrn sibling() {
+            return new Hrrn(engine, new RatioTree(ready));
+        }
+
+        private final EventEngine engine;
+        private final RatioTree ready;
+    }
+
+    /**
+     * HRRN policy which scans all ready jobs on every dispatch, O(n) per
+     * dispatch. Kept as the reference for Hrrn.
+     */
+    static class HrrnScan implements EventEngine.Policy {
+
+        public HrrnScan(EventEngine engine) {
+            this.engine = engine;
+        }
+
+        @Override
+        public void arrive(int job, int time) {
+            if (size == ready.length) {
+                ready = Arrays.copyOf(ready, size * 2);
+            }
+            ready[size++] = job;
+        }
+
+        @Override
+        public int select(int time) {
+            if (size == 0) {
+                return -1;
+            }
+            // find the maximum ratio
+            int best = 0;
+            for (int i = 1; i < size; i++) {
+                int cmp = compareRatio(ready[i], ready[best], time);
+                if (cmp > 0 || (cmp == 0 && ready[i] > ready[best])) {
+                    best = i;
+                }
+            }
+            int job = ready[best];
+            // remove it by moving the last one in its place
+            ready[best] = ready[--size];
+            return job;
+        }
+
+        /**
+         * Compares response ratios of two jobs exactly
+         *
+         * @param a index of the first job
+         * @param b index of the second job
+         * @param time current time
+         * @return negative, zero or positive as ratio of a is less, equal
+         * or greater than ratio of b
+         */
+        private int compareRatio(int a, int b, int time) {
+            int[] arrival = engine.arrival;
+            int[] service = engine.service;
+            long ra = (long) (time - arrival[a] + service[a]) * service[b];
+            long rb = (long) (time - arrival[b] + service[b]) * service[a];
+            return Long.compare(ra, rb);
+        }
+
+        @Override
+        public int quantum(int job) {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void expire(int job, int time) {
+        }
+
+        @Override
+        public int preempt(int running, int time) {
+            return -1;
+        }
+
+        @Override
+        public boolean steady(int job) {
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public HrrnScan sibling() {
+            return new HrrnScan(engine);
+        }
+
+        private final EventEngine engine;
+        // arrived jobs in no particular order
+        private int[] ready = new int[16];
+        private int size;
+    }
+
+    /**
+     * Feedback policy with several FIFO levels (MLFQ). New jobs enter the
+     * first level, a job whose quantum expires moves one level down, the
+     * last level is round robin. The first non-empty level is served first,
+     * it is found in a bit set of non-empty levels. RR is the feedback
+     * policy with two levels. The level of a job is kept in the priority
+     * column.
+     *
+     * With a boost period every job goes back to the first level at every
+     * multiple of the period, so long jobs do not starve. The queues of the
+     * levels are appended to the first level as a whole, so a boost costs
+     * O(levels). Every job is stamped with the boost period in which it got
+     * its level; a job with an older stamp is on the first level. The
+     * stamps are shared with the siblings, the period is given by the time,
+     * so the CPUs agree on it.
+     */
+    static class Feedback implements EventEngine.Policy {
+
+        // most levels
+        static final int MAX_LEVELS = 1 << 16;
+
+        /**
+         * @param engine simulation engine
+         * @param quanta quantum of every level
+         */
+        public Feedback(EventEngine engine, int[] quanta) {
+            this(engine, quanta, 0);
+        }
+
+        /**
+         * @param engine simulation engine
+         * @param quanta quantum of every level, at most MAX_LEVELS
+         * @param boost boost period or 0 for no boost
+         */
+        public Feedback(EventEngine engine, int[] quanta, int boost) {
+            this(engine, quanta, boost, boost == 0 ? null
+                    : new int[][]{new int[engine.arrival.length]});
+        }
+
+        /**
+         * @param engine simulation engine
+         * @param quanta quantum of every level, at most MAX_LEVELS
+         * @param boost boost period or 0 for no boost
+         * @param stamp boost period of the level of every job, shared by
+         * the siblings, or null for no boost
+         */
+        private Feedback(EventEngine engine, int[] quanta, int boost,
+                int[][] stamp) {
+            if (quanta.length == 0 || quanta.length > MAX_LEVELS) {
+                throw new IllegalArgumentException("Invalid number of levels "
+                        + quanta.length);
+            }
+            this.quanta = quanta;
+            this.engine = engine;
+            this.boost = boost;
+            this.stamp = stamp;
+            nextBoost = boost == 0 ? Long.MAX_VALUE : boost;
+            levels = new IntQueue[quanta.length];
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = new IntQueue();
+            }
+            nonEmpty = new long[(quanta.length + 63) >>> 6];
+        }
+
+        /**
+         * Quanta growing geometrically: quantum * growth^i on level i
+         *
+         * @param levels number of levels
+         * @param quantum quantum of the first level
+         * @param growth growth per level, 1 for constant quanta
+         * @return quanta
+         */
+        static int[] geometric(int levels, int quantum, int growth) {
+            int[] quanta = new int[levels];
+            long q = quantum;
+            for (int i = 0; i < levels; i++) {
+                quanta[i] = (int) q;
+                q = Math.min(q * growth, Integer.MAX_VALUE);
+            }
+            return quanta;
+        }
+
+        @Override
+        public void arrive(int job, int time) {
+            boostTill(time);
+            setLevel(job, 0);
+            add(0, job);
+        }
+
+        @Override
+        public int select(int time) {
+            boostTill(time);
+            for (int w = 0; w < nonEmpty.length; w++) {
+                if (nonEmpty[w] != 0) {
+                    int level = (w << 6) + Long.numberOfTrailingZeros(
+                            nonEmpty[w]);
+                    int job;
+                    if (level == 0 && !boosted.isEmpty()) {
+                        // jobs boosted before the first level
+                        IntQueue q = boosted.peek();
+                        job = q.poll();
+                        if (q.isEmpty()) {
+                            spare.add(boosted.poll());
+                        }
+                    } else {
+                        job = levels[level].poll();
+                    }
+                    if (isEmpty(level)) {
+                        nonEmpty[w] &= ~(1L << level);
+                    }
+                    size--;
+                    // the level is read by quantum, also on another CPU
+                    setLevel(job, level(job));
+                    return job;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int quantum(int job) {
+            return quanta[engine.priority[job]];
+        }
+
+        @Override
+        public void expire(int job, int time) {
+            boostTill(time);
+            // move the job one level down
+            int level = Math.min(level(job) + 1, levels.length - 1);
+            setLevel(job, level);
+            add(level, job);
+        }
+
+        @Override
+        public int preempt(int running, int time) {
+            return -1;
+        }
+
+        @Override
+        public boolean steady(int job) {
+            // a boost changes the slices of the last level
+            return boost == 0
+                    && engine.priority[job] == levels.length - 1;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void grow() {
+            if (stamp != null && stamp[0].length < engine.arrival.length) {
+                stamp[0] = Arrays.copyOf(stamp[0], engine.arrival.length);
+            }
+        }
+
+        @Override
+        public Feedback sibling() {
+            return new Feedback(engine, quanta, boost, stamp);
+        }
+
+        /**
+         * @param job index of the job
+         * @return level of the job, 0 if a boost came after it got the
+         * level
+         */
+        private int level(int job) {
+            return stamp == null || stamp[0][job] == period
+                    ? engine.priority[job] : 0;
+        }
+
+        private void setLevel(int job, int level) {
+            engine.priority[job] = level;
+            if (stamp != null) {
+                stamp[0][job] = period;
+            }
+        }
+
+        private boolean isEmpty(int level) {
+            return levels[level].isEmpty()
+                    && (level != 0 || boosted.isEmpty());
+        }
+
+        private void add(int level, int job) {
+            levels[level].add(job);
+            nonEmpty[level >>> 6] |= 1L << level;
+            size++;
+        }
+
+        /**
+         * Moves all waiting jobs to the first level if a boost time has
+         * passed: the queues of the levels are appended in order
+         *
+         * @param time current time
+         */
+        private void boostTill(int time) {
+            if (time < nextBoost) {
+                return;
+            }
+            period = time / boost;
+            nextBoost = (period + 1L) * boost;
+            for (int w = 0; w < nonEmpty.length; w++) {
+                for (long bits = nonEmpty[w]; bits != 0; bits &= bits - 1) {
+                    int level = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    if (!levels[level].isEmpty()) {
+                        boosted.add(levels[level]);
+                        levels[level] = spare.isEmpty() ? new IntQueue()
+                                : spare.poll();
+                    }
+                }
+                nonEmpty[w] = 0;
+            }
+            if (!boosted.isEmpty()) {
+                nonEmpty[0] = 1;
+            }
+        }
+
+        private final int[] quanta;
+        private final EventEngine engine;
+        private final IntQueue[] levels;
+        // bit set of non-empty levels
+        private final long[] nonEmpty;
+        private final int boost;
+        private final int[][] stamp;
+        // queues moved to the first level by boosts, served in order
+        // before the first level
+        private final ArrayDeque<IntQueue> boosted = new ArrayDeque<>();
+        // empty queues for the levels
+        private final ArrayDeque<IntQueue> spare = new ArrayDeque<>();
+        private long nextBoost;
+        // boost period of the last boost
+        private int period;
+        private int size;
+    }
+
+    /**
+     * Lottery policy: every ready job holds as many tickets as its weight
+     * and at the end of every quantum a random ticket picks the next job.
+     * Ready jobs sit in slots of a Fenwick tree of ticket counts, so a pick
+     * and an update take O(log n); freed slots are reused and all slots are
+     * free again when no job is ready. The random ticket is a hash of the
+     * seed and the time, so the schedule does not depend on how the run is
+     * split (busy periods, online engine).
+     */
+    static class Lottery implements EventEngine.Policy {
+
+        /**
+         * @param engine simulation engine
+         * @param quantum quantum
+         * @param seed seed of the draws
+         */
+        public Lottery(EventEngine engine, int quantum, long seed) {
+            this.engine = engine;
+            this.quantum = quantum;
+            this.seed = seed;
+        }
+
+        @Override
+        public void arrive(int job, int time) {
+            add(job);
+        }
+
+        @Override
+        public int select(int time) {
+            if (size == 0) {
+                return -1;
+            }
+            // the slot holding the ticket: the first slot whose prefix sum
+            // of tickets exceeds the ticket
+            long ticket = Long.remainderUnsigned(draw(time), tree[capacity]);
+            int slot = 0;
+            for (int step = capacity >>> 1; step > 0; step >>>= 1) {
+                if (tree[slot + step] <= ticket) {
+                    slot += step;
+                    ticket -= tree[slot];
+                }
+            }
+            int job = slotJob[slot];
+            update(slot + 1, -weight(job));
+            free[freeCount++] = slot;
+            if (--size == 0) {
+                // the tree is all zeros
+                used = 0;
+                freeCount = 0;
+            }
+            return job;
+        }
+
+        @Override
+        public int quantum(int job) {
+            return quantum;
+        }
+
+        @Override
+        public void expire(int job, int time) {
+            add(job);
+        }
+
+        @Override
+        public int preempt(int running, int time) {
+            return -1;
+        }
+
+        @Override
+        public boolean steady(int job) {
+            // a job alone wins every draw
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Lottery sibling() {
+            return new Lottery(engine, quantum, seed);
+        }
+
+        private int weight(int job) {
+            return engine.weight == null ? 1 : engine.weight[job];
+        }
+
+        /**
+         * @param time current time
+         * @return random 64 bits of the time (SplitMix64)
+         */
+        private long draw(int time) {
+            long z = seed + (time + 1L) * 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+
+        private void add(int job) {
+            int slot;
+            if (freeCount > 0) {
+                slot = free[--freeCount];
+            } else {
+                if (used == capacity) {
+                    addSlots();
+                }
+                slot = used++;
+            }
+            slotJob[slot] = job;
+            update(slot + 1, weight(job));
+            size++;
+        }
+
+        /**
+         * Doubles the slots. The nodes of the old tree keep their ranges,
+         * of the new nodes only the root covers old slots.
+         */
+        private void addSlots() {
+            int old = capacity;
+            capacity *= 2;
+            slotJob = Arrays.copyOf(slotJob, capacity);
+            free = Arrays.copyOf(free, capacity);
+            tree = Arrays.copyOf(tree, capacity + 1);
+            tree[capacity] = tree[old];
+        }
+
+        private void update(int index, long delta) {
+            for (int i = index; i <= capacity; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        private final EventEngine engine;
+        private final int quantum;
+        private final long seed;
+        // Fenwick tree of tickets over slots, tree[capacity] is the total
+        private long[] tree = new long[2];
+        private int[] slotJob = new int[1];
+        // freed slots below used
+        private int[] free = new int[1];
+        private int freeCount;
+        // slots handed out
+        private int used;
+        private int capacity = 1;
+        private int size;
+    }
+
+    /**
+     * Stride policy: every job advances its pass by its stride, inversely
+     * proportional to its weight, for every quantum it runs, and the ready
+     * job with the least pass runs next. Ready jobs are in a heap ordered
+     * by pass; a pass only changes while its job runs, so the heap needs
+     * no index to update keys. A new job starts at the pass of the last
+     * selected job. Passes are compared by their difference, which stays
+     * small, so they may wrap around.
+     */
+    static class Stride implements EventEngine.Policy {
+
+        // stride of weight 1, every weight has a stride of at least 1
+        static final long STRIDE1 = 1L << 31;
+
+        /**
+         * @param engine simulation engine
+         * @param quantum quantum
+         */
+        public Stride(EventEngine engine, int quantum) {
+            this(engine, quantum,
+                    new long[][]{new long[engine.arrival.length]});
+        }
+
+        /**
+         * @param engine simulation engine
+         * @param quantum quantum
+         * @param pass pass of every job, shared by the siblings
+         */
+        private Stride(EventEngine engine, int quantum, long[][] pass) {
+            this.engine = engine;
+            this.quantum = quantum;
+            this.pass = pass;
+            // order by pass then by arrival
+            q = new IntHeap((a, b) -> {
+                long[] p = pass[0];
+                int c = Long.compare(p[a] - p[b], 0);
+                return c != 0 ? c : Integer.compare(a, b);
+            });
+        }
+
+        @Override
+        public void arrive(int job, int time) {
+            pass[0][job] = virtual;
+            q.add(job);
+        }
+
+        @Override
+        public int select(int time) {
+            if (q.isEmpty()) {
+                return -1;
+            }
+            int job = q.poll();
+            virtual = pass[0][job];
+            return job;
+        }
+
+        @Override
+        public int quantum(int job) {
+            return quantum;
+        }
+
+        @Override
+        public void expire(int job, int time) {
+            long[] p = pass[0];
+            p[job] += STRIDE1 / (engine.weight == null ? 1
+                    : engine.weight[job]);
+            // a job from another CPU does not keep an old pass
+            if (p[job] - virtual < 0) {
+                p[job] = virtual;
+            }
+            q.add(job);
+        }
+
+        @Override
+        public int preempt(int running, int time) {
+            return -1;
+        }
+
+        @Override
+        public boolean steady(int job) {
+            // alone, only passes relative to the job's own matter
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return q.size();
+        }
+
+        @Override
+        public void grow() {
+            if (pass[0].length < engine.arrival.length) {
+                pass[0] = Arrays.copyOf(pass[0], engine.arrival.length);
+            }
+        }
+
+        @Override
+        public Stride sibling() {
+            return new Stride(engine, quantum, pass);
+        }
+
+        private final EventEngine engine;
+        private final int quantum;
+        // pass of every job in pass[0], replaced when the table grows
+        private final long[][] pass;
+        private final IntHeap q;
+        // pass of the last selected job
+        private long virtual;
+    }
+
+    /**
+     * CFS policy after the Completely Fair Scheduler of Linux: every job
+     * accumulates virtual runtime, its service divided by its weight, and
+     * the ready job with the least virtual runtime runs next. A job gets
+     * the share of its weight of the period, which is the target latency
+     * or the granularity times the number of runnable jobs if that is
+     * longer, and at least the granularity.
+     *
+     * A new job starts one virtual slice after the minimum virtual runtime
+     * of the queue (START_DEBIT of Linux). It takes the CPU on arrival only
+     * if the running job is ahead of it by more than the granularity scaled
+     * to its weight (wakeup preemption). Otherwise the arrival shortens the
+     * slice of the running job to its share of the new period, and the job
+     * leaves the CPU once it has run that long.
+     *
+     * Ready jobs are in a heap ordered by virtual runtime; a virtual runtime
+     * only changes while its job runs, so the heap needs no index. The
+     * virtual runtime is computed from the service the job got, so slices
+     * joined by the engine are charged alike. Virtual runtimes are shared
+     * with the siblings, a job taken from another CPU starts at the
+     * minimum of its new queue.
+     */
+    static class Cfs implements EventEngine.Policy {
+
+        // virtual runtime of a unit of service at weight 1
+        static final long SCALE = 1L << 20;
+
+        /**
+         * @param engine simulation engine
+         * @param latency target latency, period in which every runnable job
+         * runs once
+         * @param granularity shortest slice
+         */
+        public Cfs(EventEngine engine, int latency, int granularity) {
+            this(engine, latency, granularity, new Shared(
+                    engine.arrival.length));
+        }
+
+        private Cfs(EventEngine engine, int latency, int granularity,
+                Shared shared) {
+            this.engine = engine;
+            this.latency = latency;
+            this.granularity = granularity;
+            this.shared = shared;
+            id = shared.queues++;
+            // order by virtual runtime then by arrival
+            q = new IntHeap((a, b) -> {
+                long[] v = shared.vruntime;
+                int c = Long.compare(v[a], v[b]);
+                return c != 0 ? c : Integer.compare(a, b);
+            });
+        }
+
+        @Override
+        public void arrive(int job, int time) {
+            // placed when the running job has been charged
+            pending.add(job);
+        }
+
+        @Override
+        public int select(int time) {
+            place(-1);
+            if (q.isEmpty()) {
+                return -1;
+            }
+            int job = q.poll();
+            queued -= weight(job);
+            // the least virtual runtime of the queue is the job's now
+            minimum = Math.max(minimum, shared.vruntime[job]);
+            since = time;
+            granted = time;
+            return job;
+        }
+
+        @Override
+        public int quantum(int job) {
+            // what is left of the slice after a restart
+            int run = slice(weight(job), queued + weight(job), q.size() + 1)
+                    - (granted - since);
+            until = (long) granted + run;
+            return run;
+        }
+
+        @Override
+        public void expire(int job, int time) {
+            charge(job);
+            insert(job);
+        }
+
+        @Override
+        public int preempt(int running, int time) {
+            charge(running);
+            int first = place(running);
+            if (first == -1) {
+                return -1;
+            }
+            long gap = shared.vruntime[running] - shared.vruntime[first];
+            if (gap > granularity * SCALE / weight(first)) {
+                insert(running);
+                return select(time);
+            }
+            if (time >= until) {
+                // the engine joined the slices of the job while it was
+                // alone, the current one started at the last boundary
+                long length = until - since;
+                since += (int) ((time - since) / length * length);
+                granted = since;
+                until = since + length;
+            }
+            // the arrivals shorten the slice of the running job
+            int w = weight(running);
+            int slice = slice(w, queued + w, q.size() + 1);
+            if (time - since >= slice) {
+                insert(running);
+                return select(time);
+            }
+            if (since + slice < until) {
+                granted = time;
+                return running;
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean steady(int job) {
+            // alone, the slice is the latency and the charge does not
+            // depend on how slices are joined
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return q.size() + pending.size();
+        }
+
+        @Override
+        public void grow() {
+            shared.grow(engine.arrival.length);
+        }
+
+        @Override
+        public Cfs sibling() {
+            return new Cfs(engine, latency, granularity, shared);
+        }
+
+        /**
+         * Updates the virtual runtime of the job which ran and the minimum
+         * of the queue
+         *
+         * @param job index of the job
+         */
+        private void charge(int job) {
+            long[] v = shared.vruntime;
+            long service = (long) (engine.service[job]
+                    - engine.remaining[job]) * SCALE / weight(job);
+            if (shared.queue[job] != id) {
+                // taken from another CPU
+                shared.queue[job] = id;
+                shared.offset[job] = minimum - service;
+            }
+            v[job] = shared.offset[job] + service;
+            minimum = Math.max(minimum, q.isEmpty() ? v[job]
+                    : Math.min(v[job], v[q.peek()]));
+        }
+
+        /**
+         * Puts the jobs which arrived into the heap
+         *
+         * @param running index of the running job or -1
+         * @return the arrived job with the least virtual runtime or -1
+         */
+        private int place(int running) {
+            int first = -1;
+            long busy = running == -1 ? 0 : weight(running);
+            while (!pending.isEmpty()) {
+                int job = pending.poll();
+                int w = weight(job);
+                long slice = slice(w, queued + busy + w,
+                        q.size() + (running == -1 ? 1 : 2));
+                shared.queue[job] = id;
+                shared.offset[job] = minimum + slice * SCALE / w;
+                shared.vruntime[job] = shared.offset[job];
+                insert(job);
+                if (first == -1
+                        || shared.vruntime[job] < shared.vruntime[first]) {
+                    first = job;
+                }
+            }
+            return first;
+        }
+
+        private void insert(int job) {
+            q.add(job);
+            queued += weight(job);
+        }
+
+        /**
+         * @param w weight of the job
+         * @param total weight of the runnable jobs
+         * @param count number of the runnable jobs
+         * @return slice of the job
+         */
+        private int slice(int w, long total, int count) {
+            long period = Math.max(latency, (long) granularity * count);
+            return (int) Math.min(Math.max(granularity, period * w / total),
+                    Integer.MAX_VALUE);
+        }
+
+        private int weight(int job) {
+            return engine.weight == null ? 1 : engine.weight[job];
+        }
+
+        /**
+         * Columns of the jobs shared by the siblings, replaced when the
+         * table grows
+         */
+        private static class Shared {
+
+            Shared(int capacity) {
+                vruntime = new long[capacity];
+                offset = new long[capacity];
+                queue = new int[capacity];
+            }
+
+            void grow(int capacity) {
+                if (vruntime.length < capacity) {
+                    vruntime = Arrays.copyOf(vruntime, capacity);
+                    offset = Arrays.copyOf(offset, capacity);
+                    queue = Arrays.copyOf(queue, capacity);
+                }
+            }
+
+            long[] vruntime;
+            // virtual runtime of the job before its first service
+            long[] offset;
+            // sibling whose queue the job is in
+            int[] queue;
+            int queues;
+        }
+
+        private final EventEngine engine;
+        private final int latency;
+        private final int granularity;
+        private final Shared shared;
+        private final int id;
+        private final IntHeap q;
+        // arrived jobs not placed yet
+        private final IntQueue pending = new IntQueue();
+        // weight of the jobs in the heap
+        private long queued;
+        // least virtual runtime of the queue, never decreases
+        private long minimum;
+        // start of the slice of the running job
+        private int since;
+        // time the rest of the slice was granted, since or a restart
+        private int granted;
+        // end of the granted slice
+        private long until;
+    }
+
+    /**
+     * Deadline policies: EDF runs the job with the earliest deadline, LLF
+     * the job with the least laxity, deadline - time - remaining time. At
+     * every arrival the best waiting job preempts the running one if it is
+     * strictly better. Jobs without a deadline run when no job with one is
+     * ready, in order of name.
+     *
+     * The laxities of waiting jobs decrease alike, so waiting jobs keep the
+     * order of their deadlines less their remaining times and one heap
+     * without index serves both policies; the key of a job is kept in the
+     * priority column. Only the running job gains on the waiting ones:
+     * under LLF it runs till its laxity is greater than the least laxity
+     * of the waiting jobs, but at least for the slice, and an arriving job
+     * which would overtake it sooner restarts its run.
+     *
+     * With admission control an arriving job which has a deadline is
+     * rejected, and never runs, unless EDF can finish it and all jobs of
+     * the queue and the running job by their deadlines (see DeadlineTree).
+     * The test is that of one CPU: on several CPUs it covers the queue it
+     * is made for and the running job asked for preemption. Arrived jobs
+     * are tested when the running job has been charged.
+     */
+    static class Deadline implements EventEngine.Policy {
+
+        /**
+         * @param engine simulation engine
+         * @param laxity true for LLF, false for EDF
+         * @param slice shortest run of a job under LLF
+         * @param admission true to reject jobs which would miss their
+         * deadlines or make other jobs miss theirs
+         */
+        public Deadline(EventEngine engine, boolean laxity, int slice,
+                boolean admission) {
+            this.engine = engine;
+            this.laxity = laxity;
+            this.slice = slice;
+            tree = admission ? new DeadlineTree() : null;
+            // order by key then by name
+            q = new IntHeap((a, b) -> compare(engine.priority, engine, a, b));
+        }
+
+        @Override
+        public void arrive(int job, int time) {
+            // tested when the running job has been charged
+            pending.add(job);
+        }
+
+        @Override
+        public int select(int time) {
+            place(-1, time);
+            if (q.isEmpty()) {
+                return -1;
+            }
+            int job = q.poll();
+            leave(job);
+            since = time;
+            return job;
+        }
+
+        @Override
+        public int quantum(int job) {
+            long run = Integer.MAX_VALUE;
+            if (laxity && !q.isEmpty()
+                    && engine.priority[q.peek()] != JobTable.NO_DEADLINE) {
+                // the laxity of the job stays while the least waiting one
+                // decreases
+                run = Math.min(run, Math.max(slice,
+                        (long) engine.priority[q.peek()]
+                        - engine.priority[job] + 1));
+            }
+            until = since + run;
+            return (int) run;
+        }
+
+        @Override
+        public void expire(int job, int time) {
+            engine.priority[job] = key(job);
+            insert(job);
+        }
+
+        @Override
+        public int preempt(int running, int time) {
+            place(running, time);
+            if (q.isEmpty()) {
+                return -1;
+            }
+            int current = key(running);
+            int first = engine.priority[q.peek()];
+            if (first < current) {
+                // the better job takes the place of the running one
+                engine.priority[running] = current;
+                int job = q.replaceTop(running);
+                leave(job);
+                enter(running);
+                since = time;
+                return job;
+            }
+            if (laxity && first != JobTable.NO_DEADLINE
+                    && time + Math.max(slice, (long) first - current + 1)
+                    < until) {
+                // the arrived job overtakes the running one sooner
+                engine.priority[running] = current;
+                since = time;
+                return running;
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean steady(int job) {
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return q.size() + pending.size();
+        }
+
+        @Override
+        public Deadline sibling() {
+            return new Deadline(engine, laxity, slice, tree != null);
+        }
+
+        /**
+         * Puts the arrived jobs into the heap, with admission control only
+         * those which fit
+         *
+         * @param running index of the running job or -1
+         * @param time current time
+         */
+        private void place(int running, int time) {
+            boolean counted = false;
+            while (!pending.isEmpty()) {
+                int job = pending.poll();
+                engine.priority[job] = key(job);
+                int d = deadline(job);
+                if (tree != null && d != JobTable.NO_DEADLINE) {
+                    if (!counted && running != -1
+                            && deadline(running) != JobTable.NO_DEADLINE) {
+                        // the running job competes for the time too
+                        tree.add(deadline(running),
+                                engine.remaining[running], 1);
+                        counted = true;
+                    }
+                    if (!tree.fits(time, d, engine.remaining[job])) {
+                        // rejected
+                        continue;
+                    }
+                }
+                insert(job);
+            }
+            if (counted) {
+                tree.add(deadline(running), -engine.remaining[running], -1);
+            }
+        }
+
+        private void insert(int job) {
+            q.add(job);
+            enter(job);
+        }
+
+        /**
+         * The job joined the heap, its remaining time counts for admission
+         *
+         * @param job index of the job
+         */
+        private void enter(int job) {
+            if (tree != null && deadline(job) != JobTable.NO_DEADLINE) {
+                tree.add(deadline(job), engine.remaining[job], 1);
+            }
+        }
+
+        /**
+         * The job left the heap
+         *
+         * @param job index of the job
+         */
+        private void leave(int job) {
+            if (tree != null && deadline(job) != JobTable.NO_DEADLINE) {
+                tree.add(deadline(job), -engine.remaining[job], -1);
+            }
+        }
+
+        /**
+         * @param job index of the job
+         * @return deadline under EDF, deadline less remaining time under LLF
+         */
+        private int key(int job) {
+            int d = deadline(job);
+            return laxity && d != JobTable.NO_DEADLINE
+                    ? d - engine.remaining[job] : d;
+        }
+
+        private int deadline(int job) {
+            return engine.deadline == null ? JobTable.NO_DEADLINE
+                    : engine.deadline[job];
+        }
+
+        private final EventEngine engine;
+        private final boolean laxity;
+        private final int slice;
+        // remaining times of the heap by deadline, null without admission
+        // control
+        private final DeadlineTree tree;
+        private final IntHeap q;
+        // arrived jobs not placed yet
+        private final IntQueue pending = new IntQueue();
+        // dispatch of the running job and the end of its run
+        private int since;
+        private long until;
+    }
+
+    /**
+     * Compares jobs by key then by name
+     *
+     * @param key key of every job
+     * @param engine engine comparing the names
+     * @param a index of the first job
+     * @param b index of the second job
+     * @return result of comparison
+     */
+    static int compare(int[] key, EventEngine engine, int a, int b) {
+        if (key[a] != key[b]) {
+            return key[a] < key[b] ? -1 : 1;
+        }
+        int names = engine.compareNames(a, b);
+        if (names != 0) {
+            return names;
+        }
+        return Integer.compare(a, b);
+    }
+}
@@ -0,0 +1,910 @@
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * class PolicyExecutor runs Runnable and Callable tasks on a fixed pool of
+ * threads in the order of a scheduling policy:
+ *
+ *   FCFS  in the order of submission
+ *   SPN   shortest estimated cost first
+ *   SRT   as SPN: a running task can not be preempted, so the remaining
+ *         cost of every waiting task is its cost
+ *   HRRN  highest response ratio (wait + cost) / cost first
+ *   FB[:levels[,quantum]]  feedback levels with quantum * 2^i on level i,
+ *         8 levels of 100000 ns by default: a task enters the level it
+ *         would finish on if it were preempted at the end of every
+ *         quantum, lower levels first and FIFO on a level
+ *
+ * Costs are estimates of the run time in nanoseconds given by the caller.
+ * A task submitted without one is assumed to take the mean run time
+ * measured so far.
+ *
+ * Submitting takes no lock: a task goes into a stripe, one of several
+ * lock-free queues picked by the submitting thread, which also numbers
+ * and counts the tasks put into it, so threads of different stripes
+ * share no counter. A worker is woken only if one is parked. A worker
+ * drains all stripes into the ready structure of the policy and takes
+ * the next task under a lock that submitters never take, so they do not
+ * wait for each other or for the policy; it wakes another parked worker
+ * if tasks are left. There are no synchronized blocks, so the workers can
+ * be virtual threads: pass Thread.ofVirtual().factory() as the thread
+ * factory on Java 21.
+ *
+ * The queue wait (submission till start) and the run time of every task
+ * are recorded in histograms.
+ */
+public class PolicyExecutor extends AbstractExecutorService {
+
+    // cost of a task submitted without an estimate
+    static final long UNKNOWN = -1;
+
+    /**
+     * @param policy name of the policy with parameters
+     * @param threads number of worker threads
+     */
+    public PolicyExecutor(String policy, int threads) {
+        this(policy, threads, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * @param policy name of the policy with parameters
+     * @param threads number of worker threads
+     * @param factory factory of the worker threads
+     */
+    public PolicyExecutor(String policy, int threads, ThreadFactory factory) {
+        ready = ready(policy);
+        if (ready == null) {
+            throw new IllegalArgumentException("Unknown policy " + policy);
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Invalid number of threads "
+                    + threads);
+        }
+        this.policy = policy;
+        int count = Integer.highestOneBit(Math.max(1,
+                Runtime.getRuntime().availableProcessors() * 2 - 1));
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+        terminated = new CountDownLatch(threads);
+        workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = factory.newThread(this::work);
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * Checks the name and parameters of the policy
+     *
+     * @param policy name of the policy with parameters
+     * @return true if the executor knows the policy
+     */
+    public static boolean isKnown(String policy) {
+        return ready(policy) != null;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        enqueue(command, UNKNOWN);
+    }
+
+    /**
+     * Runs the command some time in the future
+     *
+     * @param command task
+     * @param cost estimated run time in nanoseconds, positive
+     * @throws IllegalArgumentException if the cost is not positive
+     */
+    public void execute(Runnable command, long cost) {
+        if (cost <= 0) {
+            throw new IllegalArgumentException("Invalid cost " + cost);
+        }
+        enqueue(command, cost);
+    }
+
+    /**
+     * Puts the task into the stripe of the submitting thread
+     *
+     * @param command task
+     * @param cost estimated run time in nanoseconds or UNKNOWN
+     */
+    private void enqueue(Runnable command, long cost) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        long id = Thread.currentThread().getId();
+        int index = (int) (id * 0x9E3779B97F4A7C15L >>> 32)
+                & (stripes.length - 1);
+        Stripe stripe = stripes[index];
+        // counted before shutdown is read, so a worker which saw the
+        // shutdown sees the task too or the submitter sees the shutdown
+        long number = stripe.added.getAndIncrement();
+        if (shutdown) {
+            stripe.cancelled.incrementAndGet();
+            // idle workers may leave now
+            wakeAll();
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+        stripe.tasks.add(new Task(command, cost,
+                number * stripes.length + index, System.nanoTime()));
+        if (parked.get() > 0) {
+            wakeOne();
+        }
+    }
+
+    /**
+     * Submits the task
+     *
+     * @param task task
+     * @param cost estimated run time in nanoseconds, positive
+     * @return future of the result
+     */
+    public <T> Future<T> submit(Callable<T> task, long cost) {
+        RunnableFuture<T> future = newTaskFor(task);
+        execute(future, cost);
+        return future;
+    }
+
+    /**
+     * Submits the task
+     *
+     * @param task task
+     * @param cost estimated run time in nanoseconds, positive
+     * @return future which gives null when the task is done
+     */
+    public Future<?> submit(Runnable task, long cost) {
+        RunnableFuture<Void> future = newTaskFor(task, null);
+        execute(future, cost);
+        return future;
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        // idle workers leave when no task is pending
+        wakeAll();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        stopped = true;
+        ArrayList<Runnable> left = new ArrayList<>();
+        lock.lock();
+        try {
+            drain();
+            for (Task task; (task = ready.poll(0)) != null;) {
+                left.add(task.command);
+            }
+            taken += left.size();
+            size = 0;
+            waiting = 0;
+        } finally {
+            lock.unlock();
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        return left;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    /**
+     * @return name of the policy with parameters
+     */
+    public String getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return number of tasks which ran
+     */
+    public long getCompleted() {
+        lock.lock();
+        try {
+            return runTime.count();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return histogram of the times in nanoseconds from the submission of
+     * a task till its start
+     */
+    public Histogram getQueueWait() {
+        Histogram copy = new Histogram();
+        lock.lock();
+        try {
+            copy.add(queueWait);
+        } finally {
+            lock.unlock();
+        }
+        return copy;
+    }
+
+    /**
+     * @return histogram of the run times of the tasks in nanoseconds, a
+     * task is counted once its worker looks for the next task
+     */
+    public Histogram getRunTime() {
+        Histogram copy = new Histogram();
+        lock.lock();
+        try {
+            copy.add(runTime);
+        } finally {
+            lock.unlock();
+        }
+        return copy;
+    }
+
+    /**
+     * @return mean queue wait in nanoseconds
+     */
+    public double getMeanQueueWait() {
+        lock.lock();
+        try {
+            return queueWait.count() == 0 ? 0
+                    : (double) totalWait / queueWait.count();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return mean run time in nanoseconds
+     */
+    public double getMeanRunTime() {
+        lock.lock();
+        try {
+            return runTime.count() == 0 ? 0
+                    : (double) totalRun / runTime.count();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Loop of a worker thread
+     */
+    private void work() {
+        try {
+            // run time of the last task, not recorded yet
+            long doneTime = -1;
+            while (true) {
+                Task task;
+                boolean leave;
+                lock.lock();
+                try {
+                    if (doneTime >= 0) {
+                        finished(doneTime);
+                        doneTime = -1;
+                    }
+                    task = take();
+                    leave = task == null && shutdown && pending() == 0;
+                } finally {
+                    lock.unlock();
+                }
+                if (task == null) {
+                    if (leave) {
+                        // the other idle workers leave too
+                        wakeAll();
+                        return;
+                    }
+                    idle();
+                    continue;
+                }
+                if (waiting > 0 && parked.get() > 0) {
+                    // another worker takes the tasks left
+                    wakeOne();
+                }
+                if (!stopped) {
+                    // an interrupt of shutdownNow is kept
+                    Thread.interrupted();
+                }
+                long start = System.nanoTime();
+                try {
+                    task.command.run();
+                } catch (Throwable ex) {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(
+                            thread, ex);
+                }
+                doneTime = Math.max(0, System.nanoTime() - start);
+            }
+        } finally {
+            terminated.countDown();
+        }
+    }
+
+    /**
+     * Parks the worker till a task is submitted or left by another worker
+     */
+    private void idle() {
+        Thread thread = Thread.currentThread();
+        parked.incrementAndGet();
+        sleepers.add(thread);
+        // a task submitted meanwhile is seen here or its submitter sees
+        // the parked worker
+        if (!shutdown && waiting == 0 && !submitted()) {
+            if (!stopped) {
+                // a stray interrupt would not let the worker park
+                Thread.interrupted();
+            }
+            LockSupport.park(this);
+        }
+        sleepers.remove(thread);
+        parked.decrementAndGet();
+    }
+
+    /**
+     * @return true if a stripe holds a task
+     */
+    private boolean submitted() {
+        for (Stripe stripe : stripes) {
+            if (!stripe.tasks.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wakes one parked worker if there is one
+     */
+    private void wakeOne() {
+        Thread thread = sleepers.poll();
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void wakeAll() {
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * Counts the tasks submitted and not taken, called holding the lock.
+     * A stripe is read cancelled first, so a task rejected meanwhile may
+     * be counted but a task put into it is never missed.
+     *
+     * @return number of pending tasks, with submissions in progress
+     */
+    private long pending() {
+        long count = -taken;
+        for (Stripe stripe : stripes) {
+            long cancelled = stripe.cancelled.get();
+            count += stripe.added.get() - cancelled;
+        }
+        return count;
+    }
+
+    /**
+     * Takes the next task of the policy and records its wait, called
+     * holding the lock
+     *
+     * @return task or null if there is none
+     */
+    private Task take() {
+        drain();
+        long now = System.nanoTime();
+        Task task = ready.poll(now);
+        if (task != null) {
+            long wait = now - task.submitted;
+            queueWait.record(wait);
+            totalWait += wait;
+            taken++;
+            size--;
+        }
+        waiting = size;
+        return task;
+    }
+
+    /**
+     * Moves the submitted tasks into the ready structure, called holding
+     * the lock
+     */
+    private void drain() {
+        long mean = runTime.count() == 0 ? 1
+                : Math.max(1, totalRun / runTime.count());
+        for (Stripe stripe : stripes) {
+            for (Task task; (task = stripe.tasks.poll()) != null;) {
+                if (task.cost < 0) {
+                    task.cost = mean;
+                }
+                ready.add(task);
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Records the run time of a task, called holding the lock
+     *
+     * @param time run time in nanoseconds
+     */
+    private void finished(long time) {
+        runTime.record(time);
+        totalRun += time;
+    }
+
+    /**
+     * Creates the ready structure of the policy
+     *
+     * @param policy name of the policy with parameters
+     * @return ready structure or null if the policy is unknown
+     */
+    private static Ready ready(String policy) {
+        int colon = policy.indexOf(':');
+        String name = colon < 0 ? policy : policy.substring(0, colon);
+        String[] values = colon < 0 ? new String[0]
+                : policy.substring(colon + 1).split(",");
+        long[] parameters = new long[values.length];
+        try {
+            for (int i = 0; i < values.length; i++) {
+                parameters[i] = Long.parseLong(values[i]);
+                if (parameters[i] <= 0) {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+        if (name.equals("FB") && parameters.length <= 2) {
+            if (parameters.length > 0 && parameters[0] > 64) {
+                return null;
+            }
+            return new Levels(parameters.length == 0 ? 8
+                    : (int) parameters[0], parameters.length < 2 ? 100000
+                    : parameters[1]);
+        } else if (parameters.length != 0) {
+            return null;
+        } else if (name.equals("FCFS")) {
+            return new Ordered((a, b) -> 0);
+        } else if (name.equals("SPN") || name.equals("SRT")) {
+            return new Ordered((a, b) -> Long.compare(a.cost, b.cost));
+        } else if (name.equals("HRRN")) {
+            return new Ratios();
+        }
+        return null;
+    }
+
+    /**
+     * Submitted task
+     */
+    private static class Task {
+
+        Task(Runnable command, long cost, long sequence, long submitted) {
+            this.command = command;
+            this.cost = cost;
+            this.sequence = sequence;
+            this.submitted = submitted;
+        }
+
+        final Runnable command;
+        // estimated run time, set when the task is drained if unknown
+        long cost;
+        final long sequence;
+        final long submitted;
+    }
+
+    /**
+     * Queue of the tasks submitted by some of the threads, which numbers
+     * and counts them
+     */
+    private static class Stripe {
+
+        final ConcurrentLinkedQueue<Task> tasks =
+                new ConcurrentLinkedQueue<>();
+        // tasks numbered, the rejected ones too
+        final AtomicLong added = new AtomicLong();
+        // tasks numbered but rejected on shutdown
+        final AtomicLong cancelled = new AtomicLong();
+    }
+
+    /**
+     * Ready tasks of a policy, used holding the lock
+     */
+    private interface Ready {
+
+        void add(Task task);
+
+        /**
+         * Removes the next task to run
+         *
+         * @param now current time in nanoseconds
+         * @return task or null if there is none
+         */
+        Task poll(long now);
+    }
+
+    /**
+     * Tasks in a heap ordered by a key then by submission
+     */
+    private static class Ordered implements Ready {
+
+        Ordered(Comparator<Task> key) {
+            q = new PriorityQueue<>(key.thenComparing(BY_SUBMISSION));
+        }
+
+        @Override
+        public void add(Task task) {
+            q.add(task);
+        }
+
+        @Override
+        public Task poll(long now) {
+            return q.poll();
+        }
+
+        private final PriorityQueue<Task> q;
+    }
+
+    /**
+     * HRRN: tasks of equal cost are grouped, the oldest task of a group
+     * has its highest ratio, so only the heads of the groups compete. As in
+     * RatioTree they compete in a kinetic tournament tree: every node keeps
+     * the winner of its children and the time the loser overtakes it, so
+     * add and poll take O(log groups) besides the repair of failed
+     * certificates. Ratios are compared exactly, the products are 128 bits.
+     * On equal ratios the earlier submission wins.
+     */
+    private static class Ratios implements Ready {
+
+        Ratios() {
+            origin = System.nanoTime();
+            winner = new int[]{-1, -1};
+            fail = new long[]{Long.MAX_VALUE, Long.MAX_VALUE};
+            capacity = 1;
+        }
+
+        @Override
+        public void add(Task task) {
+            Integer slot = slots.get(task.cost);
+            int g;
+            if (slot != null) {
+                g = slot;
+            } else {
+                g = free.isEmpty() ? groups.size() : free.pop();
+                if (g == groups.size()) {
+                    groups.add(new PriorityQueue<>(BY_SUBMISSION));
+                    costs = g < costs.length ? costs
+                            : Arrays.copyOf(costs, costs.length * 2);
+                }
+                costs[g] = task.cost;
+                slots.put(task.cost, g);
+                if (g >= capacity) {
+                    rebuild(g);
+                }
+            }
+            PriorityQueue<Task> group = groups.get(g);
+            Task head = group.peek();
+            group.add(task);
+            if (group.peek() != head) {
+                update(g);
+            }
+        }
+
+        @Override
+        public Task poll(long now) {
+            if (winner[1] == -1) {
+                return null;
+            }
+            // times relative to the origin, the ratios only need
+            // differences
+            clock = Math.max(clock, now - origin);
+            if (fail[1] <= clock) {
+                repair(1);
+            }
+            int g = winner[1];
+            PriorityQueue<Task> group = groups.get(g);
+            Task task = group.poll();
+            if (group.isEmpty()) {
+                slots.remove(task.cost);
+                free.push(g);
+            }
+            update(g);
+            return task;
+        }
+
+        /**
+         * Doubles the number of leaves till the group has its leaf and
+         * computes all nodes again
+         *
+         * @param g group
+         */
+        private void rebuild(int g) {
+            while (capacity <= g) {
+                capacity *= 2;
+            }
+            winner = new int[2 * capacity];
+            fail = new long[2 * capacity];
+            Arrays.fill(winner, -1);
+            Arrays.fill(fail, Long.MAX_VALUE);
+            for (int i = 0; i < groups.size(); i++) {
+                if (!groups.get(i).isEmpty()) {
+                    winner[i + capacity] = i;
+                }
+            }
+            for (int node = capacity - 1; node > 0; node--) {
+                compute(node);
+            }
+        }
+
+        private void repair(int node) {
+            if (node >= capacity) {
+                return;
+            }
+            if (fail[2 * node] <= clock) {
+                repair(2 * node);
+            }
+            if (fail[2 * node + 1] <= clock) {
+                repair(2 * node + 1);
+            }
+            compute(node);
+        }
+
+        /**
+         * The head of the group changed, recomputes its leaf and ancestors
+         *
+         * @param g group
+         */
+        private void update(int g) {
+            int node = g + capacity;
+            winner[node] = groups.get(g).isEmpty() ? -1 : g;
+            fail[node] = Long.MAX_VALUE;
+            for (node >>>= 1; node > 0; node >>>= 1) {
+                compute(node);
+            }
+        }
+
+        /**
+         * Computes the winner of the node from its children at the clock,
+         * a head submitted after the clock competes on its line all the same
+         *
+         * @param node internal node
+         */
+        private void compute(int node) {
+            int a = winner[2 * node];
+            int b = winner[2 * node + 1];
+            long f = Math.min(fail[2 * node], fail[2 * node + 1]);
+            if (a == -1 || b == -1) {
+                winner[node] = a == -1 ? b : a;
+            } else if (beats(a, b)) {
+                winner[node] = a;
+                f = Math.min(f, overtake(b, a));
+            } else {
+                winner[node] = b;
+                f = Math.min(f, overtake(a, b));
+            }
+            fail[node] = f;
+        }
+
+        /**
+         * @param x first group
+         * @param y second group
+         * @return true if the head of x has the greater ratio at the clock,
+         * or an equal one and was submitted first
+         */
+        private boolean beats(int x, int y) {
+            Task tx = groups.get(x).peek();
+            Task ty = groups.get(y).peek();
+            // (clock - submitted + cost) / cost compared as
+            // (clock - submitted) / cost
+            int c = compareProducts(clock - (tx.submitted - origin),
+                    costs[y], clock - (ty.submitted - origin), costs[x]);
+            return c > 0 || c == 0 && BY_SUBMISSION.compare(tx, ty) < 0;
+        }
+
+        /**
+         * Finds the first time when the head of the losing group beats the
+         * head of the winning one
+         *
+         * @param loser group losing at the clock
+         * @param winning group winning at the clock
+         * @return time relative to the origin or Long.MAX_VALUE if never
+         */
+        private long overtake(int loser, int winning) {
+            // ratio of the loser grows faster only if its cost is lower
+            long d = costs[winning] - costs[loser];
+            if (d <= 0) {
+                return Long.MAX_VALUE;
+            }
+            Task tl = groups.get(loser).peek();
+            Task tw = groups.get(winning).peek();
+            long sl = tl.submitted - origin;
+            long sw = tw.submitted - origin;
+            boolean tie = BY_SUBMISSION.compare(tl, tw) < 0;
+            // loser beats winner at T when T * d > c (or T * d == c if it
+            // wins ties)
+            try {
+                long c = Math.subtractExact(
+                        Math.multiplyExact(sl, costs[winning]),
+                        Math.multiplyExact(sw, costs[loser]));
+                return tie ? -Math.floorDiv(-c, d) : Math.floorDiv(c, d) + 1;
+            } catch (ArithmeticException ex) {
+                BigInteger c = BigInteger.valueOf(sl)
+                        .multiply(BigInteger.valueOf(costs[winning]))
+                        .subtract(BigInteger.valueOf(sw)
+                                .multiply(BigInteger.valueOf(costs[loser])));
+                BigInteger[] qr = c.divideAndRemainder(BigInteger.valueOf(d));
+                BigInteger t = qr[0];
+                // divideAndRemainder truncates, floor and ceiling from it
+                if (qr[1].signum() < 0) {
+                    t = t.subtract(BigInteger.ONE);
+                }
+                if (!tie || qr[1].signum() != 0) {
+                    t = t.add(BigInteger.ONE);
+                }
+                return t.bitLength() < 64 ? t.longValue()
+                        : t.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+            }
+        }
+
+        // time of the last poll relative to the origin
+        private final long origin;
+        private long clock;
+        // group of every cost and the reused groups
+        private final HashMap<Long, Integer> slots = new HashMap<>();
+        private final ArrayList<PriorityQueue<Task>> groups =
+                new ArrayList<>();
+        private long[] costs = new long[16];
+        private final ArrayDeque<Integer> free = new ArrayDeque<>();
+        // number of leaves (one per group), a power of two
+        private int capacity;
+        // winner group and earliest certificate failure of every node,
+        // root is 1
+        private int[] winner;
+        private long[] fail;
+    }
+
+    /**
+     * Compares the products exactly
+     *
+     * @return sign of a * b - c * d
+     */
+    private static int compareProducts(long a, long b, long c, long d) {
+        long high = multiplyHigh(a, b);
+        long otherHigh = multiplyHigh(c, d);
+        if (high != otherHigh) {
+            return Long.compare(high, otherHigh);
+        }
+        return Long.compareUnsigned(a * b, c * d);
+    }
+
+    /**
+     * @return high 64 bits of the signed 128-bit product, as
+     * Math.multiplyHigh of Java 9
+     */
+    private static long multiplyHigh(long x, long y) {
+        long x1 = x >> 32;
+        long x2 = x & 0xFFFFFFFFL;
+        long y1 = y >> 32;
+        long y2 = y & 0xFFFFFFFFL;
+        long z2 = x2 * y2;
+        long t = x1 * y2 + (z2 >>> 32);
+        long z1 = (t & 0xFFFFFFFFL) + x2 * y1;
+        long z0 = t >> 32;
+        return x1 * y1 + z0 + (z1 >> 32);
+    }
+
+    /**
+     * FB: a queue of tasks per level, ordered by submission
+     */
+    private static class Levels implements Ready {
+
+        Levels(int levels, long quantum) {
+            queues = new ArrayList<>();
+            for (int i = 0; i < levels; i++) {
+                queues.add(new PriorityQueue<>(BY_SUBMISSION));
+            }
+            this.quantum = quantum;
+        }
+
+        @Override
+        public void add(Task task) {
+            // quanta of the levels 0..i add up to quantum * (2^(i+1) - 1)
+            int level = 0;
+            long reached = quantum;
+            while (level < queues.size() - 1 && reached < task.cost) {
+                level++;
+                reached = reached > (Long.MAX_VALUE - quantum) / 2
+                        ? Long.MAX_VALUE : reached * 2 + quantum;
+            }
+            queues.get(level).add(task);
+            nonEmpty |= 1L << level;
+        }
+
+        @Override
+        public Task poll(long now) {
+            if (nonEmpty == 0) {
+                return null;
+            }
+            int level = Long.numberOfTrailingZeros(nonEmpty);
+            PriorityQueue<Task> q = queues.get(level);
+            Task task = q.poll();
+            if (q.isEmpty()) {
+                nonEmpty &= ~(1L << level);
+            }
+            return task;
+        }
+
+        private final ArrayList<PriorityQueue<Task>> queues;
+        private final long quantum;
+        // bit set of non-empty levels
+        private long nonEmpty;
+    }
+
+    // the oldest first, the ratios of tasks of equal cost keep this
+    // order; tasks of a stripe submitted at the same time keep their
+    // numbers
+    private static final Comparator<Task> BY_SUBMISSION =
+            Comparator.<Task>comparingLong(task -> task.submitted)
+                    .thenComparingLong(task -> task.sequence);
+
+    private final String policy;
+    private final Stripe[] stripes;
+    // workers parking or parked
+    private final AtomicInteger parked = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Thread> sleepers =
+            new ConcurrentLinkedQueue<>();
+    private final Thread[] workers;
+    private final CountDownLatch terminated;
+    private volatile boolean shutdown;
+    private volatile boolean stopped;
+
+    // held by workers to take tasks and record them
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Ready ready;
+    private final Histogram queueWait = new Histogram();
+    private final Histogram runTime = new Histogram();
+    private long totalWait;
+    private long totalRun;
+    // tasks taken from the ready structure or removed by shutdownNow
+    private long taken;
+    // tasks in the ready structure
+    private int size;
+    // size published for the workers which park
+    private volatile int waiting;
+}
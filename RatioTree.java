@@ -0,0 +1,373 @@
+
+import java.util.Arrays;
+
+/**
+ * class RatioTree keeps ready jobs and finds the one with the highest
+ * response ratio (wait + service) / service in O(log n).
+ *
+ * Jobs are grouped by service time. Inside a group the ratios keep their
+ * order forever (earlier arrival means higher ratio), so only the head of
+ * every group competes. Heads compete in a kinetic tournament tree: every
+ * internal node keeps the winner of its two children at the current time
+ * and the time when the loser will overtake the winner. The ratio of every
+ * job grows linearly in time, so the winner of a node changes only when
+ * such a certificate fails. Time never goes back, failed certificates are
+ * repaired lazily when the tree is advanced to a later time.
+ *
+ * On equal ratios the job with the greater index wins.
+ *
+ * Groups are created when their first job is added, so jobs may be added
+ * to the columns while the tree is used (see grow).
+ */
+public class RatioTree {
+
+    /**
+     * class Links holds what the trees of the same jobs share: the columns,
+     * the links of the lists and the groups of service times. A job is in
+     * one of the trees at a time.
+     */
+    static class Links {
+
+        Links(int[] arrival, int[] service, int n) {
+            this.arrival = arrival;
+            this.service = service;
+            next = new int[Math.max(n, 1)];
+            group = new int[Math.max(n, 1)];
+            // distinct service times make the groups, numbered in order
+            int[] sorted = Arrays.copyOf(service, n);
+            Arrays.sort(sorted);
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                if (count == 0 || sorted[i] != sorted[count - 1]) {
+                    sorted[count++] = sorted[i];
+                }
+            }
+            tableBits = 32 - Integer.numberOfLeadingZeros(
+                    Math.max(count, 1) * 2 - 1) + 1;
+            slotService = new int[1 << tableBits];
+            slotGroup = new int[1 << tableBits];
+            for (int i = 0; i < count; i++) {
+                groupOf(sorted[i]);
+            }
+        }
+
+        /**
+         * Finds the group of the service time, a new service time makes a
+         * new group
+         *
+         * @param serviceTime service time
+         * @return group
+         */
+        int groupOf(int serviceTime) {
+            int mask = (1 << tableBits) - 1;
+            int slot = (serviceTime * 0x9E3779B9) >>> (32 - tableBits);
+            while (slotGroup[slot] != 0) {
+                if (slotService[slot] == serviceTime) {
+                    return slotGroup[slot] - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            slotService[slot] = serviceTime;
+            slotGroup[slot] = ++groups;
+            if (groups * 2 > 1 << tableBits) {
+                rehash();
+            }
+            return groups - 1;
+        }
+
+        private void rehash() {
+            int[] services = slotService;
+            int[] ids = slotGroup;
+            tableBits++;
+            slotService = new int[1 << tableBits];
+            slotGroup = new int[1 << tableBits];
+            int mask = (1 << tableBits) - 1;
+            for (int i = 0; i < services.length; i++) {
+                if (ids[i] != 0) {
+                    int slot = (services[i] * 0x9E3779B9) >>> (32 - tableBits);
+                    while (slotGroup[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    slotService[slot] = services[i];
+                    slotGroup[slot] = ids[i];
+                }
+            }
+        }
+
+        int[] arrival;
+        int[] service;
+        int[] next;
+        // group of every added job
+        int[] group;
+        // open addressing table from service time to group + 1
+        private int[] slotService;
+        private int[] slotGroup;
+        private int tableBits;
+        int groups;
+    }
+
+    /**
+     * @param arrival arrival time of every job, jobs are added in order of
+     * arrival
+     * @param service service time of every job
+     * @param n number of jobs
+     */
+    public RatioTree(int[] arrival, int[] service, int n) {
+        this(new Links(arrival, service, n));
+    }
+
+    /**
+     * Creates an empty tree of the same jobs as the other tree, sharing its
+     * links, so that trees of several CPUs need no arrays of every job
+     *
+     * @param other tree of the same jobs
+     */
+    public RatioTree(RatioTree other) {
+        this(other.links);
+    }
+
+    private RatioTree(Links links) {
+        this.links = links;
+        int length = Math.max(links.groups, 1);
+        head = new int[length];
+        tail = new int[length];
+        beforeRun = new int[length];
+        Arrays.fill(head, -1);
+        capacity = Integer.highestOneBit(length * 2 - 1);
+        winner = new int[2 * capacity];
+        fail = new long[2 * capacity];
+        Arrays.fill(winner, -1);
+        Arrays.fill(fail, Long.MAX_VALUE);
+    }
+
+    /**
+     * Jobs were added to the columns, which may have been reallocated
+     *
+     * @param arrival arrival time of every job
+     * @param service service time of every job
+     * @param n number of jobs
+     */
+    public void grow(int[] arrival, int[] service, int n) {
+        links.arrival = arrival;
+        links.service = service;
+        if (n > links.next.length) {
+            int length = Math.max(n, links.next.length * 2);
+            links.next = Arrays.copyOf(links.next, length);
+            links.group = Arrays.copyOf(links.group, length);
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds the job
+     *
+     * @param job index of the job
+     * @param time current time, not less than the time of the previous call
+     */
+    public void add(int job, int time) {
+        advance(time);
+        int[] arrival = links.arrival;
+        int[] next = links.next;
+        int g = links.groupOf(links.service[job]);
+        if (g >= head.length) {
+            int length = Math.max(g + 1, head.length * 2);
+            int old = head.length;
+            head = Arrays.copyOf(head, length);
+            tail = Arrays.copyOf(tail, length);
+            beforeRun = Arrays.copyOf(beforeRun, length);
+            Arrays.fill(head, old, length, -1);
+        }
+        if (g >= capacity) {
+            rebuild(g, time);
+        }
+        links.group[job] = g;
+        size++;
+        if (head[g] == -1) {
+            head[g] = job;
+            tail[g] = job;
+            beforeRun[g] = -1;
+            next[job] = -1;
+        } else if (arrival[tail[g]] != arrival[job]) {
+            // job starts a new run of equal arrival times at the tail
+            next[tail[g]] = job;
+            next[job] = -1;
+            beforeRun[g] = tail[g];
+            tail[g] = job;
+            return;
+        } else if (beforeRun[g] == -1) {
+            // equal arrivals are kept in reverse order, so the greater
+            // index comes first; here the run starts at the head
+            next[job] = head[g];
+            head[g] = job;
+        } else {
+            next[job] = next[beforeRun[g]];
+            next[beforeRun[g]] = job;
+            return;
+        }
+        update(g, time);
+    }
+
+    /**
+     * Removes the job with the highest ratio
+     *
+     * @param time current time, not less than the time of the previous call
+     * @return index of the job
+     */
+    public int poll(int time) {
+        advance(time);
+        int job = winner[1];
+        int g = links.group[job];
+        head[g] = links.next[job];
+        if (beforeRun[g] == job) {
+            beforeRun[g] = -1;
+        }
+        size--;
+        update(g, time);
+        return job;
+    }
+
+    /**
+     * Doubles the number of leaves till the group has its leaf and computes
+     * all nodes again
+     *
+     * @param g group
+     * @param time current time
+     */
+    private void rebuild(int g, int time) {
+        while (capacity <= g) {
+            capacity *= 2;
+        }
+        winner = new int[2 * capacity];
+        fail = new long[2 * capacity];
+        Arrays.fill(winner, -1);
+        Arrays.fill(fail, Long.MAX_VALUE);
+        for (int i = 0; i < Math.min(capacity, head.length); i++) {
+            winner[i + capacity] = head[i];
+        }
+        for (int node = capacity - 1; node > 0; node--) {
+            compute(node, time);
+        }
+    }
+
+    /**
+     * Repairs all nodes whose certificates failed till the time
+     *
+     * @param time current time
+     */
+    private void advance(int time) {
+        if (fail[1] <= time) {
+            repair(1, time);
+        }
+    }
+
+    private void repair(int node, int time) {
+        if (node >= capacity) {
+            return;
+        }
+        if (fail[2 * node] <= time) {
+            repair(2 * node, time);
+        }
+        if (fail[2 * node + 1] <= time) {
+            repair(2 * node + 1, time);
+        }
+        compute(node, time);
+    }
+
+    /**
+     * Sets the head of the group as its leaf and recomputes its ancestors
+     *
+     * @param g group
+     * @param time current time
+     */
+    private void update(int g, int time) {
+        int node = g + capacity;
+        winner[node] = head[g];
+        fail[node] = Long.MAX_VALUE;
+        for (node >>>= 1; node > 0; node >>>= 1) {
+            compute(node, time);
+        }
+    }
+
+    /**
+     * Computes the winner of the node from its children
+     *
+     * @param node internal node
+     * @param time current time
+     */
+    private void compute(int node, int time) {
+        int a = winner[2 * node];
+        int b = winner[2 * node + 1];
+        long f = Math.min(fail[2 * node], fail[2 * node + 1]);
+        if (a == -1 || b == -1) {
+            winner[node] = a == -1 ? b : a;
+        } else if (beats(a, b, time)) {
+            winner[node] = a;
+            f = Math.min(f, overtake(b, a));
+        } else {
+            winner[node] = b;
+            f = Math.min(f, overtake(a, b));
+        }
+        fail[node] = f;
+    }
+
+    /**
+     * Checks whether the first job beats the second at the time
+     *
+     * @param x index of the first job
+     * @param y index of the second job
+     * @param time current time
+     * @return true if ratio of x is greater, or equal and x > y
+     */
+    private boolean beats(int x, int y, int time) {
+        int[] arrival = links.arrival;
+        int[] service = links.service;
+        long rx = (long) (time - arrival[x]) * service[y];
+        long ry = (long) (time - arrival[y]) * service[x];
+        return rx > ry || (rx == ry && x > y);
+    }
+
+    /**
+     * Finds the first time when the loser beats the winner
+     *
+     * @param loser index of the job losing now
+     * @param winner index of the job winning now
+     * @return time or Long.MAX_VALUE if the loser never beats the winner
+     */
+    private long overtake(int loser, int winner) {
+        int[] arrival = links.arrival;
+        int[] service = links.service;
+        // ratio of the loser grows faster only if its service is shorter
+        long d = (long) service[winner] - service[loser];
+        if (d <= 0) {
+            return Long.MAX_VALUE;
+        }
+        // loser beats winner at T when T * d > c (or T * d == c on a won tie)
+        long c = (long) arrival[loser] * service[winner]
+                - (long) arrival[winner] * service[loser];
+        if (loser > winner) {
+            return Math.floorDiv(c + d - 1, d);
+        }
+        return Math.floorDiv(c, d) + 1;
+    }
+
+    private final Links links;
+    // every group is a linked list of jobs, ordered by arrival time and
+    // by descending index on equal arrival times
+    private int[] head;
+    private int[] tail;
+    // job before the last run of equal arrival times or -1
+    private int[] beforeRun;
+    // number of leaves (one per group), a power of two
+    private int capacity;
+    // winner and earliest certificate failure of every node, root is 1
+    private int[] winner;
+    private long[] fail;
+    private int size;
+}
@@ -0,0 +1,514 @@
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * class Renderers writes schedules in several output formats. Every format
+ * is a TimelineSink which writes while the schedule is simulated, through
+ * the one writer of the output, so no format keeps the schedule.
+ *
+ * Formats ("N" is optional):
+ *   graph:N  one column per job and one row per N time units, a job which
+ *            ran in the time of the row is marked by X (default N is 1,
+ *            the original graph)
+ *   events   the same columns, one row per executed part of a job
+ *            labelled by its start time
+ *   gantt:N  one line per executed part of a job: name, start, end and a
+ *            bar of one character per N time units (default 1), long bars
+ *            are cut
+ *   csv      lines "algorithm,job,name,start,end"
+ *   svg      Gantt chart with one lane per job, one algorithm per file
+ *   timeline lines "name start end"
+ *   metrics  turnaround, waiting and response times, Tr/Ts, throughput,
+ *            utilization and context switches (see Metrics)
+ *   metrics:jobs  the same preceded by the times of every job
+ *
+ * The cost of events, gantt, csv, svg and timeline depends on the number
+ * of executed parts, the cost of graph on the total time divided by N.
+ */
+public class Renderers {
+
+    // longest bar of gantt
+    private static final int MAX_BAR = 60;
+
+    // longest label of a lane in svg, in characters
+    private static final int MAX_LABEL = 24;
+
+    // widest svg, in pixels
+    private static final int SVG_WIDTH = 2000;
+
+    private static final char[] SPACES = new char[256];
+    private static final char[] BAR = new char[MAX_BAR];
+
+    static {
+        Arrays.fill(SPACES, ' ');
+        Arrays.fill(BAR, '#');
+    }
+
+    /**
+     * Interface Simulator produces the schedule, Scheduler.schedule or a
+     * parallel equivalent of it
+     */
+    public interface Simulator {
+
+        /**
+         * @param algorithm name of scheduling algorithm with parameters
+         * @param jobs table of jobs
+         * @param sink receiver of the timeline
+         * @return false if the algorithm is unknown
+         */
+        boolean schedule(String algorithm, JobTable jobs, TimelineSink sink);
+    }
+
+    /**
+     * Creates the renderer of the format
+     *
+     * @param format output format, see the class comment
+     * @return renderer or null if the format is unknown
+     */
+    public static ParallelRunner.Renderer renderer(String format) {
+        return renderer(format, Scheduler::schedule);
+    }
+
+    /**
+     * Creates the renderer of the format
+     *
+     * @param format output format, see the class comment
+     * @param simulator simulator producing the schedule
+     * @return renderer or null if the format is unknown
+     */
+    public static ParallelRunner.Renderer renderer(String format,
+            Simulator simulator) {
+        if (format.equals("metrics") || format.equals("metrics:jobs")) {
+            boolean perJob = format.equals("metrics:jobs");
+            return (algorithm, jobs, out) -> {
+                out.write(algorithm + " scheduling algorithm\n");
+                Metrics metrics = new Metrics(jobs);
+                simulator.schedule(algorithm, jobs, metrics);
+                metrics.write(out, perJob);
+            };
+        }
+        int colon = format.indexOf(':');
+        String name = colon < 0 ? format : format.substring(0, colon);
+        int ticks = 1;
+        if (colon >= 0) {
+            try {
+                ticks = Integer.parseInt(format.substring(colon + 1));
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+            if (ticks <= 0 || !(name.equals("graph")
+                    || name.equals("gantt"))) {
+                return null;
+            }
+        }
+        int n = ticks;
+        switch (name) {
+            case "graph":
+            case "events":
+                return (algorithm, jobs, out) -> {
+                    out.write(algorithm + " scheduling algorithm\n");
+                    run(simulator, algorithm, jobs, new GraphSink(jobs, out, n,
+                            name.equals("events")));
+                };
+            case "gantt":
+                return (algorithm, jobs, out) -> {
+                    out.write(algorithm + " scheduling algorithm\n");
+                    run(simulator, algorithm, jobs, new GanttSink(jobs, out, n));
+                };
+            case "csv":
+                return (algorithm, jobs, out) -> run(simulator, algorithm,
+                        jobs, new CsvSink(algorithm, out));
+            case "svg":
+                return (algorithm, jobs, out) -> run(simulator, algorithm,
+                        jobs, new SvgSink(algorithm, jobs, out));
+            case "timeline":
+                return (algorithm, jobs, out) -> {
+                    out.write("# " + algorithm + "\n");
+                    run(simulator, algorithm, jobs,
+                            new TimelineSink.WriterSink(out));
+                };
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param format output format
+     * @return text written once before the output of all algorithms
+     */
+    public static String header(String format) {
+        return format.equals("csv") ? "algorithm,job,name,start,end\n" : "";
+    }
+
+    /**
+     * @param format output format
+     * @return true if the format can hold only one algorithm
+     */
+    public static boolean isSingle(String format) {
+        return format.equals("svg");
+    }
+
+    /**
+     * Runs the algorithm into the sink, unwrapping errors of the output
+     */
+    private static void run(Simulator simulator, String algorithm,
+            JobTable jobs, TimelineSink sink) throws IOException {
+        try {
+            simulator.schedule(algorithm, jobs, sink);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * End of the schedule of a work-conserving algorithm, which does not
+     * depend on the algorithm
+     *
+     * @param jobs table of jobs
+     * @return time when the last job finishes
+     */
+    static long makespan(JobTable jobs) {
+        int n = jobs.size();
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = (long) jobs.getArrivalTime(i) << 32 | i;
+        }
+        Arrays.sort(order);
+        long time = 0;
+        for (long key : order) {
+            int job = (int) key;
+            time = Math.max(time, jobs.getArrivalTime(job))
+                    + jobs.getServiceTime(job);
+        }
+        return time;
+    }
+
+    /**
+     * Base of the sinks: writes through the writer and turns its errors
+     * into UncheckedIOException
+     */
+    private abstract static class Output implements TimelineSink {
+
+        Output(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void segment(int job, String name, int start, int end) {
+            try {
+                write(job, name, start, end);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public void finish() {
+            try {
+                close();
+                out.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        abstract void write(int job, String name, int start, int end)
+                throws IOException;
+
+        void close() throws IOException {
+        }
+
+        void spaces(long count) throws IOException {
+            while (count > 0) {
+                int length = (int) Math.min(count, SPACES.length);
+                out.write(SPACES, 0, length);
+                count -= length;
+            }
+        }
+
+        /**
+         * Writes the text padded by spaces on the left
+         */
+        void padLeft(String text, int width) throws IOException {
+            spaces(width - text.length());
+            out.write(text);
+        }
+
+        final Writer out;
+    }
+
+    /**
+     * Graph with one column per job: rows of N time units, or one row
+     * per executed part
+     */
+    private static class GraphSink extends Output {
+
+        GraphSink(JobTable jobs, Writer out, int ticks, boolean events)
+                throws IOException {
+            super(out);
+            this.ticks = ticks;
+            this.events = events;
+            int width = 1;
+            for (int i = 0; i < jobs.size(); i++) {
+                width = Math.max(width, jobs.getName(i).length() + 1);
+            }
+            this.width = width;
+            // the original graph has no time labels
+            labelWidth = ticks == 1 && !events ? 0
+                    : Long.toString(makespan(jobs)).length() + 1;
+
+            // header line
+            spaces(labelWidth);
+            for (int i = 0; i < jobs.size(); i++) {
+                String name = jobs.getName(i);
+                out.write(name);
+                spaces(width - name.length());
+            }
+            out.write('\n');
+        }
+
+        @Override
+        void write(int job, String name, int start, int end)
+                throws IOException {
+            if (events) {
+                padLeft(Integer.toString(start), labelWidth - 1);
+                out.write(' ');
+                mark(job);
+                flushRow();
+                return;
+            }
+            long first = start / ticks;
+            long last = (end - 1) / ticks;
+            if (first > row) {
+                flushRow();
+                // empty rows of idle time
+                for (long r = row + 1; r < first; r++) {
+                    label(r);
+                    out.write('\n');
+                }
+                row = first;
+            }
+            mark(job);
+            if (last > row) {
+                flushRow();
+                // rows of this job only
+                for (long r = row + 1; r < last; r++) {
+                    row = r;
+                    mark(job);
+                    flushRow();
+                }
+                row = last;
+                mark(job);
+            }
+        }
+
+        @Override
+        void close() throws IOException {
+            if (marked > 0) {
+                flushRow();
+            }
+        }
+
+        private void mark(int job) {
+            if (marked == marks.length) {
+                marks = Arrays.copyOf(marks, marked * 2);
+            }
+            marks[marked++] = job;
+        }
+
+        private void label(long r) throws IOException {
+            if (labelWidth > 0) {
+                padLeft(Long.toString(r * ticks), labelWidth - 1);
+                out.write(' ');
+            }
+        }
+
+        /**
+         * Writes the marked columns of the current row
+         */
+        private void flushRow() throws IOException {
+            if (!events) {
+                label(row);
+            }
+            Arrays.sort(marks, 0, marked);
+            long column = 0;
+            for (int i = 0; i < marked; i++) {
+                if (i > 0 && marks[i] == marks[i - 1]) {
+                    continue;
+                }
+                long position = (long) marks[i] * width;
+                spaces(position - column);
+                out.write('X');
+                column = position + 1;
+            }
+            out.write('\n');
+            marked = 0;
+        }
+
+        private final int ticks;
+        private final boolean events;
+        private final int width;
+        private final int labelWidth;
+        // current row
+        private long row;
+        // jobs marked in the current row
+        private int[] marks = new int[16];
+        private int marked;
+    }
+
+    /**
+     * Text Gantt chart, one line per executed part
+     */
+    private static class GanttSink extends Output {
+
+        GanttSink(JobTable jobs, Writer out, int ticks) {
+            super(out);
+            this.ticks = ticks;
+            int width = 1;
+            for (int i = 0; i < jobs.size(); i++) {
+                width = Math.max(width, jobs.getName(i).length());
+            }
+            nameWidth = width;
+            timeWidth = Long.toString(makespan(jobs)).length();
+        }
+
+        @Override
+        void write(int job, String name, int start, int end)
+                throws IOException {
+            out.write(name);
+            spaces(nameWidth - name.length());
+            out.write(' ');
+            padLeft(Integer.toString(start), timeWidth);
+            out.write(' ');
+            padLeft(Integer.toString(end), timeWidth);
+            out.write(" |");
+            long bar = ((long) end - start + ticks - 1) / ticks;
+            out.write(BAR, 0, (int) Math.min(bar, MAX_BAR));
+            if (bar > MAX_BAR) {
+                out.write('>');
+            }
+            out.write('\n');
+        }
+
+        private final int ticks;
+        private final int nameWidth;
+        private final int timeWidth;
+    }
+
+    /**
+     * Lines "algorithm,job,name,start,end"
+     */
+    private static class CsvSink extends Output {
+
+        CsvSink(String algorithm, Writer out) {
+            super(out);
+            prefix = quote(algorithm) + ",";
+        }
+
+        @Override
+        void write(int job, String name, int start, int end)
+                throws IOException {
+            out.write(prefix);
+            out.write(Integer.toString(job));
+            out.write(',');
+            out.write(quote(name));
+            out.write(',');
+            out.write(Integer.toString(start));
+            out.write(',');
+            out.write(Integer.toString(end));
+            out.write('\n');
+        }
+
+        private static String quote(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                    return '"' + text.replace("\"", "\"\"") + '"';
+                }
+            }
+            return text;
+        }
+
+        private final String prefix;
+    }
+
+    /**
+     * SVG Gantt chart, one lane per job. The size of the picture is known
+     * before the schedule, because its end does not depend on the
+     * algorithm.
+     */
+    private static class SvgSink extends Output {
+
+        // height of a lane and of a bar
+        private static final int LANE = 20;
+        private static final int HEIGHT = 16;
+
+        SvgSink(String algorithm, JobTable jobs, Writer out)
+                throws IOException {
+            super(out);
+            int length = 1;
+            for (int i = 0; i < jobs.size(); i++) {
+                length = Math.max(length, jobs.getName(i).length());
+            }
+            left = 8 * Math.min(length, MAX_LABEL) + 8;
+            long end = Math.max(makespan(jobs), 1);
+            scale = Math.min(20, (double) SVG_WIDTH / end);
+            labelled = new boolean[jobs.size()];
+            long width = left + (long) Math.ceil(end * scale) + 8;
+            long height = (long) LANE * (jobs.size() + 1);
+            out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\""
+                    + width + "\" height=\"" + height + "\" font-family="
+                    + "\"monospace\" font-size=\"12\">\n");
+            out.write("<text x=\"4\" y=\"14\">" + escape(algorithm)
+                    + " scheduling algorithm</text>\n");
+        }
+
+        @Override
+        void write(int job, String name, int start, int end)
+                throws IOException {
+            long y = (long) LANE * (job + 1);
+            if (!labelled[job]) {
+                labelled[job] = true;
+                String label = name.length() > MAX_LABEL
+                        ? name.substring(0, MAX_LABEL) : name;
+                out.write("<text x=\"4\" y=\"" + (y + 13) + "\">"
+                        + escape(label) + "</text>\n");
+            }
+            out.write("<rect x=\"");
+            decimal(left + start * scale);
+            out.write("\" y=\"" + (y + 2) + "\" width=\"");
+            decimal(((long) end - start) * scale);
+            out.write("\" height=\"" + HEIGHT + "\" fill=\"hsl("
+                    + job * 47 % 360 + ",60%,60%)\"/>\n");
+        }
+
+        @Override
+        void close() throws IOException {
+            out.write("</svg>\n");
+        }
+
+        /**
+         * Writes the non-negative value with two decimals, String.format
+         * is too slow for millions of bars
+         */
+        private void decimal(double value) throws IOException {
+            long hundredths = Math.round(value * 100);
+            out.write(Long.toString(hundredths / 100));
+            out.write('.');
+            out.write((char) ('0' + hundredths / 10 % 10));
+            out.write((char) ('0' + hundredths % 10));
+        }
+
+        private static String escape(String text) {
+            return text.replace("&", "&amp;").replace("<", "&lt;")
+                    .replace(">", "&gt;").replace("\"", "&quot;");
+        }
+
+        private final int left;
+        private final double scale;
+        private final boolean[] labelled;
+    }
+}
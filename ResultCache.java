@@ -0,0 +1,504 @@
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * class ResultCache keeps the timelines of simulated schedules, so the
+ * schedule of the same jobs by the same algorithm is replayed instead of
+ * being simulated again. All output formats and metrics are computed from
+ * the timeline, so one entry serves all of them.
+ *
+ * An entry is keyed by the fingerprint of the jobs (a hash of names,
+ * arrival and service times, weights and deadlines) and the algorithm
+ * with its parameters. Entries are kept in memory, least recently used
+ * first out when the memory tier is full, and in files of a directory,
+ * least recently used (by modification time) first out when the files
+ * take too much space.
+ *
+ * Entry, big-endian:
+ *   magic "SCHC", int version, long fingerprint, int number of jobs,
+ *   algorithm (short length and UTF-8 bytes), long number of segments,
+ *   int length of the segments, segments, CRC32 of all bytes before
+ * Every segment is three varints: zigzag of the job minus the job before,
+ * zigzag of the start minus the end before and the length.
+ *
+ * A timeline is encoded in memory while it streams to its sink, so
+ * entries are at most ENTRY_BYTES: a longer timeline is not kept and is
+ * simulated again on every run, the heap needed by -c stays bounded.
+ *
+ * An entry whose checksum, version or key does not match is dropped and
+ * the schedule is simulated again. VERSION has to be increased when a
+ * policy changes its schedules.
+ */
+public class ResultCache {
+
+    // "SCHC"
+    private static final int MAGIC = 0x53434843;
+
+    // version of the entries
+    static final int VERSION = 1;
+
+    // default bounds of the tiers
+    public static final long MEMORY_BYTES = 64L << 20;
+    public static final long DISK_BYTES = 1L << 30;
+
+    // most bytes of the encoded segments of one entry
+    static final int ENTRY_BYTES = 32 << 20;
+
+    // suffix of the files of entries
+    private static final String SUFFIX = ".tl";
+
+    /**
+     * @param directory directory of the disk tier, created if needed, or
+     * null for no disk tier
+     * @param memoryBytes most bytes of the memory tier
+     * @param diskBytes most bytes of the disk tier
+     */
+    public ResultCache(Path directory, long memoryBytes, long diskBytes) {
+        this.directory = directory;
+        this.memoryBytes = memoryBytes;
+        this.diskBytes = directory == null ? 0 : diskBytes;
+    }
+
+    /**
+     * Wraps the simulator, schedules are replayed from the cache or
+     * simulated and stored
+     *
+     * @param simulator simulator producing the schedules
+     * @return caching simulator
+     */
+    public Renderers.Simulator simulator(Renderers.Simulator simulator) {
+        return (algorithm, jobs, sink) -> schedule(simulator, algorithm, jobs,
+                sink);
+    }
+
+    /**
+     * Replays the schedule from the cache or simulates and stores it
+     *
+     * @param simulator simulator producing the schedule
+     * @param algorithm name of scheduling algorithm with parameters
+     * @param jobs table of jobs
+     * @param sink receiver of the timeline
+     * @return false if the algorithm is unknown
+     */
+    public boolean schedule(Renderers.Simulator simulator, String algorithm,
+            JobTable jobs, TimelineSink sink) {
+        long fingerprint = fingerprint(jobs);
+        String key = Long.toHexString(fingerprint) + " " + algorithm;
+        byte[] entry = lookup(key, fingerprint, algorithm, jobs.size());
+        if (entry != null && replay(entry, jobs, sink)) {
+            return true;
+        }
+        synchronized (this) {
+            misses++;
+        }
+        Recorder recorder = new Recorder(sink, Math.min(ENTRY_BYTES,
+                Math.max(memoryBytes, diskBytes)));
+        if (!simulator.schedule(algorithm, jobs, recorder)) {
+            return false;
+        }
+        if (recorder.payload != null) {
+            store(key, fingerprint, algorithm, encode(fingerprint, algorithm,
+                    jobs.size(), recorder));
+        }
+        return true;
+    }
+
+    /**
+     * Fingerprint of the jobs, computed once for every frozen table
+     *
+     * @param jobs table of jobs
+     * @return 64-bit hash of names, arrival and service times and weights
+     */
+    long fingerprint(JobTable jobs) {
+        synchronized (fingerprints) {
+            Long known = fingerprints.get(jobs);
+            if (known != null) {
+                return known;
+            }
+        }
+        String[] names = jobs.nameDictionary();
+        long[] nameHash = new long[names.length];
+        for (int i = 0; i < names.length; i++) {
+            long h = 0;
+            for (byte b : names[i].getBytes(StandardCharsets.UTF_8)) {
+                h = mix(h + b);
+            }
+            nameHash[i] = h;
+        }
+        int n = jobs.size();
+        long h = mix(n);
+        for (int i = 0; i < n; i++) {
+            h = mix(h + nameHash[jobs.nameId[i]]);
+            h = mix(h + ((long) jobs.arrival[i] << 32 | jobs.service[i]
+                    & 0xFFFFFFFFL));
+            h = mix(h + jobs.getWeight(i));
+            if (jobs.hasDeadlines()) {
+                // schedules of EDF and LLF depend on the deadlines
+                h = mix(h + jobs.deadline[i]);
+            }
+        }
+        if (jobs.isFrozen()) {
+            synchronized (fingerprints) {
+                fingerprints.put(jobs, h);
+            }
+        }
+        return h;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Finds the entry in memory, then on disk
+     *
+     * @return valid entry or null
+     */
+    private byte[] lookup(String key, long fingerprint, String algorithm,
+            int n) {
+        synchronized (this) {
+            byte[] entry = memory.get(key);
+            if (entry != null) {
+                hits++;
+                return entry;
+            }
+        }
+        if (directory == null) {
+            return null;
+        }
+        Path file = file(fingerprint, algorithm);
+        byte[] entry;
+        try {
+            entry = Files.readAllBytes(file);
+        } catch (IOException ex) {
+            // no entry
+            return null;
+        }
+        if (!isValid(entry, fingerprint, algorithm, n)) {
+            // corrupt or stale, the new schedule replaces it
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                // written over later
+            }
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(file,
+                    FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ex) {
+            // the entry is only evicted earlier
+        }
+        synchronized (this) {
+            hits++;
+            putMemory(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Stores the entry in both tiers
+     */
+    private void store(String key, long fingerprint, String algorithm,
+            byte[] entry) {
+        synchronized (this) {
+            putMemory(key, entry);
+        }
+        if (directory == null || entry.length > diskBytes) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            Path file = file(fingerprint, algorithm);
+            // readers see the old file or the whole new one
+            Path temp = Files.createTempFile(directory, "entry", ".tmp");
+            Files.write(temp, entry);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            evictDisk();
+        } catch (IOException ex) {
+            // the cache is only slower
+        }
+    }
+
+    private void putMemory(String key, byte[] entry) {
+        if (entry.length > memoryBytes) {
+            return;
+        }
+        byte[] old = memory.put(key, entry);
+        memoryUsed += entry.length - (old == null ? 0 : old.length);
+        Iterator<byte[]> eldest = memory.values().iterator();
+        while (memoryUsed > memoryBytes) {
+            memoryUsed -= eldest.next().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Deletes the least recently used files while the files take more
+     * than diskBytes
+     *
+     * @throws IOException if the directory can not be listed
+     */
+    private synchronized void evictDisk() throws IOException {
+        ArrayList<Path> files = new ArrayList<>();
+        long used = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(
+                directory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+                used += Files.size(file);
+            }
+        }
+        if (used <= diskBytes) {
+            return;
+        }
+        Path[] sorted = files.toArray(new Path[0]);
+        long[] modified = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            modified[i] = Files.getLastModifiedTime(sorted[i]).toMillis();
+        }
+        Integer[] order = new Integer[sorted.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(modified[a], modified[b]));
+        for (int i = 0; i < order.length && used > diskBytes; i++) {
+            used -= Files.size(sorted[order[i]]);
+            Files.deleteIfExists(sorted[order[i]]);
+        }
+    }
+
+    private Path file(long fingerprint, String algorithm) {
+        return directory.resolve(String.format("%016x-%08x%s", fingerprint,
+                algorithm.hashCode(), SUFFIX));
+    }
+
+    /**
+     * Checks the checksum, version and key of the entry
+     *
+     * @return true if the entry holds the schedule of the key
+     */
+    private static boolean isValid(byte[] entry, long fingerprint,
+            String algorithm, int n) {
+        if (entry.length < 4) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(entry, 0, entry.length - 4);
+        ByteBuffer buffer = ByteBuffer.wrap(entry);
+        if ((int) crc.getValue() != buffer.getInt(entry.length - 4)) {
+            return false;
+        }
+        try {
+            return buffer.getInt() == MAGIC && buffer.getInt() == VERSION
+                    && buffer.getLong() == fingerprint
+                    && buffer.getInt() == n
+                    && readUTF(buffer).equals(algorithm);
+        } catch (RuntimeException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Passes the segments of the entry to the sink
+     *
+     * @return false if the entry is malformed, nothing is passed then
+     */
+    private static boolean replay(byte[] entry, JobTable jobs,
+            TimelineSink sink) {
+        ByteBuffer buffer = ByteBuffer.wrap(entry);
+        buffer.position(4 + 4 + 8 + 4);
+        readUTF(buffer);
+        long segments = buffer.getLong();
+        int length = buffer.getInt();
+        int from = buffer.position();
+        if (segments < 0 || length < 0
+                || length > entry.length - 4 - from) {
+            return false;
+        }
+        // check the segments before the first reaches the sink
+        int[] position = {from};
+        int n = jobs.size();
+        int job = 0;
+        long end = 0;
+        for (long i = 0; i < segments; i++) {
+            job += unzigzag(readVarint(entry, position));
+            long start = end + unzigzag(readVarint(entry, position));
+            end = start + readVarint(entry, position);
+            if (job < 0 || job >= n || start < Integer.MIN_VALUE
+                    || end > Integer.MAX_VALUE || end <= start
+                    || position[0] > from + length) {
+                return false;
+            }
+        }
+        if (position[0] != from + length) {
+            return false;
+        }
+        position[0] = from;
+        job = 0;
+        int e = 0;
+        for (long i = 0; i < segments; i++) {
+            job += unzigzag(readVarint(entry, position));
+            int start = e + unzigzag(readVarint(entry, position));
+            e = start + readVarint(entry, position);
+            sink.segment(job, jobs.getName(job), start, e);
+        }
+        sink.finish();
+        return true;
+    }
+
+    private static byte[] encode(long fingerprint, String algorithm, int n,
+            Recorder recorder) {
+        byte[] name = algorithm.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 8 + 4 + 2
+                + name.length + 8 + 4 + recorder.size + 4);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(fingerprint).putInt(n);
+        buffer.putShort((short) name.length).put(name);
+        buffer.putLong(recorder.segments).putInt(recorder.size);
+        buffer.put(recorder.payload, 0, recorder.size);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    /**
+     * Reads a string of short length and UTF-8 bytes
+     */
+    private static String readUTF(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return next varint, -1 past the end (a malformed entry)
+     */
+    private static int readVarint(byte[] data, int[] position) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (position[0] >= data.length) {
+                position[0] = Integer.MAX_VALUE;
+                return 0;
+            }
+            byte b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        position[0] = Integer.MAX_VALUE;
+        return 0;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * SplitMix64 finalizer
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Sink which passes the segments on and encodes them, it gives up when
+     * the encoding gets longer than the limit
+     */
+    private static class Recorder implements TimelineSink {
+
+        Recorder(TimelineSink out, long limit) {
+            this.out = out;
+            this.limit = limit;
+        }
+
+        @Override
+        public void segment(int job, String name, int start, int end) {
+            out.segment(job, name, start, end);
+            if (payload == null) {
+                return;
+            }
+            if (payload.length - size < 15) {
+                if (payload.length >= limit) {
+                    // too big to be kept
+                    payload = null;
+                    return;
+                }
+                payload = Arrays.copyOf(payload, (int) Math.min(
+                        payload.length * 2L, Integer.MAX_VALUE - 8));
+            }
+            put(zigzag(job - lastJob));
+            put(zigzag(start - lastEnd));
+            put(end - start);
+            lastJob = job;
+            lastEnd = end;
+            segments++;
+        }
+
+        @Override
+        public void finish() {
+            out.finish();
+        }
+
+        private void put(int value) {
+            while ((value & ~0x7F) != 0) {
+                payload[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            payload[size++] = (byte) value;
+        }
+
+        private final TimelineSink out;
+        private final long limit;
+        // encoded segments or null if they are too many
+        byte[] payload = new byte[256];
+        int size;
+        long segments;
+        private int lastJob;
+        private int lastEnd;
+    }
+
+    private final Path directory;
+    private final long memoryBytes;
+    private final long diskBytes;
+    // memory tier in access order
+    private final LinkedHashMap<String, byte[]> memory =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryUsed;
+    // fingerprints of the tables seen, weakly held
+    private final Map<JobTable, Long> fingerprints = new WeakHashMap<>();
+    private long hits;
+    private long misses;
+}
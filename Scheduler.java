@@ -1,639 +1,865 @@
-
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.PriorityQueue;
-import java.util.Scanner;
-
-/**
- * class Scheduler implements FCFS, RR, SPN, SRT, HRRN, FB scheduling
- * algorithms. The program used data from the file "jobs.txt" in format:
- *
- * Process Arrival time Service (Burst) Time 
- * A	0	3 
- * B	2	6 
- * C	4	4
- *
- * Usage: java Scheduler [one of scheduling algorithms or ALL]
- */
-public class Scheduler {
-    
-    /**
-    * Class Job used to store data of job
-    * in Scheduler class
-    */
-    private static class Job implements Comparable {
-    public Job(String name, int arrivalTime, int serviceTime){
-            this.name = name;
-            this.arrivalTime = arrivalTime;
-            this.serviceTime = serviceTime;
-            priority = 0;
-        }
-    /**
-     * Override method compareTo
-     * @param other object of type Job
-     * @return 
-     */
-    @Override
-    public int compareTo(Object o){
-        Job other = (Job) o;
-        if(priority ==  other.priority){
-            return name.compareTo(other.name);
-        }
-        if(priority < other.priority)
-            return -1;
-        
-        return 1;
-    }
- 
-    public String getName(){
-        return name;
-    }
-    public int getArrivalTime(){
-        return arrivalTime;
-    }
-    public int getServiceTime(){
-        return serviceTime;
-    }
-    public void setPriority(int priority){
-        this.priority = priority;
-    }
-    public void setServiceTime(int newTime){
-        this.serviceTime = newTime;
-    }
-    private String name;
-    private int arrivalTime;
-    private int serviceTime;
-    private int priority;       
-    
-}
-    
- /**
- * Class JobDone used to store data of finished job
- * in Scheduler class
- */
-public static class JobDone {
-    public JobDone(String name, int startTime, int endTime){
-        this.name = name;
-        this.startTime = startTime;
-        this.endTime = endTime;
-    }
-    private String name;
-    private int startTime;
-    private int endTime;
-    
-    String getName(){
-        return name;
-    }
-    
-    int getStartTime(){
-        return startTime;
-    }
-    
-    int getEndTime(){
-        return endTime;
-    }         
-}
-
-    /**
-     * FCFS scheduling algorithm
-     *
-     * @param jobs ArrayList with jobs
-     * @return ArrayList with finished jobs
-     */
-    public static ArrayList<JobDone> FCFS(ArrayList<Job> jobs) {
-        // create array list for finished jobs
-        ArrayList<JobDone> jobDone = new ArrayList<>();
-        // set current time
-        int currentTime = 0;
-        // iterate jobs
-        for (int i = 0; i < jobs.size(); i++) {
-            if (currentTime < jobs.get(i).getArrivalTime()) {
-                // update current time
-                currentTime = jobs.get(i).getArrivalTime();
-            }
-            // add job to jobDone
-            JobDone jd = new JobDone(jobs.get(i).getName(), currentTime,
-                    currentTime + jobs.get(i).getServiceTime());
-            jobDone.add(jd);
-            // update current time
-            currentTime += jobs.get(i).getServiceTime();
-        }
-        return jobDone;
-    }
-
-    /**
-     * RR scheduling algorithm
-     *
-     * @param jobs ArrayList with jobs
-     * @return ArrayList with finished jobs
-     */
-    public static ArrayList<JobDone> RR(ArrayList<Job> jobs) {
-        // create array list for finished jobs
-        ArrayList<JobDone> jobDone = new ArrayList<>();
-        // create queue for jobs
-        ArrayDeque<Job> q = new ArrayDeque<>();
-        // set quantum
-        int quantum = 1;
-        // set current time
-        int currentTime = 0;
-        // iterate jobs
-        for (int i = 0; i < jobs.size(); i++) {
-            while (!q.isEmpty()) {
-                // peek job from the queue 
-                Job j = q.peek();
-                if (currentTime < jobs.get(i).getArrivalTime()) {
-                    q.pop(); // pop job from queue
-                    // add job to jobDone
-                    jobDone.add(new JobDone(j.getName(), currentTime,
-                            currentTime + quantum));
-                    // calculate remaining time
-                    int remainingTime = j.getServiceTime() - quantum;
-                    if (remainingTime > 0) {
-                        // add job to the queue
-                        q.add(new Job(j.getName(), j.getArrivalTime(), remainingTime));
-                    }
-                    currentTime += quantum;
-                } else {
-                    break;
-                }
-            }
-            if (currentTime < jobs.get(i).getArrivalTime()) {
-                currentTime = jobs.get(i).getArrivalTime();
-            }
-            // add job to jobDone
-            JobDone jd = new JobDone(jobs.get(i).getName(), currentTime,
-                    currentTime + quantum);
-            jobDone.add(jd);
-            // calculate remaining time
-            int remainingTime = jobs.get(i).getServiceTime() - quantum;
-            if (remainingTime > 0) {
-                // add job to the queue
-                q.add(new Job(jobs.get(i).getName(), jobs.get(i).getArrivalTime(),
-                        remainingTime));
-            }
-            // update current time
-            currentTime += quantum;
-        }
-        while (!q.isEmpty()) {
-            // pop job from the queue
-            Job j = q.pop();
-            // add job to jobDone
-            jobDone.add(new JobDone(j.getName(), currentTime,
-                    currentTime + quantum));
-            int remainingTime = j.getServiceTime() - quantum;
-            if (remainingTime > 0) {
-                // add job to the queue
-                q.add(new Job(j.getName(), j.getArrivalTime(), remainingTime));
-            }
-            currentTime += quantum;
-        }
-        return jobDone;
-    }
-
-    /**
-     * SPN scheduling algorithm
-     *
-     * @param jobs ArrayList with jobs
-     * @return ArrayList with finished jobs
-     */
-    public static ArrayList<JobDone> SPN(ArrayList<Job> jobs) {
-        // create array list for finished jobs
-        ArrayList<JobDone> jobDone = new ArrayList<>();
-        PriorityQueue<Job> q = new PriorityQueue<>();
-        // set current time
-        int currentTime = 0;
-        // iterate jobs
-        for (int i = 0; i < jobs.size(); i++) {
-            while (!q.isEmpty()) {
-                // peek job 
-                Job j = q.peek();
-                // poll the job only if there are no arrived jobs
-                if (currentTime < jobs.get(i).getArrivalTime()) {
-                    q.poll();
-                    // add job to jobDone
-                    jobDone.add(new JobDone(j.getName(), currentTime,
-                            currentTime + j.getServiceTime()));
-                    currentTime += j.getServiceTime();
-                } else {
-                    break;
-                }
-            }
-            if (currentTime <= jobs.get(i).getArrivalTime()) {
-                currentTime = jobs.get(i).getArrivalTime();
-                // add job to jobDone
-                JobDone jd = new JobDone(jobs.get(i).getName(), currentTime,
-                        currentTime + jobs.get(i).getServiceTime());
-                jobDone.add(jd);
-                currentTime += jobs.get(i).getServiceTime();
-            } else {
-                Job j = new Job(jobs.get(i).getName(), jobs.get(i).getArrivalTime(),
-                        jobs.get(i).getServiceTime());
-                j.setPriority(jobs.get(i).getServiceTime());
-                // add job to the queue
-                q.add(j);
-            }
-        }
-
-        while (!q.isEmpty()) {
-            Job j = q.poll();
-            // add job to jobDone
-            jobDone.add(new JobDone(j.getName(), currentTime,
-                    currentTime + j.getServiceTime()));
-            currentTime += j.getServiceTime();
-        }
-        return jobDone;
-    }
-
-    /**
-     * SRT scheduling algorithm
-     *
-     * @param jobs ArrayList with jobs
-     * @return ArrayList with finished jobs
-     */
-    public static ArrayList<JobDone> SRT(ArrayList<Job> jobs) {
-        // create array list for finished jobs
-        ArrayList<JobDone> jobDone = new ArrayList<>();
-        PriorityQueue<Job> q = new PriorityQueue<>();
-        // set current time
-        int currentTime = 0;
-        int endTime = 0;
-        int startTime = 0;
-        Job runningJob = null;
-        int i = 0;
-        while (!q.isEmpty() || i < jobs.size()) {
-            if (runningJob != null) {
-                // iterate the time till endtime of running job
-                while (i < jobs.size()
-                        && jobs.get(i).getArrivalTime() < endTime) {
-                    // increase current time
-                    if (currentTime < jobs.get(i).getArrivalTime()) {
-                        currentTime = jobs.get(i).getArrivalTime();
-                    }
-                    // add all jobs with current arrival time
-                    while (i < jobs.size()
-                            && jobs.get(i).getArrivalTime() == currentTime) {
-                        // create the job from i-th job in ArrajList jobs
-                        Job j = new Job(jobs.get(i).getName(),
-                                jobs.get(i).getArrivalTime(),
-                                jobs.get(i).getServiceTime());
-                        // set priority as remaining service time
-                        j.setPriority(jobs.get(i).getServiceTime());
-                        // add the job to priority queue
-                        q.add(j);
-                        // increase the index
-                        i++;
-                    }
-                    if (!q.isEmpty()) {
-                        Job j = q.peek();
-                        // check whether new comming job has shorter service time
-                        if (j.getServiceTime() < runningJob.getServiceTime()) {
-                            // stop running job
-                            q.poll();
-                            jobDone.add(new JobDone(runningJob.getName(),
-                                    startTime, currentTime));
-                            // create a new job with remaining service time
-                            Job newJob = new Job(runningJob.getName(),
-                                    runningJob.getArrivalTime(),
-                                    runningJob.getServiceTime()
-                                    - currentTime + startTime);
-                            newJob.setPriority(newJob.getServiceTime());
-                            // add new job to priority queue
-                            q.add(newJob);
-                            // start the new comming job
-                            runningJob = j;
-                            startTime = currentTime;
-                            endTime = currentTime + j.getServiceTime();
-                        }
-                    }
-                }
-                // no jobs with higher priority than running job
-                // finish the running job
-                jobDone.add(new JobDone(runningJob.getName(), startTime,
-                        endTime));
-                currentTime = endTime;
-                runningJob = null;
-            } else {
-                // add all jobs with  current arrival time
-                while (i < jobs.size()
-                        && jobs.get(i).getArrivalTime() == currentTime) {
-                    // create the job from i-th job in ArrajList jobs
-                    Job j = new Job(jobs.get(i).getName(),
-                            jobs.get(i).getArrivalTime(),
-                            jobs.get(i).getServiceTime());
-                    j.setPriority(jobs.get(i).getServiceTime());
-                    // add the job to priority queue
-                    q.add(j);
-                    // increase index
-                    i++;
-                }
-                if (!q.isEmpty()) {
-                    // get job from priority queue
-                    runningJob = q.poll();
-                    startTime = currentTime;
-                    endTime = currentTime + runningJob.getServiceTime();
-                }
-            }
-        }
-        if (runningJob != null) {
-            // add the last running job
-            jobDone.add(new JobDone(runningJob.getName(),
-                    startTime, endTime));
-        }
-        return jobDone;
-    }
-
-    /**
-     * HRRN scheduling algorithm
-     *
-     * @param jobs ArrayList with jobs
-     * @return ArrayList with finished jobs
-     */
-    public static ArrayList<JobDone> HRRN(ArrayList<Job> jobs) {
-        // create array list for finished jobs
-        ArrayList<JobDone> jobDone = new ArrayList<>();
-        // set current time
-        int currentTime = 0;
-        // indicate if the job is completed
-        boolean[] completed = new boolean[jobs.size()];
-        for (int i = 0; i < jobs.size(); i++) {
-            completed[i] = false;
-        }
-        // number of completed jobs
-        int countCompleted = 0;
-        // while all jobs completed
-        while (countCompleted < jobs.size()) {
-            //set max ratio as minimum value
-            double maxRatio = -9999999.0;
-            // set maxRatioIndex as impossible index
-            int maxRatioIndex = -1;
-            // iterate jobs in reverse order (A takes precedence over B)
-            for (int i = jobs.size() - 1; i >= 0; i--) {
-                // if completed and arrived
-                if (!completed[i]
-                        && currentTime >= jobs.get(i).getArrivalTime()) {
-                    // calculate current ratio
-                    double currentRatio = ((currentTime
-                            - jobs.get(i).getArrivalTime()
-                            + jobs.get(i).getServiceTime())
-                            / (double) jobs.get(i).getServiceTime());
-                    // find the maximum ratio
-                    if (maxRatio < currentRatio) {
-                        maxRatio = currentRatio;
-                        maxRatioIndex = i;
-                    }
-                }
-            }
-            if (maxRatioIndex != -1) { // found job with max ratio
-                JobDone jd = new JobDone(jobs.get(maxRatioIndex).getName(),
-                        currentTime,
-                        currentTime + jobs.get(maxRatioIndex).getServiceTime());
-                // update current time
-                currentTime += jobs.get(maxRatioIndex).getServiceTime();
-                // add completed job
-                jobDone.add(jd);
-                // mark as completed
-                completed[maxRatioIndex] = true;
-                // increase counter
-                countCompleted++;
-            } else { // no arrived jobs
-                for (int i = 0; i < jobs.size(); i++) {
-                    if (!completed[i]) {
-                        // increase the current time
-                        currentTime = jobs.get(i).getArrivalTime();
-                        break;
-                    }
-                }
-            }
-        }
-        return jobDone;
-    }
-
-    /**
-     * FB scheduling algorithm
-     *
-     * @param jobs ArrayList with jobs
-     * @return ArrayList with finished jobs
-     */
-    public static ArrayList<JobDone> FB(ArrayList<Job> jobs) {
-        // create array list for finished jobs
-        ArrayList<JobDone> jobDone = new ArrayList<>();
-        // create queues
-        ArrayDeque<Job> q1 = new ArrayDeque<>();
-        ArrayDeque<Job> q2 = new ArrayDeque<>();
-        ArrayDeque<Job> q3 = new ArrayDeque<>();
-        int quantum = 1;
-        int quantum2 = 1;
-        int quantum3 = 1;
-        // set current time
-        int currentTime = 0;
-        for (int i = 0; i < jobs.size(); i++) {
-            // add job to the queue1
-            q1.add(new Job(jobs.get(i).getName(), jobs.get(i).getArrivalTime(),
-                    jobs.get(i).getServiceTime()));
-        }
-
-        while (!q1.isEmpty() || !q2.isEmpty() || !q3.isEmpty()) {
-            while (!q1.isEmpty() && q1.peek().getArrivalTime() <= currentTime) {
-                Job j = q1.pop();
-                // add job to jobDone
-                jobDone.add(new JobDone(j.getName(), currentTime,
-                        currentTime + quantum));
-                int remainingTime = j.getServiceTime() - quantum;
-                if (remainingTime > 0) {
-                    // add job to the queue2
-                    q2.add(new Job(j.getName(), j.getArrivalTime(),
-                            remainingTime));
-                }
-                // update current time
-                currentTime += quantum;
-            }
-            if (!q2.isEmpty()) {
-                Job j = q2.pop();
-
-                int remainingTime = j.getServiceTime() - quantum2;
-                if (remainingTime > 0) {
-                    // add job to jobDone
-                    jobDone.add(new JobDone(j.getName(), currentTime,
-                            currentTime + quantum2));
-                    // add job to the queue3
-                    q3.add(new Job(j.getName(), j.getArrivalTime(),
-                            remainingTime));
-                    // update current time
-                    currentTime += quantum2;
-                }
-                if (remainingTime <= 0) {
-                    // add job to jobDone
-                    jobDone.add(new JobDone(j.getName(), currentTime,
-                            currentTime + j.getServiceTime()));
-                    // update current time
-                    currentTime += j.getServiceTime();
-                }
-            }
-            if (!q3.isEmpty() && q2.isEmpty()
-                    && (q1.isEmpty() || q1.peek().getArrivalTime() > currentTime)) {
-                Job j = q3.pop();
-
-                int remainingTime = j.getServiceTime() - quantum3;
-                if (remainingTime > 0) {
-                    // add job to jobDone
-                    jobDone.add(new JobDone(j.getName(), currentTime,
-                            currentTime + quantum3));
-                    // add job to the queue3
-                    q3.add(new Job(j.getName(), j.getArrivalTime(),
-                            remainingTime));
-                    // update current time
-                    currentTime += quantum3;
-                }
-                if (remainingTime <= 0) {
-                    // add job to jobDone
-                    jobDone.add(new JobDone(j.getName(), currentTime,
-                            currentTime + j.getServiceTime()));
-                    // update current time
-                    currentTime += j.getServiceTime();
-                }
-            }
-            if (q2.isEmpty() && q3.isEmpty() && !q1.isEmpty()
-                    && q1.peek().getArrivalTime() > currentTime) {
-                // update current time
-                currentTime = q1.peek().getArrivalTime();
-            }
-        }
-        return jobDone;
-    }
-
-    /**
-     * Prints scheduling as graph
-     *
-     * @param jobDone ArrayList with finished jobs
-     * @param n number of jobs
-     */
-    public static void printGraph(ArrayList<JobDone> jobDone, int n) {
-        // print header line
-        for (int i = 0; i < n; i++) {
-            System.out.print((char) ('A' + i) + " ");
-        }
-        System.out.println();
-        // print graph
-        int currentTime = 0;
-        // for each job (partional job)
-        for (int i = 0; i < jobDone.size(); i++) {
-            // calculate horizontal offset
-            int offsetH = jobDone.get(i).getName().charAt(0) - 'A';
-            // calculate vertical offset
-            int offsetV = jobDone.get(i).getStartTime() - currentTime;
-            // calculate duration
-            int duration = jobDone.get(i).getEndTime()
-                    - jobDone.get(i).getStartTime();
-            // print vertical offset
-            for (int j = 0; j < offsetV; j++) {
-                System.out.println();
-            }
-            // print k lines
-            for (int k = 0; k < duration; k++) {
-                // print horizontal offset
-                for (int j = 0; j < offsetH; j++) {
-                    System.out.print("  ");
-                }
-                // print character X
-                System.out.println('X');
-            }
-            // update current time
-            currentTime = jobDone.get(i).getEndTime();
-        }
-    }
-    /**
-     * Main function
-     * @param args one of scheduling algorithms or ALL
-     */
-    public static void main(String[] args) {
-
-        if (args.length != 1) {
-            System.out.println("Usage: Scheduler "
-                    + "[one of scheduling algorithms or ALL]");
-            return;
-        }
-
-        // arraylist to store jobs
-        ArrayList<Job> jobs = new ArrayList<>();
-        // try to read the file jobs.txt
-        try {
-            FileReader fr = new FileReader("jobs.txt");
-            Scanner sc = new Scanner(fr);
-            // read header line
-            while (sc.hasNext()) {
-                String header = sc.nextLine();
-                if (header.length() != 0) {
-                    break;
-                }
-            }
-            // read data
-            while (sc.hasNext()) {
-                String name = sc.next();
-                if (name.length() == 0) {
-                    break;
-                }
-                int arrivalTime = sc.nextInt();
-                int serviceTime = sc.nextInt();
-                // add jobs into array list
-                jobs.add(new Job(name, arrivalTime, serviceTime));
-            }
-            fr.close();
-
-        } catch (IOException ex) {
-            System.out.println("Can not open the file jobs.txt");
-            return;
-        }
-
-        ArrayList<JobDone> jobDone;
-        if (args[0].equals("FCFS")) {
-            System.out.println("FCFS scheduling algorithm");
-            jobDone = FCFS(jobs);
-            printGraph(jobDone, jobs.size());
-        } else if (args[0].equals("RR")) {
-            System.out.println("RR scheduling algorithm");
-            jobDone = RR(jobs);
-            printGraph(jobDone, jobs.size());
-        } else if (args[0].equals("SPN")) {
-            System.out.println("SPN scheduling algorithm");
-            jobDone = SPN(jobs);
-            printGraph(jobDone, jobs.size());
-        } else if (args[0].equals("SRT")) {
-            System.out.println("SRT scheduling algorithm");
-            jobDone = SRT(jobs);
-            printGraph(jobDone, jobs.size());
-        } else if (args[0].equals("HRRN")) {
-            System.out.println("HRRN scheduling algorithm");
-            jobDone = HRRN(jobs);
-            printGraph(jobDone, jobs.size());
-        } else if (args[0].equals("FB")) {
-            System.out.println("FB scheduling algorithm");
-            jobDone = FB(jobs);
-            printGraph(jobDone, jobs.size());
-        }else if (args[0].equals("ALL")) {
-            System.out.println("FCFS scheduling algorithm");
-            jobDone = FCFS(jobs);
-            printGraph(jobDone, jobs.size());
-            System.out.println("RR scheduling algorithm");
-            jobDone = RR(jobs);
-            printGraph(jobDone, jobs.size());
-            System.out.println("SPN scheduling algorithm");
-            jobDone = SPN(jobs);
-            printGraph(jobDone, jobs.size());
-            System.out.println("SRT scheduling algorithm");
-            jobDone = SRT(jobs);
-            printGraph(jobDone, jobs.size());
-            System.out.println("HRRN scheduling algorithm");
-            jobDone = HRRN(jobs);
-            printGraph(jobDone, jobs.size());
-            System.out.println("FB scheduling algorithm");
-            jobDone = FB(jobs);
-            printGraph(jobDone, jobs.size());
-        }else{
-            System.out.println("Unknown scheduling algorithm");
-        }
-
-
-    }
-}
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * class Scheduler implements FCFS, RR, SPN, SRT, HRRN, FB scheduling
+ * algorithms. The program used data from the file "jobs.txt" in format:
+ *
+ * Process Arrival time Service (Burst) Time 
+ * A	0	3 
+ * B	2	6 
+ * C	4	4
+ *
+ * Usage: java Scheduler [one of scheduling algorithms or ALL] [timeline file]
+ *        [-p threads] [-s threads] [-f file of jobs] [-o format]
+ *        [-c cache directory]
+ *        java Scheduler SWEEP [-q quanta] [-l levels] [-g growth] [-p threads]
+ *        [-c cache directory]
+ *        java Scheduler SMP [algorithms] [-c cpus] [-q global|local]
+ *        [-m migration cost]
+ *        java Scheduler IO [algorithms] [-f file of jobs and their CPU and
+ *        I/O bursts]
+ *        java Scheduler convert [text file] [binary file]
+ *        java Scheduler generate [options of Generator] [file]
+ *        java Scheduler sort [-m memory MB] [-t directory] [text or binary
+ *        file] [binary file]
+ */
+public class Scheduler {
+
+    // algorithms run by ALL
+    private static final String[] ALGORITHMS = {
+        "FCFS", "RR", "SPN", "SRT", "HRRN", "FB"
+    };
+    
+ /**
+ * Class JobDone used to store data of finished job
+ * in Scheduler class
+ */
+public static class JobDone {
+    public JobDone(String name, int startTime, int endTime){
+        this.name = name;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+    private String name;
+    private int startTime;
+    private int endTime;
+    
+    String getName(){
+        return name;
+    }
+    
+    int getStartTime(){
+        return startTime;
+    }
+    
+    int getEndTime(){
+        return endTime;
+    }         
+}
+
+    /**
+     * FCFS scheduling algorithm
+     *
+     * @param jobs table of jobs
+     * @return ArrayList with finished jobs
+     */
+    public static ArrayList<JobDone> FCFS(JobTable jobs) {
+        return collect(sink -> FCFS(jobs, sink));
+    }
+
+    /**
+     * FCFS scheduling algorithm
+     *
+     * @param jobs table of jobs
+     * @param sink receiver of finished jobs
+     */
+    public static void FCFS(JobTable jobs, TimelineSink sink) {
+        new EventEngine(jobs).run(new Policies.Fcfs(), sink);
+    }
+
+    /**
+     * RR scheduling algorithm. A new job gets its first slice before the
+     * jobs waiting in the queue, so RR runs as feedback with two levels.
+     *
+     * @param jobs table of jobs
+     * @return ArrayList with finished jobs
+     */
+    public static ArrayList<JobDone> RR(JobTable jobs) {
+        return collect(sink -> RR(jobs, sink));
+    }
+
+    /**
+     * RR scheduling algorithm
+     *
+     * @param jobs table of jobs
+     * @param sink receiver of finished jobs
+     */
+    public static void RR(JobTable jobs, TimelineSink sink) {
+        // set quantum
+        int quantum = 1;
+        RR(jobs, quantum, sink);
+    }
+
+    /**
+     * RR scheduling algorithm
+     *
+     * @param jobs table of jobs
+     * @param quantum quantum
+     * @param sink receiver of finished jobs
+     */
+    public static void RR(JobTable jobs, int quantum, TimelineSink sink) {
+        EventEngine engine = new EventEngine(jobs);
+        engine.run(new Policies.Feedback(engine,
+                new int[]{quantum, quantum}), sink);
+    }
+
+    /**
+     * SPN scheduling algorithm
+     *
+     * @param jobs table of jobs
+     * @return ArrayList with finished jobs
+     */
+    public static ArrayList<JobDone> SPN(JobTable jobs) {
+        return collect(sink -> SPN(jobs, sink));
+    }
+
+    /**
+     * SPN scheduling algorithm
+     *
+     * @param jobs table of jobs
+     * @param sink receiver of finished jobs
+     */
+    public static void SPN(JobTable jobs, TimelineSink sink) {
+        EventEngine engine = new EventEngine(jobs);
+        engine.run(new Policies.Spn(engine), sink);
+    }
+
+    /**
+     * SRT scheduling algorithm
+     *
+     * @param jobs table of jobs
+     * @return ArrayList with finished jobs
+     */
+    public static ArrayList<JobDone> SRT(JobTable jobs) {
+        return collect(sink -> SRT(jobs, sink));
+    }
+
+    /**
+     * SRT scheduling algorithm
+     *
+     * @param jobs table of jobs
+     * @param sink receiver of finished jobs
+     */
+    public static void SRT(JobTable jobs, TimelineSink sink) {
+        EventEngine engine = new EventEngine(jobs);
+        engine.run(new Policies.Srt(engine), sink);
+    }
+
+    /**
+     * HRRN scheduling algorithm
+     *
+     * @param jobs table of jobs
+     * @return ArrayList with finished jobs
+     */
+    public static ArrayList<JobDone> HRRN(JobTable jobs) {
+        return collect(sink -> HRRN(jobs, sink));
+    }
+
+    /**
+     * HRRN scheduling algorithm
+     *
+     * @param jobs table of jobs
+     * @param sink receiver of finished jobs
+     */
+    public static void HRRN(JobTable jobs, TimelineSink sink) {
+        EventEngine engine = new EventEngine(jobs);
+        engine.run(new Policies.Hrrn(engine), sink);
+    }
+
+    /**
+     * FB scheduling algorithm
+     *
+     * @param jobs table of jobs
+     * @return ArrayList with finished jobs
+     */
+    public static ArrayList<JobDone> FB(JobTable jobs) {
+        return collect(sink -> FB(jobs, sink));
+    }
+
+    /**
+     * FB scheduling algorithm
+     *
+     * @param jobs table of jobs
+     * @param sink receiver of finished jobs
+     */
+    public static void FB(JobTable jobs, TimelineSink sink) {
+        int quantum = 1;
+        int quantum2 = 1;
+        int quantum3 = 1;
+        FB(jobs, new int[]{quantum, quantum2, quantum3}, sink);
+    }
+
+    /**
+     * FB scheduling algorithm
+     *
+     * @param jobs table of jobs
+     * @param quanta quantum of every queue, the first queue is served first
+     * @param sink receiver of finished jobs
+     */
+    public static void FB(JobTable jobs, int[] quanta, TimelineSink sink) {
+        EventEngine engine = new EventEngine(jobs);
+        engine.run(new Policies.Feedback(engine, quanta), sink);
+    }
+
+    /**
+     * LOTTERY scheduling algorithm: every quantum goes to a job drawn with
+     * probability proportional to its weight
+     *
+     * @param jobs table of jobs
+     * @return ArrayList with finished jobs
+     */
+    public static ArrayList<JobDone> LOTTERY(JobTable jobs) {
+        return collect(sink -> LOTTERY(jobs, sink));
+    }
+
+    /**
+     * LOTTERY scheduling algorithm with quantum 1 and seed 1
+     *
+     * @param jobs table of jobs
+     * @param sink receiver of finished jobs
+     */
+    public static void LOTTERY(JobTable jobs, TimelineSink sink) {
+        EventEngine engine = new EventEngine(jobs);
+        engine.run(new Policies.Lottery(engine, 1, 1), sink);
+    }
+
+    /**
+     * STRIDE scheduling algorithm: the job which got the least service
+     * relative to its weight gets the next quantum
+     *
+     * @param jobs table of jobs
+     * @return ArrayList with finished jobs
+     */
+    public static ArrayList<JobDone> STRIDE(JobTable jobs) {
+        return collect(sink -> STRIDE(jobs, sink));
+    }
+
+    /**
+     * STRIDE scheduling algorithm with quantum 1
+     *
+     * @param jobs table of jobs
+     * @param sink receiver of finished jobs
+     */
+    public static void STRIDE(JobTable jobs, TimelineSink sink) {
+        EventEngine engine = new EventEngine(jobs);
+        engine.run(new Policies.Stride(engine, 1), sink);
+    }
+
+    /**
+     * CFS scheduling algorithm: the job with the least virtual runtime,
+     * service divided by weight, runs for its share of the target latency
+     *
+     * @param jobs table of jobs
+     * @return ArrayList with finished jobs
+     */
+    public static ArrayList<JobDone> CFS(JobTable jobs) {
+        return collect(sink -> CFS(jobs, sink));
+    }
+
+    /**
+     * CFS scheduling algorithm with target latency 8 and granularity 1
+     *
+     * @param jobs table of jobs
+     * @param sink receiver of finished jobs
+     */
+    public static void CFS(JobTable jobs, TimelineSink sink) {
+        EventEngine engine = new EventEngine(jobs);
+        engine.run(new Policies.Cfs(engine, 8, 1), sink);
+    }
+
+    /**
+     * EDF scheduling algorithm: the job with the earliest deadline runs, an
+     * arriving job with an earlier deadline preempts it
+     *
+     * @param jobs table of jobs
+     * @return ArrayList with finished jobs
+     */
+    public static ArrayList<JobDone> EDF(JobTable jobs) {
+        return collect(sink -> EDF(jobs, sink));
+    }
+
+    /**
+     * EDF scheduling algorithm without admission control
+     *
+     * @param jobs table of jobs
+     * @param sink receiver of finished jobs
+     */
+    public static void EDF(JobTable jobs, TimelineSink sink) {
+        EventEngine engine = new EventEngine(jobs);
+        engine.run(new Policies.Deadline(engine, false, 1, false), sink);
+    }
+
+    /**
+     * LLF scheduling algorithm: the job with the least laxity, deadline -
+     * time - remaining time, runs
+     *
+     * @param jobs table of jobs
+     * @return ArrayList with finished jobs
+     */
+    public static ArrayList<JobDone> LLF(JobTable jobs) {
+        return collect(sink -> LLF(jobs, sink));
+    }
+
+    /**
+     * LLF scheduling algorithm with slices of at least 1 and without
+     * admission control
+     *
+     * @param jobs table of jobs
+     * @param sink receiver of finished jobs
+     */
+    public static void LLF(JobTable jobs, TimelineSink sink) {
+        EventEngine engine = new EventEngine(jobs);
+        engine.run(new Policies.Deadline(engine, true, 1, false), sink);
+    }
+
+    /**
+     * Runs the scheduling algorithm collecting finished jobs
+     *
+     * @param algorithm scheduling algorithm with a sink
+     * @return ArrayList with finished jobs
+     */
+    private static ArrayList<JobDone> collect(Consumer<TimelineSink> algorithm) {
+        TimelineSink.ListSink sink = new TimelineSink.ListSink();
+        algorithm.accept(sink);
+        return sink.getJobDone();
+    }
+
+    /**
+     * Runs the scheduling algorithm by name. The name may be followed by
+     * parameters: "RR:4" is RR with quantum 4, "FB:1,2,4" is FB with three
+     * queues and quanta 1, 2 and 4, "MLFQ:8,2,2,100" is FB with eight
+     * queues, quanta 2, 4, ..., 256 and all jobs moved back to the first
+     * queue every 100 time units (the last parameter may be left out for no
+     * boost), "LOTTERY:2,7" is LOTTERY with quantum 2 and seed 7,
+     * "STRIDE:2" is STRIDE with quantum 2, "CFS:6,2" is CFS with target
+     * latency 6 and granularity 2, "EDF:1" is EDF with admission control
+     * and "LLF:4,1" is LLF with slices of at least 4 and admission control.
+     *
+     * @param algorithm name of scheduling algorithm with parameters
+     * @param jobs table of jobs
+     * @param sink receiver of finished jobs
+     * @return false if the algorithm or its parameters are unknown
+     */
+    public static boolean schedule(String algorithm, JobTable jobs,
+            TimelineSink sink) {
+        EventEngine engine = new EventEngine(jobs);
+        EventEngine.Policy policy = policy(algorithm, engine);
+        if (policy == null) {
+            return false;
+        }
+        if (Stats.on()) {
+            Stats.run(algorithm, jobs, engine, policy, sink);
+        } else {
+            engine.run(policy, sink);
+        }
+        return true;
+    }
+
+    /**
+     * Creates the policy of the scheduling algorithm by name, parameters
+     * are given as in schedule
+     *
+     * @param algorithm name of scheduling algorithm with parameters
+     * @param engine engine the policy runs on
+     * @return policy or null if the algorithm or its parameters are unknown
+     */
+    static EventEngine.Policy policy(String algorithm, EventEngine engine) {
+        int colon = algorithm.indexOf(':');
+        String name = colon < 0 ? algorithm : algorithm.substring(0, colon);
+        int[] parameters = colon < 0 ? new int[0]
+                : parseParameters(algorithm.substring(colon + 1));
+        if (parameters == null) {
+            return null;
+        }
+        if (name.equals("RR") && parameters.length <= 1) {
+            int quantum = parameters.length == 0 ? 1 : parameters[0];
+            return new Policies.Feedback(engine, new int[]{quantum, quantum});
+        } else if (name.equals("FB")
+                && parameters.length <= Policies.Feedback.MAX_LEVELS) {
+            return new Policies.Feedback(engine, parameters.length == 0
+                    ? new int[]{1, 1, 1} : parameters);
+        } else if (name.equals("MLFQ")
+                && (parameters.length == 3 || parameters.length == 4)) {
+            if (parameters[0] > Policies.Feedback.MAX_LEVELS) {
+                return null;
+            }
+            return new Policies.Feedback(engine, Policies.Feedback.geometric(
+                    parameters[0], parameters[1], parameters[2]),
+                    parameters.length == 4 ? parameters[3] : 0);
+        } else if (name.equals("LOTTERY") && parameters.length <= 2) {
+            return new Policies.Lottery(engine, parameters.length == 0 ? 1
+                    : parameters[0], parameters.length < 2 ? 1
+                    : parameters[1]);
+        } else if (name.equals("STRIDE") && parameters.length <= 1) {
+            return new Policies.Stride(engine, parameters.length == 0 ? 1
+                    : parameters[0]);
+        } else if (name.equals("CFS") && parameters.length <= 2) {
+            return new Policies.Cfs(engine, parameters.length == 0 ? 8
+                    : parameters[0], parameters.length < 2 ? 1
+                    : parameters[1]);
+        } else if (name.equals("EDF") && parameters.length <= 1) {
+            if (parameters.length == 1 && parameters[0] != 1) {
+                return null;
+            }
+            return new Policies.Deadline(engine, false, 1,
+                    parameters.length == 1);
+        } else if (name.equals("LLF") && parameters.length <= 2) {
+            if (parameters.length == 2 && parameters[1] != 1) {
+                return null;
+            }
+            return new Policies.Deadline(engine, true, parameters.length == 0
+                    ? 1 : parameters[0], parameters.length == 2);
+        } else if (parameters.length != 0) {
+            return null;
+        } else if (name.equals("FCFS")) {
+            return new Policies.Fcfs();
+        } else if (name.equals("SPN")) {
+            return new Policies.Spn(engine);
+        } else if (name.equals("SRT")) {
+            return new Policies.Srt(engine);
+        } else if (name.equals("HRRN")) {
+            return new Policies.Hrrn(engine);
+        }
+        return null;
+    }
+
+    /**
+     * Checks the name and parameters of scheduling algorithm
+     *
+     * @param algorithm name of scheduling algorithm with parameters
+     * @return true if schedule knows the algorithm
+     */
+    public static boolean isKnown(String algorithm) {
+        return policy(algorithm, new EventEngine(new JobTable(1))) != null;
+    }
+
+    /**
+     * Expands ALL and splits algorithms joined by '+'
+     *
+     * @param text scheduling algorithms
+     * @return names of scheduling algorithms with parameters or null if one
+     * of them is unknown
+     */
+    static String[] algorithms(String text) {
+        ArrayList<String> list = new ArrayList<>();
+        for (String algorithm : text.split("\\+")) {
+            if (algorithm.equals("ALL")) {
+                list.addAll(Arrays.asList(ALGORITHMS));
+            } else if (isKnown(algorithm)) {
+                list.add(algorithm);
+            } else {
+                return null;
+            }
+        }
+        return list.toArray(new String[0]);
+    }
+
+    /**
+     * Parses positive parameters separated by commas
+     *
+     * @param text parameters
+     * @return parameters or null if they are malformed
+     */
+    private static int[] parseParameters(String text) {
+        String[] values = text.split(",");
+        int[] parameters = new int[values.length];
+        try {
+            for (int i = 0; i < values.length; i++) {
+                parameters[i] = Integer.parseInt(values[i].trim());
+                if (parameters[i] <= 0) {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+        return parameters;
+    }
+
+    /**
+     * Reads the file of jobs, a text file in the format of jobs.txt or a
+     * binary trace, prints the error if it can not be read
+     *
+     * @param file file of jobs
+     * @return table of jobs or null if the file can not be read
+     */
+    static JobTable readJobs(String file) {
+        Stats.Phase phase = Stats.phase("load");
+        try {
+            return load(file);
+        } finally {
+            phase.end();
+        }
+    }
+
+    private static JobTable load(String file) {
+        Path path = Paths.get(file);
+        boolean binary;
+        try {
+            binary = BinaryTrace.isBinary(path);
+        } catch (IOException ex) {
+            System.out.println("Can not open the file " + file);
+            return null;
+        }
+        try {
+            JobTable jobs = binary ? BinaryTrace.load(path)
+                    : TraceLoader.load(path);
+            // the algorithms take the jobs in the order of arrival
+            TraceSorter.sort(jobs);
+            return jobs;
+        } catch (IOException ex) {
+            System.out.println(binary ? ex.getMessage()
+                    : "Can not open the file " + file);
+        } catch (ParseException ex) {
+            System.out.println(ex.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Reads the file of jobs and their CPU and I/O bursts, prints the error
+     * if it can not be read
+     *
+     * @param file text file of jobs in the format of BurstTrace
+     * @return trace or null if the file can not be read
+     */
+    private static BurstTrace readBursts(String file) {
+        Stats.Phase phase = Stats.phase("load");
+        try {
+            return BurstTrace.load(Paths.get(file));
+        } catch (IOException ex) {
+            System.out.println("Can not open the file " + file);
+        } catch (ParseException ex) {
+            System.out.println(ex.getMessage());
+        } finally {
+            phase.end();
+        }
+        return null;
+    }
+
+    /**
+     * Sorts a trace by arrival time into a binary trace in bounded memory
+     *
+     * @param args options -m (memory of the jobs in MB, a quarter of the
+     * heap by default) and -t (directory of the temporary files, the one
+     * of the output by default), the input and the output file
+     * @return false if the arguments are malformed
+     */
+    private static boolean sort(String[] args) {
+        long memory = Runtime.getRuntime().maxMemory() / 4;
+        Path directory = null;
+        ArrayList<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-m") && i + 1 < args.length
+                    && args[i + 1].matches("\\d{1,9}")) {
+                memory = Long.parseLong(args[++i]) << 20;
+            } else if (args[i].equals("-t") && i + 1 < args.length) {
+                directory = Paths.get(args[++i]);
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (files.size() != 2) {
+            return false;
+        }
+        Path output = Paths.get(files.get(1)).toAbsolutePath();
+        if (directory == null) {
+            directory = output.getParent();
+        }
+        Stats.Phase phase = Stats.phase("sort");
+        try {
+            TraceSorter.sort(Paths.get(files.get(0)), output, directory,
+                    memory);
+        } catch (IOException ex) {
+            System.out.println("Can not sort the file " + files.get(0)
+                    + ": " + ex.getMessage());
+        } catch (ParseException ex) {
+            System.out.println(ex.getMessage());
+        } finally {
+            phase.end();
+        }
+        return true;
+    }
+
+    /**
+     * Main function
+     * @param args one of scheduling algorithms or ALL (several algorithms
+     * can be joined by '+'), optionally the file to write the timeline
+     * into, optionally -p and number of threads to run algorithms in
+     * parallel, optionally -s and number of threads to simulate busy
+     * periods of every algorithm in parallel, optionally -f and the file
+     * of jobs instead of jobs.txt,
+     * optionally -o and the output format (see Renderers), optionally -c
+     * and the directory of the ResultCache, optionally --stats to print
+     * counters of the algorithms and times of the phases (see Stats) to
+     * the error output
+     */
+    public static void main(String[] args) {
+        boolean stats = Arrays.asList(args).contains("--stats");
+        if (stats) {
+            Stats.enable();
+            args = Arrays.stream(args).filter(arg -> !arg.equals("--stats"))
+                    .toArray(String[]::new);
+        }
+        run(args);
+        if (stats) {
+            System.out.flush();
+            System.err.print(Stats.get().getReport());
+        }
+    }
+
+    /**
+     * Runs the command of main
+     *
+     * @param args arguments of main without --stats
+     */
+    private static void run(String[] args) {
+
+        // file of jobs, text or binary trace
+        String input = "jobs.txt";
+        ArrayList<String> rest = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-f") && i + 1 < args.length) {
+                input = args[++i];
+            } else {
+                rest.add(args[i]);
+            }
+        }
+        args = rest.toArray(new String[0]);
+
+        if (args.length > 0 && args[0].equals("convert")) {
+            if (args.length != 3) {
+                System.out.println("Usage: Scheduler convert "
+                        + "[text file] [binary file]");
+                return;
+            }
+            JobTable jobs = readJobs(args[1]);
+            if (jobs != null) {
+                try {
+                    BinaryTrace.write(jobs, Paths.get(args[2]));
+                } catch (IOException ex) {
+                    System.out.println("Can not write the file " + args[2]);
+                }
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("sort")) {
+            if (!sort(Arrays.copyOfRange(args, 1, args.length))) {
+                System.out.println("Usage: Scheduler sort [-m memory MB] "
+                        + "[-t directory of temporary files] "
+                        + "[text or binary file] [binary file]");
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("generate")) {
+            Stats.Phase phase = Stats.phase("generate");
+            boolean done;
+            try {
+                done = Generator.run(Arrays.copyOfRange(args, 1,
+                        args.length));
+            } catch (IOException ex) {
+                System.out.println("Can not write the file");
+                return;
+            } catch (IllegalArgumentException ex) {
+                System.out.println(ex.getMessage());
+                return;
+            } finally {
+                phase.end();
+            }
+            if (!done) {
+                System.out.println("Usage: Scheduler generate [-n jobs] "
+                        + "[-a poisson|mmpp|zero] "
+                        + "[-s exponential|bimodal|pareto] "
+                        + "[-m mean service] [-l load] [-k names] "
+                        + "[-w max weight] [-d deadline factor] "
+                        + "[-r seed] [-o text|binary] [file]");
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("SMP")) {
+            JobTable jobs = readJobs(input);
+            Stats.Phase phase = Stats.phase("run");
+            boolean done;
+            try {
+                done = jobs == null || Smp.run(jobs, Arrays.copyOfRange(args,
+                        1, args.length), new PrintWriter(System.out));
+            } finally {
+                phase.end();
+            }
+            if (!done) {
+                System.out.println("Usage: Scheduler SMP [algorithms] "
+                        + "[-c cpus] [-q global|local] [-m migration cost]");
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("IO")) {
+            BurstTrace trace = readBursts(input);
+            Stats.Phase phase = Stats.phase("run");
+            boolean done;
+            try {
+                done = trace == null || Io.run(trace, Arrays.copyOfRange(args,
+                        1, args.length), new PrintWriter(System.out));
+            } finally {
+                phase.end();
+            }
+            if (!done) {
+                System.out.println("Usage: Scheduler IO [algorithms]");
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("SWEEP")) {
+            JobTable jobs = readJobs(input);
+            Stats.Phase phase = Stats.phase("run");
+            boolean done;
+            try {
+                done = jobs == null || Sweep.run(jobs, Arrays.copyOfRange(
+                        args, 1, args.length), new PrintWriter(System.out));
+            } finally {
+                phase.end();
+            }
+            if (!done) {
+                System.out.println("Usage: Scheduler SWEEP [-q quanta] "
+                        + "[-l levels] [-g growth] [-p threads] "
+                        + "[-c cache directory]");
+            }
+            return;
+        }
+
+        ArrayList<String> positional = new ArrayList<>();
+        int threads = 1;
+        int shardThreads = 1;
+        String format = null;
+        String cacheDirectory = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-o") && i + 1 < args.length) {
+                format = args[++i];
+            } else if (args[i].equals("-c") && i + 1 < args.length) {
+                cacheDirectory = args[++i];
+            } else if (args[i].equals("-p") || args[i].equals("-s")) {
+                // number of threads, all cores by default
+                int count = Runtime.getRuntime().availableProcessors();
+                if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                    count = Integer.parseInt(args[i + 1]);
+                }
+                if (args[i].equals("-p")) {
+                    threads = count;
+                } else {
+                    shardThreads = count;
+                }
+                if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                    i++;
+                }
+            } else {
+                positional.add(args[i]);
+            }
+        }
+        if (positional.size() != 1 && positional.size() != 2) {
+            System.out.println("Usage: Scheduler "
+                    + "[one of scheduling algorithms or ALL] [timeline file] "
+                    + "[-p threads] [-s threads] [-f file of jobs] "
+                    + "[-o format] [-c cache directory]");
+            return;
+        }
+
+        // graph goes to the screen, timeline goes into the file
+        String file = positional.size() == 2 ? positional.get(1) : null;
+        if (format == null) {
+            format = file == null ? "graph" : "timeline";
+        }
+        // -s simulates the busy periods of every algorithm in parallel
+        int shards = shardThreads;
+        Renderers.Simulator simulator = shards > 1
+                ? (algorithm, table, sink) -> BusyPeriods.schedule(
+                        algorithm, table, shards, sink) : Scheduler::schedule;
+        // -c replays schedules simulated before
+        if (cacheDirectory != null) {
+            simulator = new ResultCache(Paths.get(cacheDirectory),
+                    ResultCache.MEMORY_BYTES, ResultCache.DISK_BYTES)
+                    .simulator(simulator);
+        }
+        ParallelRunner.Renderer renderer = Renderers.renderer(format,
+                simulator);
+        if (renderer == null) {
+            System.out.println("Unknown output format " + format);
+            return;
+        }
+
+        JobTable jobs = readJobs(input);
+        if (jobs == null) {
+            return;
+        }
+
+        // check the algorithms before running any of them
+        String[] algorithms = algorithms(positional.get(0));
+        if (algorithms == null) {
+            System.out.println("Unknown scheduling algorithm");
+            return;
+        }
+        if (algorithms.length > 1 && Renderers.isSingle(format)) {
+            System.out.println("Output format " + format
+                    + " takes one scheduling algorithm");
+            return;
+        }
+
+        // one buffered writer for all output
+        Stats.Phase phase = Stats.phase("run");
+        try (Writer out = new BufferedWriter(file == null ? standardOutput()
+                : new FileWriter(file), 1 << 16)) {
+            out.write(Renderers.header(format));
+            if (threads > 1) {
+                ParallelRunner.run(algorithms, jobs, threads, renderer, out);
+            } else {
+                for (String algorithm : algorithms) {
+                    renderer.render(algorithm, jobs, out);
+                    out.flush();
+                }
+            }
+        } catch (IOException | UncheckedIOException ex) {
+            System.err.println(file == null ? "Can not write the output: "
+                    + ex.getMessage() : "Can not write the file " + file);
+        } finally {
+            phase.end();
+        }
+    }
+
+    /**
+     * @return writer of the standard output which is flushed but not
+     * closed when the writer is closed
+     */
+    private static Writer standardOutput() {
+        return new OutputStreamWriter(System.out) {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+}
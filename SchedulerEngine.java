@@ -0,0 +1,93 @@
+
+/**
+ * Interface SchedulerEngine schedules jobs which are submitted while the
+ * simulation runs, instead of reading the whole table first. The caller
+ * submits jobs in order of arrival, advances the clock and reads the
+ * decisions: which job took the CPU and when. Fed with the same jobs, the
+ * decisions are those of the batch algorithm.
+ *
+ * Usage:
+ *   SchedulerEngine engine = SchedulerEngine.create("RR:4");
+ *   engine.submit("A", 3, 0);
+ *   engine.advanceTo(1);
+ *   for (int job; (job = engine.nextDecision()) != SchedulerEngine.NONE; )
+ *       ... job took the CPU at engine.decisionTime()
+ */
+public interface SchedulerEngine {
+
+    // decision of the CPU becoming idle
+    int IDLE = -1;
+
+    // returned by nextDecision when there is no decision to read
+    int NONE = -2;
+
+    /**
+     * Submits the job. It has to arrive after the time the engine was
+     * advanced to and not before the previously submitted job.
+     *
+     * @param name name of the job
+     * @param serviceTime service time, positive
+     * @param time arrival time
+     * @return index of the job
+     */
+    int submit(String name, int serviceTime, int time);
+
+    /**
+     * Submits the job with a deadline, for EDF and LLF
+     *
+     * @param name name of the job
+     * @param serviceTime service time, positive
+     * @param time arrival time
+     * @param deadline time the job should be finished by, not negative, or
+     * JobTable.NO_DEADLINE
+     * @return index of the job
+     */
+    int submit(String name, int serviceTime, int time, int deadline);
+
+    /**
+     * Submits the job with a weight, for LOTTERY, STRIDE and CFS, and a
+     * deadline
+     *
+     * @param name name of the job
+     * @param serviceTime service time, positive
+     * @param time arrival time
+     * @param weight weight of the job, positive
+     * @param deadline time the job should be finished by, not negative, or
+     * JobTable.NO_DEADLINE
+     * @return index of the job
+     */
+    int submit(String name, int serviceTime, int time, int weight,
+            int deadline);
+
+    /**
+     * Simulates everything which happens till the time. All jobs arriving
+     * till the time must have been submitted.
+     *
+     * @param time new time, not less than the previous one
+     */
+    void advanceTo(int time);
+
+    /**
+     * Removes the oldest decision not read yet
+     *
+     * @return index of the job which took the CPU, IDLE if the CPU became
+     * idle or NONE if there is no decision
+     */
+    int nextDecision();
+
+    /**
+     * @return time of the decision last returned by nextDecision
+     */
+    int decisionTime();
+
+    /**
+     * Creates the engine of the scheduling algorithm
+     *
+     * @param algorithm name of scheduling algorithm with parameters, as
+     * in Scheduler.schedule
+     * @return engine or null if the algorithm or its parameters are unknown
+     */
+    static SchedulerEngine create(String algorithm) {
+        return OnlineEngine.create(algorithm);
+    }
+}
@@ -0,0 +1,113 @@
+
+import java.io.PrintWriter;
+
+/**
+ * class Smp runs scheduling algorithms on several CPUs (see SmpEngine) and
+ * prints for every algorithm and layout of queues the turnaround times,
+ * context switches, migrations and steals, missed deadlines if jobs have
+ * them, the utilization of every CPU and the imbalance of the load.
+ *
+ * Options:
+ *   algorithms joined by '+' or ALL, default ALL
+ *   -c number of CPUs, default 4
+ *   -q global, local (per-CPU queues with work stealing) or both as
+ *      "global,local", default both
+ *   -m migration cost, default 0
+ */
+public class Smp {
+
+    /**
+     * Runs the algorithms
+     *
+     * @param jobs table of jobs
+     * @param args options
+     * @param out output
+     * @return false if the options are malformed
+     */
+    public static boolean run(JobTable jobs, String[] args, PrintWriter out) {
+        String[] algorithms = null;
+        int cpus = 4;
+        boolean global = true;
+        boolean local = true;
+        int migrationCost = 0;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-c") && i + 1 < args.length) {
+                    cpus = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-m") && i + 1 < args.length) {
+                    migrationCost = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-q") && i + 1 < args.length) {
+                    String queues = "," + args[++i] + ",";
+                    global = queues.contains(",global,");
+                    local = queues.contains(",local,");
+                } else if (algorithms == null && !args[i].startsWith("-")) {
+                    algorithms = Scheduler.algorithms(args[i]);
+                    if (algorithms == null) {
+                        return false;
+                    }
+                } else {
+                    return false;
+                }
+            }
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+        if (cpus <= 0 || migrationCost < 0 || (!global && !local)) {
+            return false;
+        }
+        if (algorithms == null) {
+            algorithms = Scheduler.algorithms("ALL");
+        }
+
+        for (String algorithm : algorithms) {
+            for (boolean perCpu : new boolean[]{false, true}) {
+                if (perCpu ? !local : !global) {
+                    continue;
+                }
+                SmpEngine engine = new SmpEngine(jobs, cpus, perCpu,
+                        migrationCost);
+                Metrics metrics = new Metrics(jobs);
+                engine.run(algorithm, metrics);
+                report(out, algorithm, engine, perCpu, migrationCost,
+                        metrics);
+            }
+        }
+        out.flush();
+        return true;
+    }
+
+    private static void report(PrintWriter out, String algorithm,
+            SmpEngine engine, boolean perCpu, int migrationCost,
+            Metrics metrics) {
+        long switches = 0;
+        for (int cpu = 0; cpu < engine.getCpus(); cpu++) {
+            switches += engine.getContextSwitches(cpu);
+        }
+        out.printf("%s on %d CPUs, %s, migration cost %d%n", algorithm,
+                engine.getCpus(), perCpu ? "per-CPU queues" : "global queue",
+                migrationCost);
+        out.printf("  finished %d, makespan %d%n", metrics.getFinished(),
+                engine.getMakespan());
+        out.printf("  mean Tr %.3f, mean Tr/Ts %.3f, p99 Tr %d, "
+                + "mean response %.3f%n", metrics.getMeanTurnaround(),
+                metrics.getMeanNormalizedTurnaround(),
+                metrics.getTurnaround().percentile(99),
+                metrics.getMeanResponse());
+        out.printf("  context switches %d, migrations %d, steals %d%n",
+                switches, engine.getMigrations(), engine.getSteals());
+        if (metrics.getDeadlines() > 0) {
+            out.printf("  missed deadlines %d (%.2f %%), total lateness %d, "
+                    + "rejected %d%n", metrics.getMissed(),
+                    metrics.getMissRate() * 100, metrics.getLateness(),
+                    metrics.getRejected());
+        }
+        out.printf("  %5s %12s %14s %12s %12s%n", "cpu", "utilization",
+                "busy", "overhead", "switches");
+        for (int cpu = 0; cpu < engine.getCpus(); cpu++) {
+            out.printf("  %5d %10.2f %% %14d %12d %12d%n", cpu,
+                    engine.getUtilization(cpu) * 100, engine.getBusy(cpu),
+                    engine.getOverhead(cpu), engine.getContextSwitches(cpu));
+        }
+        out.printf("  imbalance %.2f %%%n", engine.getImbalance() * 100);
+    }
+}
@@ -0,0 +1,511 @@
+
+import java.util.Arrays;
+
+/**
+ * class SmpEngine simulates several CPUs running the same scheduling
+ * policies as EventEngine. Two layouts of ready jobs are supported:
+ *
+ *   global queue: one policy holds the ready jobs of all CPUs, an idle CPU
+ *   takes the next job the policy selects
+ *
+ *   per-CPU queues: every CPU has its own policy, an arriving job goes to
+ *   the least loaded CPU and a CPU whose queue is empty steals the next
+ *   job of the longest queue
+ *
+ * A job which starts on another CPU than it last ran on pays the migration
+ * cost: the CPU is busy for that time before the job runs.
+ *
+ * Events are handled as in EventEngine: at equal times expiries and
+ * completions come before arrivals, and CPUs are dispatched when all
+ * events of the time are handled. CPUs freed at that time are dispatched
+ * first, so a job selected again goes back to its CPU, then idle CPUs in
+ * order of index. With one CPU the schedule is that of EventEngine.
+ *
+ * Only the next arrival and one event per CPU are queued, idle CPUs are
+ * kept in a bit set, so an event costs O(log cpus) besides the policy.
+ * Consecutive slices of a job on the same CPU are joined into one segment.
+ */
+public class SmpEngine {
+
+    /**
+     * @param jobs jobs sorted by arrival time
+     * @param cpus number of CPUs
+     * @param perCpu true for per-CPU queues, false for the global queue
+     * @param migrationCost time a CPU spends to start a migrated job
+     */
+    public SmpEngine(JobTable jobs, int cpus, boolean perCpu,
+            int migrationCost) {
+        if (cpus <= 0 || migrationCost < 0) {
+            throw new IllegalArgumentException("Invalid number of CPUs "
+                    + cpus + " or migration cost " + migrationCost);
+        }
+        this.jobs = jobs;
+        this.cpus = cpus;
+        this.perCpu = perCpu;
+        this.migrationCost = migrationCost;
+        columns = new EventEngine(jobs);
+        policies = new EventEngine.Policy[cpus];
+        running = new int[cpus];
+        segmentStart = new int[cpus];
+        charged = new int[cpus];
+        dispatch = new int[cpus];
+        lastJob = new int[cpus];
+        pendingJob = new int[cpus];
+        pendingStart = new int[cpus];
+        pendingEnd = new int[cpus];
+        idle = new long[(cpus + 63) >>> 6];
+        touched = new long[idle.length];
+        busy = new long[cpus];
+        overhead = new long[cpus];
+        switches = new long[cpus];
+        lastCpu = new int[jobs.size()];
+    }
+
+    /**
+     * Runs the scheduling algorithm on all CPUs
+     *
+     * @param algorithm name of scheduling algorithm with parameters, as in
+     * Scheduler.schedule
+     * @param sink receiver of executed parts of jobs, in order of their
+     * ends
+     * @return false if the algorithm or its parameters are unknown
+     */
+    public boolean run(String algorithm, TimelineSink sink) {
+        EventEngine.Policy policy = Scheduler.policy(algorithm, columns);
+        if (policy == null) {
+            return false;
+        }
+        for (int cpu = 0; cpu < cpus; cpu++) {
+            policies[cpu] = perCpu && cpu > 0 ? policy.sibling() : policy;
+        }
+        out = sink;
+        simulate();
+        out.finish();
+        out = null;
+        return true;
+    }
+
+    private void simulate() {
+        jobs.reset();
+        int n = jobs.size();
+        int[] arrival = columns.arrival;
+        int[] remaining = columns.remaining;
+        Arrays.fill(lastCpu, -1);
+        Arrays.fill(running, -1);
+        Arrays.fill(lastJob, -1);
+        Arrays.fill(pendingJob, -1);
+        Arrays.fill(busy, 0);
+        Arrays.fill(overhead, 0);
+        Arrays.fill(switches, 0);
+        for (int cpu = 0; cpu < cpus; cpu++) {
+            setIdle(cpu, true);
+        }
+        migrations = 0;
+        steals = 0;
+        waiting = 0;
+        firstTime = n == 0 ? 0 : arrival[0];
+        lastTime = firstTime;
+
+        EventEngine.EventQueue events = new EventEngine.EventQueue(cpus + 1);
+        this.events = events;
+        int next = 0;
+        if (n > 0) {
+            events.push(arrival[0], EventEngine.ARRIVAL * cpus, 0);
+        }
+        while (!events.isEmpty()) {
+            int t = events.time();
+            int kind = events.kind() / cpus;
+            int cpu = events.kind() % cpus;
+            int tag = events.tag();
+            events.pop();
+            if (kind == EventEngine.ARRIVAL) {
+                // deliver all jobs arrived till now
+                while (next < n && arrival[next] <= t) {
+                    int target = perCpu ? leastLoaded() : 0;
+                    EventEngine.Policy policy = policies[target];
+                    int before = policy.size();
+                    policy.arrive(next, t);
+                    waiting += policy.size() - before;
+                    if (perCpu) {
+                        touched[target >>> 6] |= 1L << target;
+                    }
+                    next++;
+                }
+                if (next < n) {
+                    events.push(arrival[next], EventEngine.ARRIVAL * cpus,
+                            next);
+                }
+                if (perCpu) {
+                    for (int w = 0; w < touched.length; w++) {
+                        while (touched[w] != 0) {
+                            int c = (w << 6)
+                                    + Long.numberOfTrailingZeros(touched[w]);
+                            touched[w] &= touched[w] - 1;
+                            preempt(c, t);
+                        }
+                    }
+                } else {
+                    preemptGlobal(t);
+                }
+            } else if (tag == dispatch[cpu]) {
+                // quantum expiry or completion of the running job
+                int job = running[cpu];
+                remaining[job] -= t - charged[cpu];
+                pendingJob[cpu] = job;
+                pendingStart[cpu] = segmentStart[cpu];
+                pendingEnd[cpu] = t;
+                if (kind == EventEngine.EXPIRY) {
+                    EventEngine.Policy policy = policies[cpu];
+                    int before = policy.size();
+                    policy.expire(job, t);
+                    waiting += policy.size() - before;
+                }
+                running[cpu] = -1;
+                setIdle(cpu, true);
+                freed.add(cpu);
+                lastTime = Math.max(lastTime, t);
+            }
+            // dispatch when all events at the current time are handled
+            if (events.isEmpty() || events.time() > t) {
+                dispatchAll(t);
+            }
+        }
+        this.events = null;
+    }
+
+    /**
+     * Gives jobs to idle CPUs: first to the CPUs freed at this time, then to
+     * the others in order of index. Segments of freed CPUs which did not
+     * get their job back are passed to the sink.
+     *
+     * @param t current time
+     */
+    private void dispatchAll(int t) {
+        int freedCount = freed.size();
+        for (int i = 0; i < freedCount && waiting > 0; i++) {
+            int cpu = freed.poll();
+            freed.add(cpu);
+            if (running[cpu] == -1) {
+                dispatch(cpu, t);
+            }
+        }
+        for (int w = 0; w < idle.length && waiting > 0; w++) {
+            while (idle[w] != 0 && waiting > 0) {
+                dispatch((w << 6) + Long.numberOfTrailingZeros(idle[w]), t);
+            }
+        }
+        while (!freed.isEmpty()) {
+            int cpu = freed.poll();
+            if (pendingJob[cpu] != -1) {
+                emit(cpu, pendingJob[cpu], pendingStart[cpu], pendingEnd[cpu]);
+                pendingJob[cpu] = -1;
+            }
+        }
+    }
+
+    /**
+     * Gives the idle CPU the next job of its queue or a stolen one
+     *
+     * @param cpu idle CPU
+     * @param t current time
+     */
+    private void dispatch(int cpu, int t) {
+        EventEngine.Policy policy = policies[cpu];
+        int job;
+        if (policy.size() > 0) {
+            job = select(policy, t);
+        } else {
+            // steal from the longest queue
+            int victim = 0;
+            for (int c = 1; c < cpus; c++) {
+                if (policies[c].size() > policies[victim].size()) {
+                    victim = c;
+                }
+            }
+            job = select(policies[victim], t);
+            if (job != -1) {
+                steals++;
+            }
+        }
+        if (job == -1) {
+            // the waiting jobs were rejected by admission control
+            return;
+        }
+        start(cpu, job, t);
+    }
+
+    private int select(EventEngine.Policy policy, int t) {
+        int before = policy.size();
+        int job = policy.select(t);
+        waiting += policy.size() - before;
+        return job;
+    }
+
+    /**
+     * Asks the policy of the CPU whether a job arrived to its queue takes
+     * the CPU
+     *
+     * @param cpu busy CPU
+     * @param t current time
+     */
+    private void preempt(int cpu, int t) {
+        int job = running[cpu];
+        if (job == -1 || charged[cpu] > t) {
+            // idle or still paying the migration cost
+            return;
+        }
+        int[] remaining = columns.remaining;
+        remaining[job] -= t - charged[cpu];
+        charged[cpu] = t;
+        EventEngine.Policy policy = policies[cpu];
+        int before = policy.size();
+        int j = policy.preempt(job, t);
+        waiting += policy.size() - before;
+        if (j == job) {
+            // the job starts a new slice, its segment goes on
+            pendingJob[cpu] = job;
+            pendingStart[cpu] = segmentStart[cpu];
+            pendingEnd[cpu] = t;
+            start(cpu, j, t);
+        } else if (j != -1) {
+            emit(cpu, job, segmentStart[cpu], t);
+            start(cpu, j, t);
+        }
+    }
+
+    /**
+     * Asks the global policy for preemptions while jobs wait and no CPU is
+     * idle. The running job with the most remaining time is asked first,
+     * every CPU is asked once and asking stops at the first refusal.
+     *
+     * @param t current time
+     */
+    private void preemptGlobal(int t) {
+        int[] remaining = columns.remaining;
+        while (waiting > 0 && !anyIdle()) {
+            int victim = -1;
+            long most = Long.MIN_VALUE;
+            for (int cpu = 0; cpu < cpus; cpu++) {
+                if (charged[cpu] <= t
+                        && (touched[cpu >>> 6] & (1L << cpu)) == 0) {
+                    long left = (long) remaining[running[cpu]]
+                            - (t - charged[cpu]);
+                    if (left > most) {
+                        most = left;
+                        victim = cpu;
+                    }
+                }
+            }
+            if (victim == -1) {
+                break;
+            }
+            touched[victim >>> 6] |= 1L << victim;
+            int job = running[victim];
+            preempt(victim, t);
+            if (running[victim] == job) {
+                break;
+            }
+        }
+        Arrays.fill(touched, 0);
+    }
+
+    /**
+     * @return CPU with the fewest ready and running jobs, the first one on
+     * equal loads
+     */
+    private int leastLoaded() {
+        int best = 0;
+        int bestLoad = Integer.MAX_VALUE;
+        for (int cpu = 0; cpu < cpus; cpu++) {
+            int load = policies[cpu].size() + (running[cpu] == -1 ? 0 : 1);
+            if (load < bestLoad) {
+                best = cpu;
+                bestLoad = load;
+                if (load == 0) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Starts the job on the CPU and queues the end of its slice
+     *
+     * @param cpu CPU
+     * @param job index of the job
+     * @param t current time
+     */
+    private void start(int cpu, int job, int t) {
+        setIdle(cpu, false);
+        int cost = 0;
+        if (lastCpu[job] != -1 && lastCpu[job] != cpu) {
+            migrations++;
+            cost = migrationCost;
+            overhead[cpu] += cost;
+        }
+        lastCpu[job] = cpu;
+        if (lastJob[cpu] != job) {
+            // the first job of a CPU is no switch, as in Metrics
+            if (lastJob[cpu] != -1) {
+                switches[cpu]++;
+            }
+            lastJob[cpu] = job;
+        }
+        running[cpu] = job;
+        charged[cpu] = t + cost;
+        segmentStart[cpu] = t + cost;
+        if (pendingJob[cpu] != -1) {
+            if (pendingJob[cpu] == job && pendingEnd[cpu] == t) {
+                // the job got its CPU back, the segment goes on
+                segmentStart[cpu] = pendingStart[cpu];
+            } else {
+                emit(cpu, pendingJob[cpu], pendingStart[cpu],
+                        pendingEnd[cpu]);
+            }
+            pendingJob[cpu] = -1;
+        }
+        int q = policies[cpu].quantum(job);
+        int left = columns.remaining[job];
+        int kind = left <= q ? EventEngine.COMPLETION : EventEngine.EXPIRY;
+        dispatch[cpu]++;
+        events.push(t + cost + Math.min(left, q), kind * cpus + cpu,
+                dispatch[cpu]);
+    }
+
+    private void emit(int cpu, int job, int from, int to) {
+        if (to > from) {
+            busy[cpu] += to - from;
+            out.segment(job, jobs.getName(job), from, to);
+        }
+    }
+
+    private void setIdle(int cpu, boolean value) {
+        if (value) {
+            idle[cpu >>> 6] |= 1L << cpu;
+        } else {
+            idle[cpu >>> 6] &= ~(1L << cpu);
+        }
+    }
+
+    private boolean anyIdle() {
+        for (long word : idle) {
+            if (word != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getCpus() {
+        return cpus;
+    }
+
+    /**
+     * @param cpu CPU
+     * @return time the CPU ran jobs
+     */
+    public long getBusy(int cpu) {
+        return busy[cpu];
+    }
+
+    /**
+     * @param cpu CPU
+     * @return time the CPU spent on migrations
+     */
+    public long getOverhead(int cpu) {
+        return overhead[cpu];
+    }
+
+    /**
+     * @param cpu CPU
+     * @return number of times the CPU started another job than before
+     */
+    public long getContextSwitches(int cpu) {
+        return switches[cpu];
+    }
+
+    /**
+     * @return time from the first arrival to the last completion
+     */
+    public long getMakespan() {
+        return (long) lastTime - firstTime;
+    }
+
+    /**
+     * @param cpu CPU
+     * @return busy time of the CPU divided by the makespan
+     */
+    public double getUtilization(int cpu) {
+        return getMakespan() == 0 ? 0 : (double) busy[cpu] / getMakespan();
+    }
+
+    /**
+     * @return busy time of the busiest CPU over the mean busy time, minus 1;
+     * 0 when the load is even
+     */
+    public double getImbalance() {
+        long max = 0;
+        long total = 0;
+        for (long b : busy) {
+            max = Math.max(max, b);
+            total += b;
+        }
+        return total == 0 ? 0 : (double) max * cpus / total - 1;
+    }
+
+    /**
+     * @return number of jobs started on another CPU than they last ran on
+     */
+    public long getMigrations() {
+        return migrations;
+    }
+
+    /**
+     * @return number of jobs taken from the queue of another CPU
+     */
+    public long getSteals() {
+        return steals;
+    }
+
+    private final JobTable jobs;
+    private final int cpus;
+    private final boolean perCpu;
+    private final int migrationCost;
+    // engine whose columns the policies read
+    private final EventEngine columns;
+    // policy of every CPU, the same one for the global queue
+    private final EventEngine.Policy[] policies;
+    private TimelineSink out;
+    private EventEngine.EventQueue events;
+    // number of ready jobs in all policies
+    private int waiting;
+
+    // per CPU: running job or -1, start of its segment, time it was
+    // charged till (start of the run after the migration cost), number of
+    // the dispatch whose event is valid, last job
+    private final int[] running;
+    private final int[] segmentStart;
+    private final int[] charged;
+    private final int[] dispatch;
+    private final int[] lastJob;
+    // segment ended at this time, kept till the dispatch in case the job
+    // goes on
+    private final int[] pendingJob;
+    private final int[] pendingStart;
+    private final int[] pendingEnd;
+    private final IntQueue freed = new IntQueue();
+    // bit set of CPUs which got arrived jobs or were asked to preempt
+    private final long[] touched;
+    // bit set of idle CPUs
+    private final long[] idle;
+    private final long[] busy;
+    private final long[] overhead;
+    private final long[] switches;
+    // CPU every job last ran on or -1
+    private final int[] lastCpu;
+    private long migrations;
+    private long steals;
+    private int firstTime;
+    private int lastTime;
+}
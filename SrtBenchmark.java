@@ -0,0 +1,133 @@
+
+import java.util.Random;
+
+/**
+ * class SrtBenchmark runs SRT on workloads with heavy preemption: service
+ * times are heavy-tailed and the CPU is overloaded, so most arrivals find
+ * a long job running and preempt it. The default loads are 1.2, where the
+ * backlog grows slowly, and 50, a long burst of arrivals which leaves
+ * about half of the jobs waiting (the shortest job runs, so none is
+ * preempted): there a scan of the ready jobs is quadratic and the heap
+ * wins by orders of magnitude. The heap based
+ * policy is checked against the scanning reference (SrtScan) while a scan
+ * takes less than SCAN_MILLIS, then timed alone up to the largest size.
+ * The bytes allocated by a run are printed per job: they are the name
+ * ranks and the heap, an event allocates nothing.
+ *
+ * Usage: java SrtBenchmark [max jobs] [loads joined by ','] [seed]
+ */
+public class SrtBenchmark {
+
+    // the scan is not run on larger workloads once it took this long
+    private static final long SCAN_MILLIS = 5000;
+
+    /**
+     * Sink which hashes the timeline and counts the segments
+     */
+    private static class HashSink implements TimelineSink {
+
+        @Override
+        public void segment(int job, String name, int start, int end) {
+            hash = hash * 31 + job;
+            hash = hash * 31 + start;
+            hash = hash * 31 + end;
+            segments++;
+        }
+
+        long hash;
+        long segments;
+    }
+
+    /**
+     * Main function
+     * @param args maximum number of jobs, loads of the CPU, random seed
+     */
+    public static void main(String[] args) {
+        int maxJobs = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+        String[] loads = (args.length > 1 ? args[1] : "1.2,50").split(",");
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        JobTable warmUp = workload(10000, 1.2, seed);
+        for (int i = 0; i < 5; i++) {
+            run(warmUp, false);
+            run(warmUp, true);
+        }
+        System.out.printf("%6s %10s %12s %12s %12s %12s%n", "load", "jobs",
+                "preemptions", "scan ms", "heap ms", "bytes/job");
+        for (String value : loads) {
+            double load = Double.parseDouble(value);
+            boolean scanning = true;
+            for (int n = 1000; n <= maxJobs; n *= 10) {
+                JobTable jobs = workload(n, load, seed);
+                long allocated = Benchmark.allocatedBytes();
+                long time = System.nanoTime();
+                HashSink heap = run(jobs, false);
+                time = System.nanoTime() - time;
+                allocated = allocated < 0 ? -1
+                        : Benchmark.allocatedBytes() - allocated;
+                String scanTime = "-";
+                if (scanning) {
+                    long scan = System.nanoTime();
+                    HashSink reference = run(jobs, true);
+                    scan = System.nanoTime() - scan;
+                    scanTime = String.format("%.1f", scan / 1e6);
+                    scanning = scan < SCAN_MILLIS * 1000000;
+                    if (reference.hash != heap.hash
+                            || reference.segments != heap.segments) {
+                        System.out.println("Schedules differ for " + n
+                                + " jobs");
+                        System.exit(1);
+                    }
+                }
+                System.out.printf("%6s %10d %12d %12s %12.1f %12s%n", value,
+                        n, heap.segments - n, scanTime, time / 1e6,
+                        allocated < 0 ? "n/a"
+                        : String.format("%.1f", (double) allocated / n));
+            }
+        }
+    }
+
+    /**
+     * Runs SRT on the jobs
+     *
+     * @param jobs table of jobs
+     * @param scan true to use the scanning policy
+     * @return sink holding the hash of the schedule
+     */
+    private static HashSink run(JobTable jobs, boolean scan) {
+        EventEngine engine = new EventEngine(jobs);
+        HashSink sink = new HashSink();
+        engine.run(scan ? new Policies.SrtScan(engine)
+                : new Policies.Srt(engine), sink);
+        return sink;
+    }
+
+    /**
+     * Creates random workload with exponential interarrival times and
+     * Pareto service times from 1 to 10000
+     *
+     * @param n number of jobs
+     * @param load mean service time divided by mean interarrival time
+     * @param seed random seed
+     * @return table of jobs
+     */
+    private static JobTable workload(int n, double load, long seed) {
+        Random random = new Random(seed);
+        JobTable jobs = new JobTable(n);
+        double[] service = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            service[i] = Math.min(10000,
+                    Math.pow(1 - random.nextDouble(), -1 / 1.2));
+            total += Math.round(service[i]);
+        }
+        double meanArrival = total / n / load;
+        double time = 0;
+        for (int i = 0; i < n; i++) {
+            jobs.add("J" + (i % 4096), (int) time,
+                    (int) Math.round(service[i]));
+            time += -Math.log(1 - random.nextDouble()) * meanArrival;
+        }
+        return jobs;
+    }
+}
@@ -0,0 +1,547 @@
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * class Stats counts what the scheduling algorithms do and times the
+ * phases of a run. It is off by default; then Scheduler.schedule runs the
+ * engine as before and the only cost is reading one flag per run.
+ *
+ * When it is on, the policy and the sink of every run are wrapped: the
+ * wrappers count in plain fields and add the counts to LongAdders of the
+ * algorithm when the run is finished, so runs on many threads do not
+ * contend. Every dispatch, preemption and completion is also a JFR event
+ * (scheduler.Dispatch, scheduler.Preempt, scheduler.Complete) and every
+ * phase a scheduler.Phase event, if the JVM has JFR and a recording takes
+ * them. The events are defined at run time by jdk.jfr.EventFactory,
+ * the Java 8 API has no jdk.jfr.
+ *
+ * Counters of an algorithm:
+ *   runs         simulations
+ *   arrivals     jobs added to the policy
+ *   dispatches   jobs given the CPU (select and preemption)
+ *   expiries     quanta expired
+ *   preemptions  running jobs taken off the CPU by an arrival
+ *   completions  finished jobs
+ *   segments     executed parts of jobs passed to the output
+ *   idleGaps     times the CPU became idle
+ *   queueOps     calls adding or removing jobs in the policy
+ *   nanos        time of the simulations including the output
+ */
+public class Stats implements StatsMBean {
+
+    // names of the counters, in the order of the indices below
+    public static final String[] COUNTERS = {
+        "runs", "arrivals", "dispatches", "expiries", "preemptions",
+        "completions", "segments", "idleGaps", "queueOps", "nanos"
+    };
+
+    private static final int RUNS = 0;
+    private static final int ARRIVALS = 1;
+    private static final int DISPATCHES = 2;
+    private static final int EXPIRIES = 3;
+    private static final int PREEMPTIONS = 4;
+    private static final int COMPLETIONS = 5;
+    private static final int SEGMENTS = 6;
+    private static final int IDLE_GAPS = 7;
+    private static final int QUEUE_OPS = 8;
+    private static final int NANOS = 9;
+
+    // the one instance, registered in JMX
+    private static final Stats STATS = new Stats();
+
+    private static volatile boolean enabled;
+
+    /**
+     * @return true if the runs are counted
+     */
+    public static boolean on() {
+        return enabled;
+    }
+
+    /**
+     * Turns counting on and registers the MBean
+     */
+    public static void enable() {
+        enabled = true;
+        register();
+    }
+
+    /**
+     * @return the instance registered in JMX
+     */
+    public static Stats get() {
+        return STATS;
+    }
+
+    /**
+     * Registers the MBean as "Scheduler:type=Stats" if it is not yet
+     */
+    public static synchronized void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("Scheduler:type=Stats");
+            if (!server.isRegistered(name)) {
+                server.registerMBean(STATS, name);
+            }
+        } catch (JMException | SecurityException ex) {
+            // counted anyway, only not visible in JMX
+        }
+    }
+
+    /**
+     * Runs the engine counting the run
+     *
+     * @param algorithm name of scheduling algorithm with parameters
+     * @param jobs table of jobs
+     * @param engine engine of the table
+     * @param policy policy of the algorithm on the engine
+     * @param sink receiver of the timeline
+     */
+    static void run(String algorithm, JobTable jobs, EventEngine engine,
+            EventEngine.Policy policy, TimelineSink sink) {
+        long[] counts = new long[COUNTERS.length];
+        long start = System.nanoTime();
+        engine.run(new CountingPolicy(algorithm, policy, counts),
+                new CountingSink(algorithm, jobs, sink, counts));
+        counts[RUNS] = 1;
+        counts[NANOS] = System.nanoTime() - start;
+        LongAdder[] adders = STATS.counters.computeIfAbsent(algorithm,
+                a -> newAdders());
+        for (int i = 0; i < counts.length; i++) {
+            adders[i].add(counts[i]);
+        }
+    }
+
+    /**
+     * Starts timing the phase, the phase is timed till its end is called
+     *
+     * @param name name of the phase
+     * @return timer of the phase, it does nothing if counting is off
+     */
+    public static Phase phase(String name) {
+        return enabled ? new Phase(name) : Phase.OFF;
+    }
+
+    /**
+     * Timer of a phase
+     */
+    public static class Phase {
+
+        static final Phase OFF = new Phase();
+
+        private Phase() {
+            name = null;
+            start = 0;
+            event = null;
+        }
+
+        Phase(String name) {
+            this.name = name;
+            event = Events.PHASE == null ? null : Events.PHASE.begin();
+            start = System.nanoTime();
+        }
+
+        /**
+         * Ends the phase
+         */
+        public void end() {
+            if (name == null) {
+                return;
+            }
+            STATS.phases.computeIfAbsent(name, n -> new LongAdder())
+                    .add(System.nanoTime() - start);
+            if (event != null) {
+                Events.PHASE.end(event, name);
+            }
+        }
+
+        private final String name;
+        private final long start;
+        private final Object event;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    @Override
+    public String[] getAlgorithms() {
+        String[] names = counters.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        return names;
+    }
+
+    @Override
+    public long getCounter(String algorithm, String counter) {
+        LongAdder[] adders = counters.get(algorithm);
+        int index = Arrays.asList(COUNTERS).indexOf(counter);
+        return adders == null || index < 0 ? -1 : adders[index].sum();
+    }
+
+    @Override
+    public double getPhaseMillis(String phase) {
+        LongAdder nanos = phases.get(phase);
+        return nanos == null ? 0 : nanos.sum() / 1e6;
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-20s", "algorithm"));
+        for (int i = 0; i < COUNTERS.length - 1; i++) {
+            report.append(String.format(" %12s", COUNTERS[i]));
+        }
+        report.append(String.format(" %12s%n", "ms"));
+        for (String algorithm : getAlgorithms()) {
+            LongAdder[] adders = counters.get(algorithm);
+            report.append(String.format("%-20s", algorithm));
+            for (int i = 0; i < COUNTERS.length - 1; i++) {
+                report.append(String.format(" %12d", adders[i].sum()));
+            }
+            report.append(String.format(" %12.1f%n",
+                    adders[NANOS].sum() / 1e6));
+        }
+        String[] names = phases.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        for (String phase : names) {
+            report.append(String.format("phase %-14s %12.1f ms%n", phase,
+                    getPhaseMillis(phase)));
+        }
+        return report.toString();
+    }
+
+    @Override
+    public void reset() {
+        counters.clear();
+        phases.clear();
+    }
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[COUNTERS.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Policy which counts the calls of the engine
+     */
+    private static class CountingPolicy implements EventEngine.Policy {
+
+        CountingPolicy(String algorithm, EventEngine.Policy policy,
+                long[] counts) {
+            this.algorithm = algorithm;
+            this.policy = policy;
+            this.counts = counts;
+            dispatchEvent = JfrEvent.recorded(Events.DISPATCH);
+            preemptEvent = JfrEvent.recorded(Events.PREEMPT);
+        }
+
+        @Override
+        public void arrive(int job, int time) {
+            counts[ARRIVALS]++;
+            counts[QUEUE_OPS]++;
+            policy.arrive(job, time);
+        }
+
+        @Override
+        public int select(int time) {
+            counts[QUEUE_OPS]++;
+            int job = policy.select(time);
+            if (job >= 0) {
+                counts[DISPATCHES]++;
+                if (dispatchEvent != null) {
+                    dispatchEvent.commit(algorithm, job, time);
+                }
+            }
+            return job;
+        }
+
+        @Override
+        public int quantum(int job) {
+            return policy.quantum(job);
+        }
+
+        @Override
+        public void expire(int job, int time) {
+            counts[EXPIRIES]++;
+            counts[QUEUE_OPS]++;
+            policy.expire(job, time);
+        }
+
+        @Override
+        public int preempt(int running, int time) {
+            int job = policy.preempt(running, time);
+            if (job >= 0) {
+                counts[PREEMPTIONS]++;
+                counts[DISPATCHES]++;
+                // the running job went back, the new one came out
+                counts[QUEUE_OPS] += 2;
+                if (preemptEvent != null) {
+                    preemptEvent.commit(algorithm, job, time);
+                }
+            }
+            return job;
+        }
+
+        @Override
+        public boolean steady(int job) {
+            return policy.steady(job);
+        }
+
+        @Override
+        public int size() {
+            return policy.size();
+        }
+
+        @Override
+        public void grow() {
+            policy.grow();
+        }
+
+        @Override
+        public EventEngine.Policy sibling() {
+            return new CountingPolicy(algorithm, policy.sibling(), counts);
+        }
+
+        private final String algorithm;
+        private final EventEngine.Policy policy;
+        private final long[] counts;
+        // event types recorded when the run began or null
+        private final JfrEvent dispatchEvent;
+        private final JfrEvent preemptEvent;
+    }
+
+    /**
+     * Sink which counts segments, idle gaps and completions
+     */
+    private static class CountingSink implements TimelineSink {
+
+        CountingSink(String algorithm, JobTable jobs, TimelineSink out,
+                long[] counts) {
+            this.algorithm = algorithm;
+            this.jobs = jobs;
+            this.out = out;
+            this.counts = counts;
+            executed = new int[jobs.size()];
+            completeEvent = JfrEvent.recorded(Events.COMPLETE);
+        }
+
+        @Override
+        public void segment(int job, String name, int start, int end) {
+            counts[SEGMENTS]++;
+            if (any && start > lastEnd) {
+                counts[IDLE_GAPS]++;
+            }
+            any = true;
+            lastEnd = end;
+            executed[job] += end - start;
+            if (executed[job] == jobs.service[job]) {
+                counts[COMPLETIONS]++;
+                if (completeEvent != null) {
+                    completeEvent.commit(algorithm, job, end);
+                }
+            }
+            out.segment(job, name, start, end);
+        }
+
+        @Override
+        public void finish() {
+            out.finish();
+        }
+
+        private final String algorithm;
+        private final JobTable jobs;
+        private final TimelineSink out;
+        private final long[] counts;
+        private final JfrEvent completeEvent;
+        // time run by every job
+        private final int[] executed;
+        private boolean any;
+        private int lastEnd;
+    }
+
+    /**
+     * JFR event type defined at run time through reflection, so it costs
+     * nothing where JFR is missing. Runs check once at their start whether
+     * a recording takes the type.
+     */
+    static class JfrEvent {
+
+        /**
+         * Defines the event type
+         *
+         * @param name name of the event type
+         * @param label label of the event type
+         * @param fields names of the fields
+         * @param types types of the fields
+         * @return event type or null if the JVM has no JFR
+         */
+        static JfrEvent define(String name, String label, String[] fields,
+                Class<?>[] types) {
+            try {
+                Class<?> element = Class.forName("jdk.jfr.AnnotationElement");
+                Constructor<?> annotation = element.getConstructor(
+                        Class.class, Object.class);
+                List<Object> annotations = new ArrayList<>();
+                annotations.add(annotation.newInstance(
+                        Class.forName("jdk.jfr.Name"), name));
+                annotations.add(annotation.newInstance(
+                        Class.forName("jdk.jfr.Label"), label));
+                annotations.add(annotation.newInstance(
+                        Class.forName("jdk.jfr.Category"),
+                        new String[]{"Scheduler"}));
+                Constructor<?> descriptor = Class.forName(
+                        "jdk.jfr.ValueDescriptor").getConstructor(
+                                Class.class, String.class);
+                List<Object> values = new ArrayList<>();
+                for (int i = 0; i < fields.length; i++) {
+                    values.add(descriptor.newInstance(types[i], fields[i]));
+                }
+                Class<?> factory = Class.forName("jdk.jfr.EventFactory");
+                Object instance = factory.getMethod("create", List.class,
+                        List.class).invoke(null, annotations, values);
+                return new JfrEvent(instance, factory);
+            } catch (ReflectiveOperationException | LinkageError
+                    | RuntimeException ex) {
+                return null;
+            }
+        }
+
+        private JfrEvent(Object factory, Class<?> factoryClass)
+                throws ReflectiveOperationException {
+            this.factory = factory;
+            Class<?> event = Class.forName("jdk.jfr.Event");
+            newEvent = factoryClass.getMethod("newEvent");
+            type = factoryClass.getMethod("getEventType").invoke(factory);
+            isEnabled = Class.forName("jdk.jfr.EventType")
+                    .getMethod("isEnabled");
+            begin = event.getMethod("begin");
+            set = event.getMethod("set", int.class, Object.class);
+            commit = event.getMethod("commit");
+        }
+
+        /**
+         * @param event event type or null
+         * @return the event type if a recording takes it now, else null
+         */
+        static JfrEvent recorded(JfrEvent event) {
+            return event != null && event.isRecorded() ? event : null;
+        }
+
+        /**
+         * @return true if a recording takes this type
+         */
+        boolean isRecorded() {
+            try {
+                return (Boolean) isEnabled.invoke(type);
+            } catch (ReflectiveOperationException ex) {
+                return false;
+            }
+        }
+
+        /**
+         * Commits an event
+         *
+         * @param values values of the fields
+         */
+        void commit(Object... values) {
+            try {
+                Object event = newEvent.invoke(factory);
+                for (int i = 0; i < values.length; i++) {
+                    set.invoke(event, i, values[i]);
+                }
+                commit.invoke(event);
+            } catch (ReflectiveOperationException ex) {
+                // the event is lost
+            }
+        }
+
+        /**
+         * @return started event of a duration, null if no recording takes
+         * this type
+         */
+        Object begin() {
+            if (!isRecorded()) {
+                return null;
+            }
+            try {
+                Object event = newEvent.invoke(factory);
+                begin.invoke(event);
+                return event;
+            } catch (ReflectiveOperationException ex) {
+                return null;
+            }
+        }
+
+        /**
+         * Commits the event started by begin
+         *
+         * @param event started event
+         * @param values values of the fields
+         */
+        void end(Object event, Object... values) {
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    set.invoke(event, i, values[i]);
+                }
+                commit.invoke(event);
+            } catch (ReflectiveOperationException ex) {
+                // the event is lost
+            }
+        }
+
+        private final Object factory;
+        private final Object type;
+        private final Method newEvent;
+        private final Method isEnabled;
+        private final Method begin;
+        private final Method set;
+        private final Method commit;
+    }
+
+    /**
+     * JFR event types, null without JFR. They are defined when counting
+     * first uses them, a run without counting does not load JFR.
+     */
+    private static class Events {
+
+        private static final String[] FIELDS = {"algorithm", "job",
+            "time"};
+        private static final Class<?>[] TYPES = {String.class, int.class,
+            int.class};
+
+        static final JfrEvent DISPATCH = JfrEvent.define(
+                "scheduler.Dispatch", "Dispatch", FIELDS, TYPES);
+        static final JfrEvent PREEMPT = JfrEvent.define(
+                "scheduler.Preempt", "Preempt", FIELDS, TYPES);
+        static final JfrEvent COMPLETE = JfrEvent.define(
+                "scheduler.Complete", "Complete", FIELDS, TYPES);
+        static final JfrEvent PHASE = JfrEvent.define("scheduler.Phase",
+                "Phase", new String[]{"phase"}, new Class<?>[]{String.class});
+    }
+
+    // counters of every algorithm, in the order of COUNTERS
+    private final Map<String, LongAdder[]> counters =
+            new ConcurrentHashMap<>();
+    // time of every phase in nanoseconds
+    private final Map<String, LongAdder> phases = new ConcurrentHashMap<>();
+}
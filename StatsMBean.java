@@ -0,0 +1,47 @@
+
+/**
+ * Interface StatsMBean is the JMX view of Stats, registered as
+ * "Scheduler:type=Stats"
+ */
+public interface StatsMBean {
+
+    /**
+     * @return true if the runs are counted
+     */
+    boolean isEnabled();
+
+    /**
+     * Turns counting on or off, runs which started go on as they began
+     *
+     * @param enabled true to count the runs
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return algorithms which have been counted
+     */
+    String[] getAlgorithms();
+
+    /**
+     * @param algorithm name of scheduling algorithm with parameters
+     * @param counter name of the counter, see Stats.COUNTERS
+     * @return value of the counter or -1 if it is unknown
+     */
+    long getCounter(String algorithm, String counter);
+
+    /**
+     * @param phase name of the phase
+     * @return total time of the phase in milliseconds
+     */
+    double getPhaseMillis(String phase);
+
+    /**
+     * @return table of all counters and phases
+     */
+    String getReport();
+
+    /**
+     * Sets all counters and phases to zero
+     */
+    void reset();
+}
@@ -0,0 +1,184 @@
+
+import java.io.PrintWriter;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * class Sweep runs RR and FB over a grid of parameters and prints mean
+ * turnaround time, mean normalized turnaround time (Tr/Ts) and number of
+ * context switches of every configuration.
+ *
+ * The workload is parsed once and frozen, every configuration runs on a
+ * fork of it in a fork-join pool.
+ *
+ * Options (ranges are "a..b", geometric "a..b*k" or lists "a,b,c"):
+ *   -q quanta of RR and the first FB level, default 1..8
+ *   -l numbers of FB levels, default 2..4, at most
+ *      Policies.Feedback.MAX_LEVELS
+ *   -g growth of the FB quantum per level, 1 keeps it constant and 2 gives
+ *      quantum * 2^i on level i, default 1,2
+ *   -p number of threads, all cores by default
+ *   -c directory of the ResultCache, configurations run before are
+ *      replayed
+ */
+public class Sweep {
+
+    /**
+     * Runs the sweep
+     *
+     * @param jobs table of jobs
+     * @param args options
+     * @param out output
+     * @return false if the options are malformed
+     */
+    public static boolean run(JobTable jobs, String[] args, PrintWriter out) {
+        int[] quanta = {1, 2, 3, 4, 5, 6, 7, 8};
+        int[] levels = {2, 3, 4};
+        int[] growths = {1, 2};
+        int threads = Runtime.getRuntime().availableProcessors();
+        Renderers.Simulator simulator = Scheduler::schedule;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("-c")) {
+                simulator = new ResultCache(Paths.get(args[i + 1]),
+                        ResultCache.MEMORY_BYTES, ResultCache.DISK_BYTES)
+                        .simulator(simulator);
+                continue;
+            }
+            int[] values = parseRange(args[i + 1]);
+            if (values == null) {
+                return false;
+            }
+            if (args[i].equals("-q")) {
+                quanta = values;
+            } else if (args[i].equals("-l")) {
+                levels = values;
+            } else if (args[i].equals("-g")) {
+                growths = values;
+            } else if (args[i].equals("-p")) {
+                threads = values[0];
+            } else {
+                return false;
+            }
+        }
+        if (args.length % 2 != 0) {
+            return false;
+        }
+        for (int l : levels) {
+            if (l > Policies.Feedback.MAX_LEVELS) {
+                return false;
+            }
+        }
+
+        // build the grid, a configuration given twice runs once: one level
+        // or a quantum which stops growing at its limit repeat a name
+        LinkedHashSet<String> grid = new LinkedHashSet<>();
+        for (int q : quanta) {
+            grid.add("RR:" + q);
+        }
+        for (int l : levels) {
+            for (int g : growths) {
+                for (int q : quanta) {
+                    StringBuilder config = new StringBuilder("FB:");
+                    long quantum = q;
+                    for (int i = 0; i < l; i++) {
+                        config.append(i == 0 ? "" : ",").append(quantum);
+                        quantum = Math.min(quantum * g, Integer.MAX_VALUE);
+                    }
+                    grid.add(config.toString());
+                }
+            }
+        }
+        ArrayList<String> configs = new ArrayList<>(grid);
+        for (String config : configs) {
+            if (!Scheduler.isKnown(config)) {
+                out.println("Unknown scheduling algorithm " + config);
+                out.flush();
+                return true;
+            }
+        }
+
+        Renderers.Simulator sweepSimulator = simulator;
+        jobs.freeze();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            List<Callable<Metrics>> tasks = new ArrayList<>();
+            for (String config : configs) {
+                tasks.add(() -> {
+                    JobTable fork = jobs.fork();
+                    Metrics metrics = new Metrics(fork);
+                    if (!sweepSimulator.schedule(config, fork, metrics)) {
+                        throw new IllegalArgumentException(
+                                "Unknown scheduling algorithm " + config);
+                    }
+                    return metrics;
+                });
+            }
+            List<Future<Metrics>> results = pool.invokeAll(tasks);
+            out.printf("%-24s %14s %14s %12s%n", "configuration",
+                    "mean Tr", "mean Tr/Ts", "switches");
+            for (int i = 0; i < configs.size(); i++) {
+                Metrics m = results.get(i).get();
+                out.printf("%-24s %14.3f %14.3f %12d%n", configs.get(i),
+                        m.getMeanTurnaround(),
+                        m.getMeanNormalizedTurnaround(),
+                        m.getContextSwitches());
+            }
+            out.flush();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return true;
+    }
+
+    /**
+     * Parses range of positive ints: "a..b", "a..b*k" or "a,b,c"
+     *
+     * @param text range
+     * @return values or null if the range is malformed
+     */
+    static int[] parseRange(String text) {
+        try {
+            ArrayList<Integer> values = new ArrayList<>();
+            for (String part : text.split(",")) {
+                int dots = part.indexOf("..");
+                if (dots < 0) {
+                    values.add(Integer.parseInt(part.trim()));
+                    continue;
+                }
+                int star = part.indexOf('*', dots);
+                int from = Integer.parseInt(part.substring(0, dots).trim());
+                int to = Integer.parseInt(part.substring(dots + 2,
+                        star < 0 ? part.length() : star).trim());
+                int factor = star < 0 ? 1
+                        : Integer.parseInt(part.substring(star + 1).trim());
+                if (from <= 0 || (star >= 0 && factor < 2)) {
+                    return null;
+                }
+                for (long v = from; v <= to; v = factor == 1 ? v + 1
+                        : v * factor) {
+                    values.add((int) v);
+                }
+            }
+            int[] result = new int[values.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = values.get(i);
+                if (result[i] <= 0) {
+                    return null;
+                }
+            }
+            return result.length == 0 ? null : result;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
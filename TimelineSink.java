@@ -0,0 +1,135 @@
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+/**
+ * Interface TimelineSink receives the schedule while it is simulated, one
+ * executed part of a job (segment) at a time in order of time. Sinks can
+ * keep the segments, write them out or compute statistics without holding
+ * the whole schedule in memory.
+ */
+public interface TimelineSink {
+
+    /**
+     * Receives executed part of the job
+     *
+     * @param job index of the job
+     * @param name name of the job
+     * @param start start time
+     * @param end end time
+     */
+    void segment(int job, String name, int start, int end);
+
+    /**
+     * Called once after the last segment
+     */
+    default void finish() {
+    }
+
+    /**
+     * Sink which collects the segments into ArrayList of finished jobs
+     */
+    class ListSink implements TimelineSink {
+
+        @Override
+        public void segment(int job, String name, int start, int end) {
+            jobDone.add(new Scheduler.JobDone(name, start, end));
+        }
+
+        /**
+         * @return ArrayList with finished jobs
+         */
+        public ArrayList<Scheduler.JobDone> getJobDone() {
+            return jobDone;
+        }
+
+        private final ArrayList<Scheduler.JobDone> jobDone = new ArrayList<>();
+    }
+
+    /**
+     * Sink which writes the segments as lines "name start end"
+     */
+    class WriterSink implements TimelineSink {
+
+        /**
+         * @param out writer, preferably buffered; it is flushed but not
+         * closed by finish
+         */
+        public WriterSink(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void segment(int job, String name, int start, int end) {
+            try {
+                out.write(name);
+                out.write('\t');
+                out.write(Integer.toString(start));
+                out.write('\t');
+                out.write(Integer.toString(end));
+                out.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public void finish() {
+            try {
+                out.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private final Writer out;
+    }
+
+    /**
+     * Sink which merges adjacent segments of the same job before passing
+     * them to another sink
+     */
+    class MergingSink implements TimelineSink {
+
+        /**
+         * @param out sink receiving merged segments
+         */
+        public MergingSink(TimelineSink out) {
+            this.out = out;
+        }
+
+        @Override
+        public void segment(int job, String name, int start, int end) {
+            if (job == lastJob && start == lastEnd) {
+                lastEnd = end;
+                return;
+            }
+            flush();
+            lastJob = job;
+            lastName = name;
+            lastStart = start;
+            lastEnd = end;
+        }
+
+        @Override
+        public void finish() {
+            flush();
+            out.finish();
+        }
+
+        private void flush() {
+            if (lastJob != -1) {
+                out.segment(lastJob, lastName, lastStart, lastEnd);
+                lastJob = -1;
+            }
+        }
+
+        private final TimelineSink out;
+        private int lastJob = -1;
+        private String lastName;
+        private int lastStart;
+        private int lastEnd;
+    }
+}
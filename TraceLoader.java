@@ -0,0 +1,592 @@
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * class TraceLoader reads a file of jobs in the format of jobs.txt into a
+ * JobTable. The file is memory-mapped and split at line ends into chunks,
+ * which are parsed in parallel straight from the bytes into primitive
+ * arrays; no String is created per token, only once for every distinct
+ * name in a chunk. Scanner and regular expressions are not used.
+ *
+ * As before, empty lines are skipped and the first non-empty line is the
+ * header. Every other non-blank line has to be "name arrival service"
+ * separated by spaces or tabs, the arrival time not negative and the
+ * service time positive, optionally followed by a positive weight
+ * (tickets of LOTTERY and STRIDE), which is 1 if it is left out, and by a
+ * deadline: '@' and the time the job should be finished by, for example
+ * "A 0 3 @10" or "A 0 3 2 @10". A job without a deadline has none.
+ */
+public class TraceLoader {
+
+    // number of bytes parsed by one task
+    private static final int CHUNK = 16 << 20;
+
+    // number of bytes copied from the mapping at a time
+    private static final int WINDOW = 64 << 10;
+
+    // number of malformed lines listed in the error message
+    private static final int MAX_ERRORS = 20;
+
+    /**
+     * Consumer of the jobs of a trace, which are given part by part in
+     * the order of the file
+     */
+    public interface Batch {
+
+        /**
+         * Takes the jobs of the next part, the arrays are not kept
+         *
+         * @param names names used by the jobs of the part
+         * @param nameIds index into names of every job
+         * @param arrival arrival time of every job
+         * @param service service time of every job
+         * @param weight weight of every job or null if all weights are 1
+         * @param deadline deadline of every job or null if no job has one
+         * @param count number of jobs
+         * @throws IOException if the jobs can not be stored
+         */
+        void add(String[] names, int[] nameIds, int[] arrival,
+                int[] service, int[] weight, int[] deadline, int count)
+                throws IOException;
+    }
+
+    /**
+     * Loads the file
+     *
+     * @param file file of jobs
+     * @return table of jobs
+     * @throws IOException if the file can not be read
+     * @throws ParseException if some lines are malformed, the message
+     * lists them and the error offset is the first malformed line
+     */
+    public static JobTable load(Path file) throws IOException,
+            ParseException {
+        JobTable jobs = new JobTable();
+        scan(file, (names, nameIds, arrival, service, weight, deadline,
+                count) -> {
+            if (count > Integer.MAX_VALUE - 8 - jobs.size()) {
+                throw new IOException("Too many jobs in " + file);
+            }
+            jobs.addAll(names, nameIds, arrival, service, weight, deadline,
+                    count);
+        });
+        return jobs;
+    }
+
+    /**
+     * Reads the file part by part, only the parts parsed at a time are
+     * held in memory
+     *
+     * @param file file of jobs
+     * @param batch consumer of the jobs
+     * @throws IOException if the file can not be read or the consumer
+     * fails
+     * @throws ParseException if some lines are malformed, the message
+     * lists them and the error offset is the first malformed line; the
+     * other jobs have been given to the consumer
+     */
+    public static void scan(Path file, Batch batch) throws IOException,
+            ParseException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            // position and number of lines after the header
+            long[] header = skipHeader(channel, size);
+
+            // split the rest at line ends
+            ArrayList<Chunk> chunks = new ArrayList<>();
+            long start = header[0];
+            while (start < size) {
+                long end = size - start <= CHUNK ? size
+                        : nextLine(channel, start + CHUNK, size);
+                chunks.add(new Chunk(channel, start, end));
+                start = end;
+            }
+
+            // parse two chunks per thread at a time and hand them over
+            int group = 2 * ForkJoinPool.getCommonPoolParallelism();
+            StringBuilder errors = new StringBuilder();
+            long firstError = -1;
+            long errorCount = 0;
+            long line = header[1] + 1;
+            for (int from = 0; from < chunks.size(); from += group) {
+                int to = Math.min(from + group, chunks.size());
+                parse(chunks.subList(from, to));
+                for (int c = from; c < to; c++) {
+                    Chunk chunk = chunks.get(c);
+                    batch.add(chunk.names, chunk.nameIds, chunk.arrival,
+                            chunk.service, chunk.weight, chunk.deadline,
+                            chunk.count);
+                    for (int i = 0; i < chunk.errorCount; i++) {
+                        if (firstError == -1) {
+                            firstError = line + chunk.errorLines[i];
+                        }
+                        if (errorCount++ < MAX_ERRORS) {
+                            errors.append("\nline ")
+                                    .append(line + chunk.errorLines[i])
+                                    .append(": ")
+                                    .append(chunk.errorTexts[i]);
+                        }
+                    }
+                    errorCount += chunk.errorTotal - chunk.errorCount;
+                    line += chunk.lines;
+                    chunks.set(c, null);
+                }
+            }
+            if (errorCount > 0) {
+                if (errorCount > MAX_ERRORS) {
+                    errors.append("\n... ").append(errorCount - MAX_ERRORS)
+                            .append(" more");
+                }
+                throw new ParseException("Malformed lines in " + file
+                        + errors, (int) Math.min(firstError,
+                                Integer.MAX_VALUE));
+            }
+        }
+    }
+
+    /**
+     * Parses the chunks, in parallel if there are several
+     *
+     * @param chunks chunks of the file
+     * @throws IOException if a chunk can not be read
+     */
+    private static void parse(List<Chunk> chunks) throws IOException {
+        if (chunks.size() == 1) {
+            chunks.get(0).call();
+            return;
+        }
+        try {
+            for (Future<Chunk> result
+                    : ForkJoinPool.commonPool().invokeAll(chunks)) {
+                result.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    /**
+     * Skips empty lines and the header line
+     *
+     * @param channel file
+     * @param size size of the file
+     * @return position of the first line after the header and number of
+     * lines before it
+     * @throws IOException if the file can not be read
+     */
+    private static long[] skipHeader(FileChannel channel, long size)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = 0;
+        long lines = 0;
+        boolean empty = true;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    lines++;
+                    if (!empty) {
+                        return new long[]{position + i + 1, lines};
+                    }
+                } else if (b != '\r') {
+                    empty = false;
+                }
+            }
+            position += read;
+        }
+        return new long[]{size, lines};
+    }
+
+    /**
+     * @param channel file
+     * @param position position in the file
+     * @param size size of the file
+     * @return position after the first line end at or after the position
+     * @throws IOException if the file can not be read
+     */
+    private static long nextLine(FileChannel channel, long position,
+            long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Part of the file which ends at a line end, parsed by one task
+     */
+    private static class Chunk implements Callable<Chunk> {
+
+        Chunk(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Chunk call() throws IOException {
+            int capacity = (int) Math.max(16, (end - start) / 16);
+            nameIds = new int[capacity];
+            arrival = new int[capacity];
+            service = new int[capacity];
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, start, end - start);
+            // the mapping is parsed through a small window which stays in
+            // the cache, the window keeps an unfinished line for the next
+            // part of the mapping
+            byte[] window = new byte[WINDOW];
+            int length = 0;
+            while (buffer.hasRemaining() || length > 0) {
+                int read = Math.min(window.length - length,
+                        buffer.remaining());
+                buffer.get(window, length, read);
+                length += read;
+                data = window;
+                int position = 0;
+                while (position < length) {
+                    int lineEnd = position;
+                    while (lineEnd < length && window[lineEnd] != '\n') {
+                        lineEnd++;
+                    }
+                    if (lineEnd == length && buffer.hasRemaining()) {
+                        break;
+                    }
+                    parseLine(position, lineEnd);
+                    lines++;
+                    position = lineEnd + 1;
+                }
+                int rest = Math.max(length - position, 0);
+                if (rest == window.length) {
+                    window = Arrays.copyOf(window, window.length * 2);
+                }
+                System.arraycopy(window, position, window, 0, rest);
+                length = rest;
+            }
+            names = Arrays.copyOf(names, nameCount);
+            data = null;
+            return this;
+        }
+
+        /**
+         * Parses the line, blank lines are skipped
+         *
+         * @param from first byte of the line
+         * @param to end of the line
+         */
+        private void parseLine(int from, int to) {
+            int p = skipSpaces(from, to);
+            if (p == to) {
+                return;
+            }
+            // name
+            int nameStart = p;
+            int hash = 0;
+            while (p < to && !isSpace(data[p])) {
+                hash = hash * 31 + data[p];
+                p++;
+            }
+            int nameEnd = p;
+            // arrival time and service time
+            p = parseInt(skipSpaces(p, to), to);
+            if (p < 0) {
+                error("arrival time is missing or not an integer");
+                return;
+            }
+            if (value < 0) {
+                error("arrival time is negative");
+                return;
+            }
+            int arrivalTime = value;
+            p = parseInt(skipSpaces(p, to), to);
+            if (p < 0) {
+                error("service time is missing or not an integer");
+                return;
+            }
+            if (value <= 0) {
+                error("service time is not positive");
+                return;
+            }
+            int serviceTime = value;
+            // optional weight
+            int jobWeight = 1;
+            p = skipSpaces(p, to);
+            if (p != to && data[p] != '@') {
+                p = parseInt(p, to);
+                if (p < 0 || value <= 0) {
+                    error("weight is not a positive integer");
+                    return;
+                }
+                jobWeight = value;
+                p = skipSpaces(p, to);
+            }
+            // optional deadline
+            int jobDeadline = JobTable.NO_DEADLINE;
+            if (p != to && data[p] == '@') {
+                p = parseInt(p + 1, to);
+                if (p < 0 || value < 0) {
+                    error("deadline is not @ and a non-negative integer");
+                    return;
+                }
+                jobDeadline = value;
+                p = skipSpaces(p, to);
+            }
+            if (p != to) {
+                error("unexpected text after the service time, weight or "
+                        + "deadline");
+                return;
+            }
+
+            if (count == arrival.length) {
+                int capacity = count * 2;
+                nameIds = Arrays.copyOf(nameIds, capacity);
+                arrival = Arrays.copyOf(arrival, capacity);
+                service = Arrays.copyOf(service, capacity);
+                if (weight != null) {
+                    weight = Arrays.copyOf(weight, capacity);
+                }
+                if (deadline != null) {
+                    deadline = Arrays.copyOf(deadline, capacity);
+                }
+            }
+            if (jobWeight != 1 && weight == null) {
+                // first weighted job, the jobs before have weight 1
+                weight = new int[arrival.length];
+                Arrays.fill(weight, 1);
+            }
+            if (jobDeadline != JobTable.NO_DEADLINE && deadline == null) {
+                // first job with a deadline, the jobs before have none
+                deadline = new int[arrival.length];
+                Arrays.fill(deadline, JobTable.NO_DEADLINE);
+            }
+            nameIds[count] = intern(nameStart, nameEnd, hash);
+            arrival[count] = arrivalTime;
+            service[count] = serviceTime;
+            if (weight != null) {
+                weight[count] = jobWeight;
+            }
+            if (deadline != null) {
+                deadline[count] = jobDeadline;
+            }
+            count++;
+        }
+
+        /**
+         * Parses the int into field value
+         *
+         * @param from first byte
+         * @param to end of the line
+         * @return position after the int or -1 if there is no int
+         */
+        private int parseInt(int from, int to) {
+            int p = from;
+            boolean negative = false;
+            if (p < to && (data[p] == '-' || data[p] == '+')) {
+                negative = data[p] == '-';
+                p++;
+            }
+            long v = 0;
+            int digits = 0;
+            while (p < to && !isSpace(data[p])) {
+                int digit = data[p] - '0';
+                if (digit < 0 || digit > 9 || ++digits > 10) {
+                    return -1;
+                }
+                v = v * 10 + digit;
+                p++;
+            }
+            v = negative ? -v : v;
+            if (digits == 0 || v < Integer.MIN_VALUE
+                    || v > Integer.MAX_VALUE) {
+                return -1;
+            }
+            value = (int) v;
+            return p;
+        }
+
+        private int skipSpaces(int from, int to) {
+            while (from < to && isSpace(data[from])) {
+                from++;
+            }
+            return from;
+        }
+
+        private static boolean isSpace(byte b) {
+            return b == ' ' || b == '\t' || b == '\r';
+        }
+
+        /**
+         * Returns the id of the name adding it to the names of the chunk
+         * if needed
+         *
+         * @param from first byte of the name
+         * @param to end of the name
+         * @param hash hash of the bytes of the name
+         * @return id of the name
+         */
+        private int intern(int from, int to, int hash) {
+            int mask = (1 << tableBits) - 1;
+            int slot = slot(hash);
+            while (table[2 * slot + 1] != 0) {
+                int id = table[2 * slot + 1] - 1;
+                if (table[2 * slot] == hash && equalBytes(id, from, to)) {
+                    return id;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (nameCount == names.length) {
+                int capacity = nameCount * 2;
+                names = Arrays.copyOf(names, capacity);
+                nameHash = Arrays.copyOf(nameHash, capacity);
+                nameStart = Arrays.copyOf(nameStart, capacity);
+                nameLength = Arrays.copyOf(nameLength, capacity);
+            }
+            int length = to - from;
+            if (length > nameBytes.length - nameBytesSize) {
+                nameBytes = Arrays.copyOf(nameBytes, Math.max(
+                        nameBytes.length * 2, nameBytesSize + length));
+            }
+            System.arraycopy(data, from, nameBytes, nameBytesSize, length);
+            names[nameCount] = new String(data, from, length,
+                    StandardCharsets.UTF_8);
+            nameHash[nameCount] = hash;
+            nameStart[nameCount] = nameBytesSize;
+            nameLength[nameCount] = length;
+            nameBytesSize += length;
+            table[2 * slot] = hash;
+            table[2 * slot + 1] = nameCount + 1;
+            nameCount++;
+            if (nameCount * 2 > 1 << tableBits) {
+                rehash();
+            }
+            return nameCount - 1;
+        }
+
+        /**
+         * Fibonacci hashing: the hashes of similar names are close to each
+         * other, the high bits of the product spread them over the table
+         *
+         * @param hash hash of the name
+         * @return first slot of the name in the table
+         */
+        private int slot(int hash) {
+            return (hash * 0x9E3779B9) >>> (32 - tableBits);
+        }
+
+        private boolean equalBytes(int id, int from, int to) {
+            if (nameLength[id] != to - from) {
+                return false;
+            }
+            int other = nameStart[id];
+            for (int i = from; i < to; i++) {
+                if (data[i] != nameBytes[other++]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void rehash() {
+            tableBits++;
+            table = new int[2 << tableBits];
+            int mask = (1 << tableBits) - 1;
+            for (int id = 0; id < nameCount; id++) {
+                int hash = nameHash[id];
+                int slot = slot(hash);
+                while (table[2 * slot + 1] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[2 * slot] = hash;
+                table[2 * slot + 1] = id + 1;
+            }
+        }
+
+        /**
+         * Records the malformed current line
+         *
+         * @param text description of the error
+         */
+        private void error(String text) {
+            if (errorCount < MAX_ERRORS) {
+                errorLines[errorCount] = lines;
+                errorTexts[errorCount] = text;
+                errorCount++;
+            }
+            errorTotal++;
+        }
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        // window of the mapping being parsed
+        private byte[] data;
+        // value parsed by parseInt
+        private int value;
+        // open addressing table of pairs: hash of the name, name id + 1
+        private int[] table = new int[2 << 6];
+        private int tableBits = 6;
+        private int[] nameHash = new int[16];
+        private int[] nameStart = new int[16];
+        private int[] nameLength = new int[16];
+        // bytes of the names, the window is overwritten
+        private byte[] nameBytes = new byte[256];
+        private int nameBytesSize;
+        // parsed jobs
+        String[] names = new String[16];
+        int nameCount;
+        int[] nameIds;
+        int[] arrival;
+        int[] service;
+        // null while every job has weight 1
+        int[] weight;
+        // null while no job has a deadline
+        int[] deadline;
+        int count;
+        // number of lines of the chunk
+        long lines;
+        // first malformed lines, numbered from 0 in the chunk
+        final long[] errorLines = new long[MAX_ERRORS];
+        final String[] errorTexts = new String[MAX_ERRORS];
+        int errorCount;
+        long errorTotal;
+    }
+}
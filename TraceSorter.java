@@ -0,0 +1,454 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * class TraceSorter puts jobs into the order of their arrival, which all
+ * algorithms assume: the engines admit jobs by index and break ties of
+ * arrival times by index. Jobs arriving at the same time keep the order
+ * of the trace, so a sorted trace stays as it is.
+ *
+ * A table in memory is sorted by a parallel sort of primitive keys, the
+ * arrival time in the high and the index in the low 32 bits. A trace
+ * which does not fit into memory is sorted by an external merge sort:
+ * runs of a bounded number of jobs are sorted the same way and spilled
+ * into temporary files, which are merged, at most FAN_IN at a time, into
+ * a binary trace. The scheduler maps that trace and decodes its columns
+ * straight into the table. Only the names are kept in memory.
+ *
+ * Run file, big-endian: name id, arrival time, service time, weight and
+ * deadline of every job, ints.
+ */
+public class TraceSorter {
+
+    // bytes of memory for a job of a run: five columns, key and order
+    private static final int JOB_BYTES = 36;
+
+    // bytes of a job in a run file
+    private static final int RECORD = 20;
+
+    // fewest jobs of a run
+    private static final int MIN_RUN = 1 << 10;
+
+    // most runs merged at a time
+    private static final int FAN_IN = 64;
+
+    // bytes read or written at a time from a run file
+    private static final int BUFFER = 64 << 10;
+
+    /**
+     * @param jobs table of jobs
+     * @return true if the jobs are in the order of arrival
+     */
+    public static boolean isSorted(JobTable jobs) {
+        int[] arrival = jobs.arrival;
+        for (int i = 1; i < jobs.size(); i++) {
+            if (arrival[i] < arrival[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sorts the table in memory, jobs arriving at the same time keep their
+     * order
+     *
+     * @param jobs table of jobs, not frozen
+     * @return false if the jobs were sorted already
+     */
+    public static boolean sort(JobTable jobs) {
+        if (isSorted(jobs)) {
+            return false;
+        }
+        jobs.reorder(order(jobs.arrival, jobs.size()));
+        return true;
+    }
+
+    /**
+     * Sorts the trace into a binary trace, holding at most about
+     * memoryBytes of jobs in memory
+     *
+     * @param input text or binary trace
+     * @param output binary trace written
+     * @param directory directory of the temporary files
+     * @param memoryBytes memory for the jobs of a run
+     * @throws IOException if a file can not be read or written
+     * @throws ParseException if some lines of a text trace are malformed,
+     * nothing is written then
+     */
+    public static void sort(Path input, Path output, Path directory,
+            long memoryBytes) throws IOException, ParseException {
+        int capacity = (int) Math.max(MIN_RUN, Math.min(
+                memoryBytes / JOB_BYTES, Integer.MAX_VALUE - 8));
+        try (Runs runs = new Runs(directory, capacity)) {
+            if (BinaryTrace.isBinary(input)) {
+                BinaryTrace.scan(input, runs);
+            } else {
+                TraceLoader.scan(input, runs);
+            }
+            runs.finish(output);
+        }
+    }
+
+    /**
+     * Stable order of the jobs by arrival time
+     *
+     * @param arrival arrival times
+     * @param n number of jobs
+     * @return index of the job which comes i-th for every i
+     */
+    static int[] order(int[] arrival, int n) {
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = (long) arrival[i] << 32 | i;
+        }
+        Arrays.parallelSort(keys);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    /**
+     * Consumer of the jobs in the order of arrival
+     */
+    private interface Sink {
+
+        void add(int nameId, int arrival, int service, int weight,
+                int deadline) throws IOException;
+    }
+
+    /**
+     * Jobs of the trace collected into sorted runs
+     */
+    private static class Runs implements TraceLoader.Batch, Closeable {
+
+        Runs(Path directory, int capacity) {
+            this.directory = directory;
+            nameId = new int[Math.min(capacity, 16)];
+            arrival = new int[nameId.length];
+            service = new int[nameId.length];
+            weight = new int[nameId.length];
+            deadline = new int[nameId.length];
+            this.capacity = capacity;
+        }
+
+        @Override
+        public void add(String[] jobNames, int[] jobNameIds,
+                int[] arrivalTimes, int[] serviceTimes, int[] weights,
+                int[] deadlines, int n) throws IOException {
+            if (n > Integer.MAX_VALUE - 8 - total) {
+                throw new IOException("Too many jobs");
+            }
+            total += n;
+            weighted |= weights != null;
+            timed |= deadlines != null;
+            // ids of the names, the parts of a binary trace share them
+            if (jobNames != lastNames) {
+                lastNames = jobNames;
+                lastIds = new int[jobNames.length];
+                for (int i = 0; i < jobNames.length; i++) {
+                    Integer id = ids.get(jobNames[i]);
+                    if (id == null) {
+                        id = names.size();
+                        ids.put(jobNames[i], id);
+                        names.add(jobNames[i]);
+                    }
+                    lastIds[i] = id;
+                }
+            }
+            for (int from = 0; from < n;) {
+                if (count == capacity) {
+                    spill();
+                }
+                if (count == nameId.length) {
+                    grow();
+                }
+                int part = Math.min(n - from, nameId.length - count);
+                for (int i = 0; i < part; i++) {
+                    nameId[count + i] = lastIds[jobNameIds[from + i]];
+                }
+                System.arraycopy(arrivalTimes, from, arrival, count, part);
+                System.arraycopy(serviceTimes, from, service, count, part);
+                if (weights != null) {
+                    System.arraycopy(weights, from, weight, count, part);
+                } else {
+                    Arrays.fill(weight, count, count + part, 1);
+                }
+                if (deadlines != null) {
+                    System.arraycopy(deadlines, from, deadline, count, part);
+                } else {
+                    Arrays.fill(deadline, count, count + part,
+                            JobTable.NO_DEADLINE);
+                }
+                count += part;
+                from += part;
+            }
+        }
+
+        /**
+         * Writes the jobs in the order of arrival
+         *
+         * @param output binary trace
+         * @throws IOException if a file can not be read or written
+         */
+        void finish(Path output) throws IOException {
+            try (BinaryTrace.Writer writer = new BinaryTrace.Writer(output,
+                    directory, weighted, timed)) {
+                if (files.isEmpty()) {
+                    // all jobs fit into one run
+                    int[] order = order(arrival, count);
+                    for (int i = 0; i < count; i++) {
+                        int job = order[i];
+                        writer.add(nameId[job], arrival[job], service[job],
+                                weight[job], deadline[job]);
+                    }
+                } else {
+                    if (count > 0) {
+                        spill();
+                    }
+                    nameId = arrival = service = weight = deadline = null;
+                    while (files.size() > FAN_IN) {
+                        ArrayList<Path> merged = new ArrayList<>();
+                        for (int i = 0; i < files.size(); i += FAN_IN) {
+                            List<Path> group = files.subList(i,
+                                    Math.min(i + FAN_IN, files.size()));
+                            if (group.size() == 1) {
+                                merged.add(group.get(0));
+                                continue;
+                            }
+                            Path file = createRun();
+                            merged.add(file);
+                            try (RunOutput out = new RunOutput(file)) {
+                                merge(group, out);
+                            }
+                            for (Path done : group) {
+                                Files.delete(done);
+                            }
+                        }
+                        files = merged;
+                    }
+                    merge(files, writer::add);
+                }
+                writer.finish(names.toArray(new String[0]));
+            }
+        }
+
+        /**
+         * Deletes the run files
+         *
+         * @throws IOException if a file can not be deleted
+         */
+        @Override
+        public void close() throws IOException {
+            for (Path file : created) {
+                Files.deleteIfExists(file);
+            }
+            created.clear();
+        }
+
+        private Path createRun() throws IOException {
+            Path file = Files.createTempFile(directory, "run", ".tmp");
+            created.add(file);
+            return file;
+        }
+
+        /**
+         * Sorts the jobs in memory and writes them into a run file
+         *
+         * @throws IOException if the file can not be written
+         */
+        private void spill() throws IOException {
+            int[] order = order(arrival, count);
+            Path file = createRun();
+            files.add(file);
+            try (RunOutput out = new RunOutput(file)) {
+                for (int i = 0; i < count; i++) {
+                    int job = order[i];
+                    out.add(nameId[job], arrival[job], service[job],
+                            weight[job], deadline[job]);
+                }
+            }
+            count = 0;
+        }
+
+        /**
+         * Merges the runs, a job of an earlier run comes first among jobs
+         * arriving at the same time
+         *
+         * @param runs run files in the order of the trace
+         * @param sink consumer of the jobs
+         * @throws IOException if a file can not be read or written
+         */
+        private void merge(List<Path> runs, Sink sink) throws IOException {
+            RunInput[] inputs = new RunInput[runs.size()];
+            try {
+                IntHeap heap = new IntHeap((a, b) -> {
+                    int c = Integer.compare(inputs[a].arrival,
+                            inputs[b].arrival);
+                    return c != 0 ? c : Integer.compare(a, b);
+                }, inputs.length);
+                for (int i = 0; i < inputs.length; i++) {
+                    inputs[i] = new RunInput(runs.get(i));
+                    if (inputs[i].next()) {
+                        heap.add(i);
+                    }
+                }
+                while (!heap.isEmpty()) {
+                    RunInput input = inputs[heap.peek()];
+                    sink.add(input.nameId, input.arrival, input.service,
+                            input.weight, input.deadline);
+                    if (input.next()) {
+                        heap.replaceTop(heap.peek());
+                    } else {
+                        heap.poll();
+                    }
+                }
+            } finally {
+                for (RunInput input : inputs) {
+                    if (input != null) {
+                        input.close();
+                    }
+                }
+            }
+        }
+
+        private void grow() {
+            int length = (int) Math.min(2L * nameId.length, capacity);
+            nameId = Arrays.copyOf(nameId, length);
+            arrival = Arrays.copyOf(arrival, length);
+            service = Arrays.copyOf(service, length);
+            weight = Arrays.copyOf(weight, length);
+            deadline = Arrays.copyOf(deadline, length);
+        }
+
+        private final Path directory;
+        // most jobs of a run
+        private final int capacity;
+        // jobs of the current run
+        private int[] nameId;
+        private int[] arrival;
+        private int[] service;
+        private int[] weight;
+        private int[] deadline;
+        private int count;
+        private long total;
+        private boolean weighted;
+        private boolean timed;
+        // dictionary of the names of all jobs
+        private final HashMap<String, Integer> ids = new HashMap<>();
+        private final ArrayList<String> names = new ArrayList<>();
+        private String[] lastNames;
+        private int[] lastIds;
+        // run files in the order of the trace
+        private List<Path> files = new ArrayList<>();
+        // all run files, deleted by close
+        private final ArrayList<Path> created = new ArrayList<>();
+    }
+
+    /**
+     * Run file written through a buffer
+     */
+    private static class RunOutput implements Sink, Closeable {
+
+        RunOutput(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        @Override
+        public void add(int nameId, int arrival, int service, int weight,
+                int deadline) throws IOException {
+            if (buffer.remaining() < RECORD) {
+                flush();
+            }
+            buffer.putInt(nameId).putInt(arrival).putInt(service)
+                    .putInt(weight).putInt(deadline);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER);
+    }
+
+    /**
+     * Run file read through a buffer, the fields hold the current job
+     */
+    private static class RunInput implements Closeable {
+
+        RunInput(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            buffer.limit(0);
+        }
+
+        /**
+         * Reads the next job
+         *
+         * @return false if the run has ended
+         * @throws IOException if the file can not be read or ends inside
+         * a job
+         */
+        boolean next() throws IOException {
+            if (buffer.remaining() < RECORD) {
+                buffer.compact();
+                while (buffer.position() < RECORD
+                        && channel.read(buffer) > 0) {
+                    // read at least one job
+                }
+                buffer.flip();
+                if (!buffer.hasRemaining()) {
+                    return false;
+                }
+                if (buffer.remaining() < RECORD) {
+                    throw new IOException("Run file is truncated");
+                }
+            }
+            nameId = buffer.getInt();
+            arrival = buffer.getInt();
+            service = buffer.getInt();
+            weight = buffer.getInt();
+            deadline = buffer.getInt();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER);
+        int nameId;
+        int arrival;
+        int service;
+        int weight;
+        int deadline;
+    }
+}
@@ -0,0 +1,140 @@
+
+import java.util.Random;
+
+/**
+ * class Workloads creates synthetic, reproducible tables of jobs for
+ * benchmarks. Jobs are sorted by arrival time. Names are taken from a
+ * limited dictionary, so big workloads do not hold millions of strings.
+ */
+public class Workloads {
+
+    // shapes of workloads
+    public static final String[] SHAPES = {
+        "uniform", "pareto", "bursty", "zero"
+    };
+
+    // number of distinct job names
+    private static final int NAMES = 4096;
+
+    // mean service time of every shape
+    private static final double MEAN_SERVICE = 10;
+
+    // mean service time divided by mean interarrival time
+    private static final double LOAD = 0.9;
+
+    /**
+     * Creates the workload of the shape
+     *
+     * @param shape one of SHAPES
+     * @param n number of jobs
+     * @param seed random seed
+     * @return table of jobs or null if the shape is unknown
+     */
+    public static JobTable create(String shape, int n, long seed) {
+        if (shape.equals("uniform")) {
+            return uniform(n, seed);
+        } else if (shape.equals("pareto")) {
+            return pareto(n, seed);
+        } else if (shape.equals("bursty")) {
+            return bursty(n, seed);
+        } else if (shape.equals("zero")) {
+            return zero(n, seed);
+        }
+        return null;
+    }
+
+    /**
+     * Uniform interarrival and service times
+     *
+     * @param n number of jobs
+     * @param seed random seed
+     * @return table of jobs
+     */
+    public static JobTable uniform(int n, long seed) {
+        Random random = new Random(seed);
+        JobTable jobs = new JobTable(n);
+        double meanArrival = MEAN_SERVICE / LOAD;
+        double time = 0;
+        for (int i = 0; i < n; i++) {
+            jobs.add(name(i), (int) time,
+                    1 + random.nextInt((int) (2 * MEAN_SERVICE) - 1));
+            time += random.nextDouble() * 2 * meanArrival;
+        }
+        return jobs;
+    }
+
+    /**
+     * Poisson arrivals, heavy-tailed Pareto service times (shape 1.5)
+     *
+     * @param n number of jobs
+     * @param seed random seed
+     * @return table of jobs
+     */
+    public static JobTable pareto(int n, long seed) {
+        Random random = new Random(seed);
+        JobTable jobs = new JobTable(n);
+        double alpha = 1.5;
+        // scale which gives the mean service time
+        double scale = MEAN_SERVICE * (alpha - 1) / alpha;
+        double meanArrival = MEAN_SERVICE / LOAD;
+        double time = 0;
+        for (int i = 0; i < n; i++) {
+            double service = scale / Math.pow(1 - random.nextDouble(),
+                    1 / alpha);
+            jobs.add(name(i), (int) time,
+                    (int) Math.min(Math.ceil(service), 1000000));
+            time += exponential(random, meanArrival);
+        }
+        return jobs;
+    }
+
+    /**
+     * Bursts of jobs arriving at the same time separated by long gaps
+     *
+     * @param n number of jobs
+     * @param seed random seed
+     * @return table of jobs
+     */
+    public static JobTable bursty(int n, long seed) {
+        Random random = new Random(seed);
+        JobTable jobs = new JobTable(n);
+        double meanArrival = MEAN_SERVICE / LOAD;
+        double time = 0;
+        int i = 0;
+        while (i < n) {
+            // burst of 1 to 200 jobs
+            int burst = Math.min(n - i, 1 + random.nextInt(200));
+            for (int j = 0; j < burst; j++, i++) {
+                jobs.add(name(i), (int) time,
+                        1 + random.nextInt((int) (2 * MEAN_SERVICE) - 1));
+            }
+            time += exponential(random, burst * meanArrival);
+        }
+        return jobs;
+    }
+
+    /**
+     * All jobs arrive at time zero
+     *
+     * @param n number of jobs
+     * @param seed random seed
+     * @return table of jobs
+     */
+    public static JobTable zero(int n, long seed) {
+        Random random = new Random(seed);
+        JobTable jobs = new JobTable(n);
+        for (int i = 0; i < n; i++) {
+            jobs.add(name(i), 0,
+                    1 + random.nextInt((int) (2 * MEAN_SERVICE) - 1));
+        }
+        return jobs;
+    }
+
+    private static double exponential(Random random, double mean) {
+        return -Math.log(1 - random.nextDouble()) * mean;
+    }
+
+    private static String name(int i) {
+        return "J" + (i % NAMES);
+    }
+}
@@ -0,0 +1,141 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * class PolicyExecutorBenchmark compares PolicyExecutor with
+ * ThreadPoolExecutor (TPE, a FIFO queue) with JMH on the mix of short and
+ * long tasks of ExecutorBenchmark: 5% of the tasks spin for 1000
+ * microseconds, the others for 10, and every task is given its spin time
+ * as its cost.
+ * One call submits a round of TASKS tasks and waits till they are done;
+ * four benchmark threads submit at the same time to one executor with a
+ * worker per processor. Throughput gives rounds per millisecond, the
+ * sampled round times their p99:
+ *
+ *   java -jar target/benchmarks.jar PolicyExecutorBenchmark -t 8
+ *        -p executor=TPE,SPN
+ *
+ * PolicyExecutor is in the unnamed package, so it is created and called
+ * through method handles, as in SchedulerBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class PolicyExecutorBenchmark {
+
+    // tasks of a round of one benchmark thread
+    static final int TASKS = 1000;
+
+    // keeps the work of the tasks alive
+    static volatile long blackhole;
+
+    @Param({"TPE", "FCFS", "SPN", "HRRN", "FB"})
+    public String executor;
+
+    @Param({"5"})
+    public int longPercent;
+
+    @Param({"10"})
+    public long shortMicros;
+
+    @Param({"1000"})
+    public long longMicros;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        // the same mix for every executor
+        spin = new long[TASKS];
+        Random random = new Random(1);
+        for (int i = 0; i < TASKS; i++) {
+            spin[i] = (random.nextInt(100) < longPercent ? longMicros
+                    : shortMicros) * 1000;
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (executor.equals("TPE")) {
+            pool = new ThreadPoolExecutor(threads, threads, 0,
+                    TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+            return;
+        }
+        Class<?> type = Class.forName("PolicyExecutor");
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        pool = (ExecutorService) lookup.findConstructor(type,
+                MethodType.methodType(void.class, String.class, int.class))
+                .invoke(executor, threads);
+        execute = lookup.findVirtual(type, "execute", MethodType.methodType(
+                void.class, Runnable.class, long.class))
+                .asType(MethodType.methodType(void.class,
+                        ExecutorService.class, Runnable.class, long.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public void round() throws Throwable {
+        CountDownLatch done = new CountDownLatch(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            long nanos = spin[i];
+            Runnable command = () -> {
+                work(nanos);
+                done.countDown();
+            };
+            if (execute == null) {
+                pool.execute(command);
+            } else {
+                execute.invokeExact(pool, command, nanos);
+            }
+        }
+        done.await();
+    }
+
+    /**
+     * Spins for the time
+     *
+     * @param nanos time in nanoseconds
+     */
+    private static void work(long nanos) {
+        long end = System.nanoTime() + nanos;
+        long x = 0;
+        while (System.nanoTime() < end) {
+            x++;
+        }
+        blackhole += x;
+    }
+
+    // spin time of every task of a round in nanoseconds
+    private long[] spin;
+    private ExecutorService pool;
+    // PolicyExecutor.execute(Runnable, long), null for TPE
+    private MethodHandle execute;
+}
@@ -0,0 +1,84 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * class SchedulerBenchmark measures one call of a scheduling algorithm on
+ * a synthetic workload (see Workloads) with JMH: throughput, and the
+ * sampled call times with their p99. The allocation rate comes from the
+ * gc profiler:
+ *
+ *   mvn -P jmh package
+ *   java -jar target/benchmarks.jar SchedulerBenchmark -prof gc
+ *
+ * runs every algorithm on every workload of 1000 and 10000 jobs, in about
+ * half an hour. Large tables are slow to run and to build, so they are
+ * asked for, with fewer algorithms or workloads:
+ *
+ *   java -jar target/benchmarks.jar SchedulerBenchmark -p algorithm=SRT
+ *        -p workload=pareto -p jobs=100000,1000000,10000000
+ *
+ * JMH does not take benchmarks of the unnamed package the scheduler lives
+ * in, so the workload and the call are looked up once by name; the call
+ * goes through a method handle, which costs nothing next to a schedule.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SchedulerBenchmark {
+
+    @Param({"FCFS", "RR", "SPN", "SRT", "HRRN", "FB"})
+    public String algorithm;
+
+    @Param({"uniform", "pareto", "bursty", "zero"})
+    public String workload;
+
+    @Param({"1000", "10000"})
+    public int jobs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        Class<?> table = Class.forName("JobTable");
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        MethodHandle create = lookup.findStatic(Class.forName("Workloads"),
+                "create", MethodType.methodType(table, String.class,
+                        int.class, long.class));
+        jobTable = create.invoke(workload, jobs, 1L);
+        if (jobTable == null) {
+            throw new IllegalArgumentException("Unknown workload "
+                    + workload);
+        }
+        schedule = lookup.findStatic(Class.forName("Benchmark"), "hash",
+                MethodType.methodType(long.class, String.class, table))
+                .asType(MethodType.methodType(long.class, String.class,
+                        Object.class));
+    }
+
+    @Benchmark
+    public long schedule() throws Throwable {
+        return (long) schedule.invokeExact(algorithm, jobTable);
+    }
+
+    // table of the workload and Benchmark.hash(String, JobTable)
+    private Object jobTable;
+    private MethodHandle schedule;
+}